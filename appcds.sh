@@ -0,0 +1,24 @@
+#!/bin/sh
+# builds the app into a jar plus a class data sharing archive (AppCDS, JDK 13+) of the classes it loads
+# while it starts up. the JVM maps the archive instead of loading, verifying and parsing those classes
+# one by one, that's most of the JVM's part of a cold start. then start the app with
+#   java -XX:SharedArchiveFile=out/taskmanager.jsa -jar out/taskmanager.jar
+# the archive only fits the jar it was made with (and the same JDK), run this again after every build.
+# the training run opens the window (it needs a display), on a data directory of its own, and closes it
+# again as soon as the window is up and the list is loaded. -Dtaskmanager.startup.log=true prints the times
+
+set -e
+cd "$(dirname "$0")"
+OUT=${OUT:-out}
+
+rm -rf "$OUT/classes" "$OUT/training"
+mkdir -p "$OUT/classes"
+javac -encoding UTF-8 -d "$OUT/classes" $(find src -name '*.java')
+jar --create --file "$OUT/taskmanager.jar" --main-class Main -C "$OUT/classes" .
+
+java -XX:ArchiveClassesAtExit="$OUT/taskmanager.jsa" \
+    -Dtaskmanager.dir="$OUT/training" -Dtaskmanager.startup.exit=true -Dtaskmanager.startup.log=true \
+    -jar "$OUT/taskmanager.jar"
+rm -rf "$OUT/training"
+
+echo "start it with: java -XX:SharedArchiveFile=$OUT/taskmanager.jsa -jar $OUT/taskmanager.jar"
@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import model.HeapTaskStore;
+import model.Task;
+import model.TaskStore;
+
+// measures how many bytes the store's hot paths allocate per call, with the old
+// ConcurrentHashMap<Integer, Task> next to it for comparison.
+// build and run from the repository root:
+//   mvn -B package
+//   java -cp bench/target/benchmarks.jar benchmark.AllocationBench [tasks]
+
+public class AllocationBench {
+    private static final int ROUNDS = 5; // the first rounds warm up the JIT, the last one is reported
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink; // keeps the JIT from removing the loops
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        TaskStore store = new HeapTaskStore();
+        Map<Integer, Task> map = new ConcurrentHashMap<>();
+        for (int id = 0; id < size; id++) {
+            Task task = new Task(id, "Task " + id);
+            store.put(task);
+            map.put(id, task);
+        }
+
+        System.out.printf("%d tasks, bytes allocated per call%n", size);
+        report("HeapTaskStore.get", size, () -> {
+            for (int id = 0; id < size; id++) sink += store.get(id).getId();
+        });
+        report("HeapTaskStore.setCompleted", size, () -> {
+            for (int id = 0; id < size; id++) store.setCompleted(id, (id & 1) == 0, id, 0); // copy on write, a Task per call
+        });
+        report("HeapTaskStore.remove + put", size, () -> {
+            for (int id = 0; id < size; id++) store.put(store.remove(id));
+        });
+        report("ConcurrentHashMap.get", size, () -> {
+            for (int id = 0; id < size; id++) sink += map.get(id).getId();
+        });
+        report("ConcurrentHashMap.remove + put", size, () -> {
+            for (int id = 0; id < size; id++) map.put(id, map.remove(id));
+        });
+        if (sink == 42) System.out.println();
+    }
+
+    private static void report(String name, int calls, Runnable loop) {
+        long allocated = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            loop.run();
+            allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+        }
+        System.out.printf("  %-32s %8.2f%n", name, (double) allocated / calls);
+    }
+}
@@ -0,0 +1,147 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+
+// tiny benchmark runner for the quick benches in this folder, for a look at the numbers in one process.
+// every benchmark is warmed up first, then timed call by call: throughput, latency percentiles,
+// bytes allocated per op (ThreadMXBean) and the garbage collections that happened while measuring.
+// there are no forks and the sink is an identityHashCode, the numbers to compare are the JMH ones
+// in benchmark.jmh (java -jar bench/target/benchmarks.jar -prof gc, see bench/pom.xml).
+//
+// build and run from the repository root:
+//   mvn -B package
+//   java -cp bench/target/benchmarks.jar benchmark.ModelBench   (or benchmark.StrategyBench,
+//        benchmark.ParallelSortBench, view.ViewBench, benchmark.AllocationBench)
+//
+// settings (system properties):
+//   -Dbench.sizes=1000,10000,100000,1000000   task counts
+//   -Dbench.completed=0,0.5                   share of completed tasks
+//   -Dbench.warmup=1000 -Dbench.time=2000     milliseconds per benchmark
+
+public class Bench {
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 1000);
+    static final long MEASURE_MILLIS = Long.getLong("bench.time", 2000);
+    private static final int MAX_SAMPLES = 1 << 20;
+
+    private static long sink; // results end up here so the JIT can't drop the work
+
+    // one call of a benchmark, returns something derived from the work it did
+    public interface Body {
+        Object run() throws Exception;
+    }
+
+    public static int[] sizes() {
+        return Arrays.stream(System.getProperty("bench.sizes", "1000,10000,100000,1000000").split(","))
+            .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+    }
+
+    public static double[] completedRatios() {
+        return Arrays.stream(System.getProperty("bench.completed", "0,0.5").split(","))
+            .mapToDouble(s -> Double.parseDouble(s.trim())).toArray();
+    }
+
+    public static void header(String title) {
+        System.out.println();
+        System.out.println(title);
+        System.out.printf("  %-34s %12s %10s %10s %10s %10s %12s %5s %7s%n",
+            "benchmark", "ops/s", "p50 us", "p90 us", "p99 us", "max us", "bytes/op", "gcs", "gc ms");
+    }
+
+    // opsPerCall is how many operations one call of the body does, the numbers are per operation.
+    // returns the operations per second, 0 if it failed
+    public static double run(String name, int opsPerCall, Body body) {
+        try {
+            long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000;
+            while (System.nanoTime() < warmupEnd) consume(body.run());
+
+            // fixed size, so measuring allocates nothing itself. past that a random sample is kept
+            long[] samples = new long[MAX_SAMPLES];
+            long calls = 0, max = 0;
+            long gcCount = gcCount(), gcMillis = gcMillis();
+            long allocated = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime(), end = start + MEASURE_MILLIS * 1_000_000, now = start;
+            while (now < end || calls == 0) {
+                long before = now;
+                consume(body.run());
+                now = System.nanoTime();
+                long slot = calls < MAX_SAMPLES ? calls : ThreadLocalRandom.current().nextLong(calls + 1);
+                if (slot < MAX_SAMPLES) samples[(int) slot] = now - before;
+                max = Math.max(max, now - before);
+                calls++;
+            }
+            allocated = THREADS.getCurrentThreadAllocatedBytes() - allocated;
+            long elapsed = now - start;
+
+            int count = (int) Math.min(calls, MAX_SAMPLES);
+            Arrays.sort(samples, 0, count);
+            long ops = calls * opsPerCall;
+            double opsPerSecond = ops * 1e9 / elapsed;
+            System.out.printf("  %-34s %12.0f %10.2f %10.2f %10.2f %10.2f %12.1f %5d %7d%n", name,
+                opsPerSecond,
+                percentile(samples, count, 0.50) / 1e3 / opsPerCall,
+                percentile(samples, count, 0.90) / 1e3 / opsPerCall,
+                percentile(samples, count, 0.99) / 1e3 / opsPerCall,
+                max / 1e3 / opsPerCall,
+                (double) allocated / ops,
+                gcCount() - gcCount, gcMillis() - gcMillis);
+            return opsPerSecond;
+        } catch (Exception e) {
+            System.out.printf("  %-34s failed: %s%n", name, e);
+            return 0;
+        }
+    }
+
+    private static long percentile(long[] sorted, int count, double p) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+    }
+
+    private static void consume(Object result) {
+        sink += System.identityHashCode(result); // hashCode() of a big list would be the benchmark
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    // a model with size tasks, the completed ones are spread randomly over the ids
+    public static TaskModel model(TaskFactory factory, int size, double completed) {
+        TaskModel model = new TaskModel();
+        List<Task> tasks = factory.createTasks(descriptions(size));
+        Random random = new Random(size);
+        for (Task task : tasks) task.setCompleted(random.nextDouble() < completed);
+        model.addTasks(tasks);
+        return model;
+    }
+
+    // "Task 123" descriptions in shuffled order, so the alphabetical order differs from the id order
+    public static List<String> descriptions(int size) {
+        List<String> descriptions = new ArrayList<>(size);
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) descriptions.add("Task " + random.nextInt(size));
+        return descriptions;
+    }
+
+    public static String label(int size, double completed) {
+        return size + " tasks, " + Math.round(completed * 100) + "% completed";
+    }
+}
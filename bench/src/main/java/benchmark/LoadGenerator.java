@@ -0,0 +1,234 @@
+package benchmark;
+
+import controller.TaskController;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import model.TaskFactory;
+import model.TaskModel;
+import server.TaskServer;
+
+// load for the headless HTTP API: a number of keep-alive connections sending requests back to back,
+// each on its own thread, for a few request mixes. requests/s and latency percentiles over all connections.
+// the client is a minimal HTTP/1.1 one on plain sockets, so the client side costs as little as possible.
+//
+// without load.url a server with load.tasks tasks is started in this JVM on a free port:
+//   java -cp build benchmark.LoadGenerator
+//   java -cp build -Dload.url=http://127.0.0.1:8080 benchmark.LoadGenerator   (a running Main --headless)
+//
+// settings (system properties):
+//   -Dload.tasks=10000 -Dload.connections=16 -Dload.mixes=read,page,write,mixed
+//   -Dload.warmup=2000 -Dload.time=5000   milliseconds per mix
+
+public class LoadGenerator {
+    private static final int TASKS = Integer.getInteger("load.tasks", 10000);
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 16);
+    private static final long WARMUP_MILLIS = Long.getLong("load.warmup", 2000);
+    private static final long MEASURE_MILLIS = Long.getLong("load.time", 5000);
+    private static final int MAX_SAMPLES = 1 << 18; // per connection
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("load.url");
+        TaskServer server = null;
+        if (url == null) {
+            TaskFactory factory = new TaskFactory();
+            TaskModel model = Bench.model(factory, TASKS, 0.5);
+            server = new TaskServer(model, new TaskController(model, factory));
+            server.start("127.0.0.1", 0);
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        URI uri = URI.create(url);
+
+        System.out.println();
+        System.out.println("HTTP load, " + url + ", " + CONNECTIONS + " connections" + (server != null ? ", " + TASKS + " tasks" : ""));
+        System.out.printf("  %-34s %12s %10s %10s %10s %10s %8s%n", "mix", "requests/s", "p50 us", "p90 us", "p99 us", "max us", "errors");
+        for (String mix : System.getProperty("load.mixes", "read,page,write,mixed").split(",")) {
+            run(uri, mix.trim());
+        }
+        if (server != null) server.stop();
+        System.exit(0);
+    }
+
+    private static void run(URI uri, String mix) throws Exception {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < CONNECTIONS; i++) workers.add(new Worker(uri, mix));
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000;
+        long start = warmupEnd, end = start + MEASURE_MILLIS * 1_000_000;
+        List<Thread> threads = new ArrayList<>();
+        for (Worker worker : workers) {
+            Thread thread = new Thread(() -> worker.run(warmupEnd, end), "load-" + threads.size());
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        long requests = 0, errors = 0, max = 0;
+        int count = 0;
+        for (Worker worker : workers) {
+            requests += worker.requests;
+            errors += worker.errors;
+            max = Math.max(max, worker.max);
+            count += worker.sampleCount();
+        }
+        long[] samples = new long[count];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.samples, 0, samples, offset, worker.sampleCount());
+            offset += worker.sampleCount();
+        }
+        Arrays.sort(samples);
+        System.out.printf("  %-34s %12.0f %10.2f %10.2f %10.2f %10.2f %8d%n", mix,
+            requests * 1e9 / (end - start),
+            percentile(samples, 0.50) / 1e3, percentile(samples, 0.90) / 1e3, percentile(samples, 0.99) / 1e3,
+            max / 1e3, errors);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    // one connection and the thread driving it
+    private static final class Worker {
+        private final URI uri;
+        private final String mix;
+        private final long[] samples = new long[MAX_SAMPLES];
+        private long requests, errors, max;
+        private Connection connection;
+
+        Worker(URI uri, String mix) {
+            this.uri = uri;
+            this.mix = mix;
+        }
+
+        int sampleCount() {
+            return (int) Math.min(requests, MAX_SAMPLES);
+        }
+
+        void run(long measureStart, long end) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now = System.nanoTime();
+            while (now < end) {
+                long before = now;
+                int status;
+                try {
+                    if (connection == null) connection = new Connection(uri);
+                    status = send(random);
+                } catch (IOException e) {
+                    status = -1;
+                    if (connection != null) connection.close();
+                    connection = null;
+                }
+                now = System.nanoTime();
+                if (before < measureStart) continue;
+                if (status < 200 || status >= 300) errors++;
+                long slot = requests < MAX_SAMPLES ? requests : random.nextLong(requests + 1);
+                if (slot < MAX_SAMPLES) samples[(int) slot] = now - before;
+                max = Math.max(max, now - before);
+                requests++;
+            }
+            if (connection != null) connection.close();
+        }
+
+        private int send(ThreadLocalRandom random) throws IOException {
+            String kind = mix;
+            if (mix.equals("mixed")) {
+                int r = random.nextInt(10);
+                kind = r < 7 ? "read" : r < 9 ? "page" : "write";
+            }
+            int id = 1 + random.nextInt(TASKS);
+            switch (kind) {
+                case "read": return connection.request("GET", "/tasks/" + id, null);
+                case "page": return connection.request("GET", "/tasks?limit=20&offset=" + random.nextInt(TASKS), null);
+                case "write": return connection.request("PATCH", "/tasks/" + id,
+                    ("{\"completed\":" + random.nextBoolean() + "}").getBytes(StandardCharsets.UTF_8));
+                default: throw new IllegalArgumentException("Unknown mix: " + mix);
+            }
+        }
+    }
+
+    // HTTP/1.1 over one socket, reads the whole response (fixed length or chunked) and returns the status
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final String host;
+        private final StringBuilder line = new StringBuilder();
+
+        Connection(URI uri) throws IOException {
+            socket = new Socket(uri.getHost(), uri.getPort());
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 1 << 16);
+            out = new BufferedOutputStream(socket.getOutputStream(), 1 << 13);
+            host = uri.getHost() + ":" + uri.getPort();
+        }
+
+        int request(String method, String path, byte[] body) throws IOException {
+            StringBuilder head = new StringBuilder(128).append(method).append(' ').append(path)
+                .append(" HTTP/1.1\r\nHost: ").append(host).append("\r\n");
+            if (body != null) head.append("Content-Type: application/json\r\nContent-Length: ").append(body.length).append("\r\n");
+            head.append("\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+            if (body != null) out.write(body);
+            out.flush();
+
+            String status = readLine();
+            if (status.length() < 12) throw new IOException("Bad status line: " + status);
+            int code = Integer.parseInt(status.substring(9, 12));
+            long length = -1;
+            boolean chunked = false;
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon < 0) continue;
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) length = Long.parseLong(value);
+                else if (name.equalsIgnoreCase("Transfer-Encoding") && value.equalsIgnoreCase("chunked")) chunked = true;
+            }
+            if (chunked) {
+                while (true) {
+                    String size = readLine();
+                    int extension = size.indexOf(';');
+                    long chunk = Long.parseLong((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+                    if (chunk == 0) {
+                        while (!readLine().isEmpty()) { } // trailers
+                        break;
+                    }
+                    in.skipNBytes(chunk);
+                    readLine();
+                }
+            } else if (length > 0) {
+                in.skipNBytes(length);
+            }
+            return code;
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) throw new IOException("Connection closed");
+                if (b != '\r') line.append((char) b);
+            }
+            return line.toString();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import model.TaskQuery;
+import strategy.IdSortStrategy;
+import strategy.StatusSortStrategy;
+import strategy.TaskSortStrategy;
+
+// the model's hot paths: reading the sorted list, single changes (which keep the sort indexes
+// up to date and copy the list again on the next read), switching between sort orders, search, queries and the factory
+
+public class ModelBench {
+    public static void main(String[] args) {
+        for (int size : Bench.sizes()) {
+            for (double completed : Bench.completedRatios()) {
+                run(size, completed);
+            }
+        }
+    }
+
+    private static void run(int size, double completed) {
+        TaskFactory factory = new TaskFactory();
+        TaskModel model = Bench.model(factory, size, completed);
+        List<Task> tasks = model.getTasks();
+        Random random = new Random(42);
+
+        Bench.header("TaskModel, " + Bench.label(size, completed));
+        Bench.run("getTasks (unchanged)", 1, model::getTasks);
+        Bench.run("setTaskCompleted", 1, () -> {
+            Task task = model.getTask(tasks.get(random.nextInt(size)).getId()); // the current version
+            model.setTaskCompleted(task, !task.isCompleted());
+            return task;
+        });
+        Bench.run("setTaskCompleted + getTasks", 1, () -> {
+            Task task = model.getTask(tasks.get(random.nextInt(size)).getId()); // the current version
+            model.setTaskCompleted(task, !task.isCompleted());
+            return model.getTasks();
+        });
+        Bench.run("editTask", 1, () -> {
+            Task task = model.getTask(tasks.get(random.nextInt(size)).getId());
+            model.editTask(task, "Task " + random.nextInt(size));
+            return task;
+        });
+        Bench.run("addTask + deleteTask", 1, () -> {
+            Task task = factory.createTask("Task " + random.nextInt(size));
+            model.addTask(task);
+            model.deleteTask(task);
+            return task;
+        });
+
+        // both indexes exist after the first switch, so this is the cost of handing out the other order
+        TaskSortStrategy[] strategies = {new IdSortStrategy(), new StatusSortStrategy()};
+        int[] next = {0};
+        Bench.run("setSortStrategy + getTasks", 1, () -> {
+            model.setSortStrategy(strategies[next[0]++ & 1]);
+            return model.getTasks();
+        });
+        model.setSortStrategy(strategies[0]);
+
+        model.search(""); // the first search builds the index, that's not what's measured
+        Bench.run("search, a word in every task", 1, () -> model.search("task"));
+        Bench.run("search, two words", 1, () -> model.search("task " + random.nextInt(100)));
+        Bench.run("search, substring", 1, () -> model.search("as" + random.nextInt(10)));
+
+        Bench.run("query, a page of pending tasks", 1, () ->
+            model.query(TaskQuery.all().completed(false).offset(random.nextInt(1000)).limit(50)).toList());
+        Bench.run("query, text and id range", 1, () ->
+            model.query(TaskQuery.all().text("task 1").idRange(size / 4, size / 2).limit(50)).toList());
+
+        Bench.run("TaskFactory.createTask", 1, () -> factory.createTask("Task"));
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import model.Priority;
+import model.Task;
+import model.TaskFactory;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.PriorityDueSortStrategy;
+import strategy.StatusSortStrategy;
+import strategy.TaskSortStrategy;
+
+// the full sort of every strategy on pools of 1, 2, 4, ... threads, up to the cores there are,
+// against Arrays.sort on the calling thread. ends with the speedup of each strategy over one thread.
+// the speedup is capped by the cores, on a single core every run is about the same.
+// the tasks come shuffled and in id order, the second is how the model builds its sort indexes
+// (the status sort is a single pass then)
+//
+//   -Dbench.parallelism=1,2,4,8   pool sizes (default: powers of two up to the cores)
+//   -Dbench.sizes=1000000         task counts (default 1000000,4000000 here)
+
+public class ParallelSortBench {
+    public static void main(String[] args) {
+        if (System.getProperty("bench.sizes") == null) System.setProperty("bench.sizes", "1000000,4000000");
+        TaskSortStrategy[] strategies = {
+            new IdSortStrategy(),
+            new StatusSortStrategy(),
+            new AlphabeticalSortStrategy(),
+            new StatusSortStrategy().thenBy(new AlphabeticalSortStrategy()),
+            new PriorityDueSortStrategy()
+        };
+        int[] parallelism = parallelism();
+
+        for (int size : Bench.sizes()) {
+            for (double completed : Bench.completedRatios()) for (boolean shuffle : new boolean[] {true, false}) {
+                Task[] shuffled = tasks(size, completed, shuffle);
+                Bench.header("TaskSortStrategy.sort, " + Bench.label(size, completed) + (shuffle ? ", shuffled" : ", in id order"));
+                double[][] opsPerSecond = new double[strategies.length][parallelism.length];
+
+                for (int s = 0; s < strategies.length; s++) {
+                    TaskSortStrategy strategy = strategies[s];
+                    Bench.run(strategy.getName() + ", Arrays.sort", 1, () -> {
+                        Task[] tasks = shuffled.clone();
+                        Arrays.sort(tasks, strategy.getComparator());
+                        return tasks;
+                    });
+                    for (int p = 0; p < parallelism.length; p++) {
+                        ForkJoinPool pool = new ForkJoinPool(parallelism[p]);
+                        opsPerSecond[s][p] = Bench.run(strategy.getName() + ", " + parallelism[p] + " threads", 1, () -> {
+                            Task[] tasks = shuffled.clone();
+                            strategy.sort(tasks, pool);
+                            return tasks;
+                        });
+                        pool.shutdown();
+                    }
+                }
+
+                System.out.printf("%n  speedup over 1 thread (%d cores)%n", Runtime.getRuntime().availableProcessors());
+                for (int s = 0; s < strategies.length; s++) {
+                    StringBuilder line = new StringBuilder(String.format("  %-34s", strategies[s].getName()));
+                    for (int p = 0; p < parallelism.length; p++) {
+                        double speedup = opsPerSecond[s][0] > 0 ? opsPerSecond[s][p] / opsPerSecond[s][0] : 0;
+                        line.append(String.format(" %5.2fx @%d", speedup, parallelism[p]));
+                    }
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+
+    private static int[] parallelism() {
+        String setting = System.getProperty("bench.parallelism");
+        if (setting != null) return Arrays.stream(setting.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        List<Integer> counts = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int p = 1; p < cores; p *= 2) counts.add(p);
+        counts.add(cores);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // with some priorities and due dates so that order has work to do as well
+    private static Task[] tasks(int size, double completed, boolean shuffle) {
+        List<Task> tasks = new ArrayList<>(new TaskFactory().createTasks(Bench.descriptions(size)));
+        Random random = new Random(size);
+        for (Task task : tasks) {
+            task.setCompleted(random.nextDouble() < completed);
+            task.setPriority(Priority.values()[random.nextInt(4)]);
+            if (random.nextBoolean()) task.setDueDate(random.nextInt(1 << 30) * 1000L);
+            task.getDescriptionKey(); // the key is cached on first use, don't time that
+        }
+        if (shuffle) Collections.shuffle(tasks, random);
+        return tasks.toArray(new Task[0]);
+    }
+}
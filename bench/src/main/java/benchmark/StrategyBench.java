@@ -0,0 +1,39 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import model.Task;
+import model.TaskFactory;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.StatusSortStrategy;
+import strategy.TaskSortStrategy;
+
+// a full sort of a shuffled list with every strategy, this is what building a sort index costs
+
+public class StrategyBench {
+    public static void main(String[] args) {
+        TaskSortStrategy[] strategies = {
+            new IdSortStrategy(),
+            new StatusSortStrategy(),
+            new AlphabeticalSortStrategy(),
+            new StatusSortStrategy().thenBy(new AlphabeticalSortStrategy())
+        };
+
+        for (int size : Bench.sizes()) {
+            for (double completed : Bench.completedRatios()) {
+                List<Task> tasks = new ArrayList<>(new TaskFactory().createTasks(Bench.descriptions(size)));
+                Random random = new Random(size);
+                for (Task task : tasks) task.setCompleted(random.nextDouble() < completed);
+                Collections.shuffle(tasks, random);
+
+                Bench.header("TaskSortStrategy.sort, " + Bench.label(size, completed));
+                for (TaskSortStrategy strategy : strategies) {
+                    Bench.run(strategy.getName(), 1, () -> strategy.sort(tasks));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package benchmark.jmh;
+
+import benchmark.Bench;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import model.TaskQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the model's hot paths (what benchmark.ModelBench runs in one process) as JMH benchmarks:
+// throughput and the latency distribution, in forked JVMs, results into JMH's blackhole.
+// -prof gc adds the bytes allocated per op and the collections.
+// the changes re-read the task from the model every time, a stored task is never changed (a change makes
+// a new version), so toggling the version from setup would write the same value again and again
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ModelBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "0.5"})
+    double completed;
+
+    private TaskFactory factory;
+    private TaskModel model;
+    private int[] ids;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        factory = new TaskFactory();
+        model = Bench.model(factory, size, completed);
+        List<Task> tasks = model.getTasks();
+        ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = tasks.get(i).getId();
+        model.search(""); // the first search builds the index, that's not what's measured
+    }
+
+    private Task randomTask() {
+        return model.getTask(ids[random.nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Task> getTasks() {
+        return model.getTasks();
+    }
+
+    @Benchmark
+    public Task setTaskCompleted() {
+        Task task = randomTask();
+        model.setTaskCompleted(task, !task.isCompleted());
+        return task;
+    }
+
+    @Benchmark
+    public List<Task> setTaskCompletedThenGetTasks() {
+        Task task = randomTask();
+        model.setTaskCompleted(task, !task.isCompleted());
+        return model.getTasks();
+    }
+
+    @Benchmark
+    public Task editTask() {
+        Task task = randomTask();
+        model.editTask(task, "Task " + random.nextInt(size));
+        return task;
+    }
+
+    @Benchmark
+    public Task addThenDeleteTask() {
+        Task task = factory.createTask("Task " + random.nextInt(size));
+        model.addTask(task);
+        model.deleteTask(task);
+        return task;
+    }
+
+    @Benchmark
+    public List<Task> searchTwoWords() {
+        return model.search("task " + random.nextInt(100));
+    }
+
+    @Benchmark
+    public List<Task> queryPendingPage() {
+        return model.query(TaskQuery.all().completed(false).offset(random.nextInt(1000)).limit(50)).toList();
+    }
+
+    @Benchmark
+    public Task createTask() {
+        return factory.createTask("Task");
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark.jmh;
+
+import benchmark.Bench;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import model.Task;
+import model.TaskFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.PriorityDueSortStrategy;
+import strategy.StatusSortStrategy;
+import strategy.TaskSortStrategy;
+
+// a full sort of a shuffled list with every strategy (benchmark.StrategyBench), what building a sort index costs
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SortBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "0.5"})
+    double completed;
+
+    @Param({"id", "status", "alphabetical", "status+alphabetical", "priority+due"})
+    String strategy;
+
+    private Task[] shuffled;
+    private TaskSortStrategy sortStrategy;
+
+    @Setup
+    public void setUp() {
+        List<Task> tasks = new ArrayList<>(Bench.model(new TaskFactory(), size, completed).getTasks());
+        Collections.shuffle(tasks, new Random(size));
+        shuffled = tasks.toArray(new Task[0]);
+        sortStrategy = strategy(strategy);
+    }
+
+    private static TaskSortStrategy strategy(String name) {
+        switch (name) {
+            case "id": return new IdSortStrategy();
+            case "status": return new StatusSortStrategy();
+            case "alphabetical": return new AlphabeticalSortStrategy();
+            case "status+alphabetical": return new StatusSortStrategy().thenBy(new AlphabeticalSortStrategy());
+            case "priority+due": return new PriorityDueSortStrategy();
+            default: throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    @Benchmark
+    public Task[] sort() {
+        Task[] tasks = shuffled.clone();
+        sortStrategy.sort(tasks);
+        return tasks;
+    }
+}
@@ -0,0 +1,127 @@
+package view;
+
+import benchmark.Bench;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import model.TaskQuery;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.TaskSortStrategy;
+
+// latency from a model change until the visible rows are painted again, headless.
+// it's the view's own pipeline (the refresher working out the rows on its worker, the list model
+// taking them on the EDT, the list painted with the shared renderer) without the frame, the window
+// and the view's 16ms frame delay. in the same package as the view to get at the list model and the renderer.
+// bytes/op only counts the benchmark thread, the worker's and the EDT's work shows up in the gc columns
+
+public class ViewBench {
+    private static final int WIDTH = 580, HEIGHT = 660; // the task list area of the 600x800 window
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        for (int size : Bench.sizes()) {
+            for (double completed : Bench.completedRatios()) {
+                new ViewBench(size, completed).run();
+            }
+        }
+        System.exit(0);
+    }
+
+    private final int size;
+    private final double completed;
+    private final TaskModel model;
+    private final Semaphore painted = new Semaphore(0);
+    private final BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private TaskListModel listModel;
+    private JList<Task> list;
+    private TaskListRefresher refresher;
+
+    private ViewBench(int size, double completed) throws Exception {
+        this.size = size;
+        this.completed = completed;
+        this.model = Bench.model(new TaskFactory(), size, completed);
+        SwingUtilities.invokeAndWait(() -> {
+            listModel = new TaskListModel();
+            TaskCellRenderer renderer = new TaskCellRenderer();
+            list = new JList<>(listModel);
+            list.setUI(new TaskListUI());
+            list.setCellRenderer(renderer);
+            list.setFixedCellHeight(renderer.getRowHeight());
+            list.setFixedCellWidth(renderer.getRowWidth());
+        });
+        refresher = new TaskListRefresher(model, listModel, 0, () -> {
+            paint();
+            painted.release();
+        });
+        SwingUtilities.invokeAndWait(() -> refresher.attach(null));
+        painted.acquire();
+    }
+
+    private void run() throws Exception {
+        List<Task> tasks = model.getTasks();
+        Random random = new Random(42);
+
+        Bench.header("TaskView refresh, " + Bench.label(size, completed));
+        Bench.run("setTaskCompleted -> painted", 1, () -> {
+            Task task = model.getTask(tasks.get(random.nextInt(size)).getId()); // the current version
+            model.setTaskCompleted(task, !task.isCompleted());
+            painted.acquire();
+            return task;
+        });
+        Bench.run("editTask -> painted", 1, () -> {
+            Task task = model.getTask(tasks.get(random.nextInt(size)).getId());
+            model.editTask(task, "Task " + random.nextInt(size));
+            painted.acquire();
+            return task;
+        });
+
+        TaskSortStrategy[] strategies = {new IdSortStrategy(), new AlphabeticalSortStrategy()};
+        int[] next = {0};
+        Bench.run("setSortStrategy -> painted", 1, () -> {
+            model.setSortStrategy(strategies[next[0]++ & 1]);
+            painted.acquire();
+            return model;
+        });
+        model.setSortStrategy(strategies[0]);
+        painted.acquire();
+
+        Bench.run("show completed toggle -> painted", 1, () -> {
+            refresher.setFilter((next[0]++ & 1) == 0 ? TaskQuery.all().completed(false) : null);
+            painted.acquire();
+            return listModel;
+        });
+        refresher.setFilter(null);
+        painted.acquire();
+
+        // typing into the search box: the search, then the list filtered by it
+        model.search("");
+        Bench.run("search -> painted", 1, () -> {
+            refresher.setFilter(TaskQuery.all().text("task " + random.nextInt(100)));
+            painted.acquire();
+            return listModel;
+        });
+        refresher.setFilter(null);
+        painted.acquire();
+    }
+
+    // the repaint the list would get. the list is as tall as all of its rows, like in the scroll pane,
+    // and only the top is visible
+    private void paint() {
+        list.setSize(WIDTH, listModel.getSize() * list.getFixedCellHeight());
+        Graphics2D g = screen.createGraphics();
+        try {
+            g.setClip(0, 0, WIDTH, HEIGHT);
+            list.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+}
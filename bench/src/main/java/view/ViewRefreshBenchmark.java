@@ -0,0 +1,110 @@
+package view;
+
+import benchmark.Bench;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// view.ViewBench as a JMH benchmark: a model change until the visible rows are painted again, headless.
+// the refresher's worker and the EDT do most of the work, -prof gc counts their allocations too
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class ViewRefreshBenchmark {
+    private static final int WIDTH = 580, HEIGHT = 660; // the task list area of the 600x800 window
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "0.5"})
+    double completed;
+
+    private TaskModel model;
+    private int[] ids;
+    private final Random random = new Random(42);
+    private final Semaphore painted = new Semaphore(0);
+    private final BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private TaskListModel listModel;
+    private JList<Task> list;
+    private TaskListRefresher refresher;
+
+    @Setup
+    public void setUp() throws Exception {
+        model = Bench.model(new TaskFactory(), size, completed);
+        List<Task> tasks = model.getTasks();
+        ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = tasks.get(i).getId();
+        SwingUtilities.invokeAndWait(() -> {
+            listModel = new TaskListModel();
+            TaskCellRenderer renderer = new TaskCellRenderer();
+            list = new JList<>(listModel);
+            list.setUI(new TaskListUI());
+            list.setCellRenderer(renderer);
+            list.setFixedCellHeight(renderer.getRowHeight());
+            list.setFixedCellWidth(renderer.getRowWidth());
+        });
+        refresher = new TaskListRefresher(model, listModel, 0, () -> {
+            paint();
+            painted.release();
+        });
+        SwingUtilities.invokeAndWait(() -> refresher.attach(null));
+        painted.acquire();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        SwingUtilities.invokeAndWait(refresher::detach);
+    }
+
+    @Benchmark
+    public Task setTaskCompletedPainted() throws InterruptedException {
+        Task task = model.getTask(ids[random.nextInt(ids.length)]); // the current version
+        model.setTaskCompleted(task, !task.isCompleted());
+        painted.acquire();
+        return task;
+    }
+
+    @Benchmark
+    public Task editTaskPainted() throws InterruptedException {
+        Task task = model.getTask(ids[random.nextInt(ids.length)]);
+        model.editTask(task, "Task " + random.nextInt(size));
+        painted.acquire();
+        return task;
+    }
+
+    // the repaint the list would get, like ViewBench.paint()
+    private void paint() {
+        list.setSize(WIDTH, listModel.getSize() * list.getFixedCellHeight());
+        Graphics2D g = screen.createGraphics();
+        try {
+            g.setClip(0, 0, WIDTH, HEIGHT);
+            list.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -1,17 +1,176 @@
 import javax.swing.SwingUtilities;
-import model.TaskModel;
-import controller.TaskController;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import model.ColumnarTaskStore;
+import model.HeapTaskStore;
+import model.TaskStore;
+import metrics.Metrics;
+import metrics.StartupTimer;
+import persistence.ChangeFeed;
+import persistence.FeedServer;
+import persistence.FeedSubscriber;
+import persistence.TaskStorage;
+import server.TaskServer;
 import view.TaskView;
+import workspace.TaskList;
+import workspace.Workspace;
 
 public class Main {
     public static void main(String[] args) {
+        long mainStarted = System.currentTimeMillis();
+        // --headless [--port 8080] [--host 127.0.0.1] [--list Tasks] serves a list over HTTP instead of opening the window.
+        // --feed-port 9090 hands the list's changes to other instances, --peer host:9090 (as often as needed) takes
+        // theirs. every instance that replicates is one node of them all, --node 0/2 is the first of two: its new
+        // tasks get ids no other node hands out. two instances on one machine, each with its own -Dtaskmanager.dir,
+        // keep the same list with
+        //   java -Dtaskmanager.dir=a Main --node 0/2 --feed-port 9091 --peer 127.0.0.1:9092
+        //   java -Dtaskmanager.dir=b Main --node 1/2 --feed-port 9092 --peer 127.0.0.1:9091
+        boolean headless = false;
+        int port = 8080;
+        int feedPort = -1;
+        List<String> peers = new ArrayList<>();
+        int[] node = null; // node, nodes
+        String host = "127.0.0.1"; // only this machine by default, there's no authentication
+        String list = Workspace.DEFAULT_LIST; // the list that's served (and replicated)
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--headless")) headless = true;
+            else if (args[i].equals("--list") && i + 1 < args.length) list = args[++i];
+            else if (args[i].equals("--port") && i + 1 < args.length) port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--host") && i + 1 < args.length) host = args[++i];
+            else if (args[i].equals("--feed-port") && i + 1 < args.length) feedPort = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--peer") && i + 1 < args.length && args[i + 1].lastIndexOf(':') > 0) peers.add(args[++i]);
+            else if (args[i].equals("--node") && i + 1 < args.length && (node = parseNode(args[i + 1])) != null) i++;
+            else usage();
+        }
+        if ((feedPort >= 0 || !peers.isEmpty()) != (node != null)) usage();
+        
+        if (headless) {
+            runHeadless(host, port, list, feedPort, peers, node);
+            StartupTimer.mark("main", mainStarted);
+            StartupTimer.mark("interactive");
+            return;
+        }
+        // every list is loaded when it's first shown, the default list right away: it's read in the background
+        // while the EDT builds the window, the window shows it as it comes in
+        Workspace workspace = createWorkspace();
+        workspace.openLater(Workspace.DEFAULT_LIST);
+        AtomicReference<Runnable> replication = new AtomicReference<>(() -> {});
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            replication.get().run();
+            workspace.close();
+        }));
         SwingUtilities.invokeLater(new Runnable(){
             public void run() {
-                TaskModel model = new TaskModel();
-                TaskController controller = new TaskController(model);
-                TaskView view = new TaskView(model, controller);
+                TaskView view = new TaskView(workspace);
                 view.setVisible(true);
             }
         });
+        // JMX bean, and a table on stdout with -Dtaskmanager.metrics.log=<seconds>.
+        // here the main thread is free again, the window doesn't wait for it
+        Metrics.start();
+        StartupTimer.mark("main", mainStarted);
+        // waits for the list to load
+        replication.set(replicate(workspace, list, host, feedPort, peers, node));
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java Main [--headless [--port 8080] [--host 127.0.0.1] [--list Tasks]]"
+            + " [--node n/N --feed-port 9090 --peer host:port ...]");
+        System.exit(2);
+    }
+
+    // "1/3", the second node of three
+    private static int[] parseNode(String arg) {
+        int slash = arg.indexOf('/');
+        try {
+            int node = Integer.parseInt(arg.substring(0, slash)), nodes = Integer.parseInt(arg.substring(slash + 1));
+            return node >= 0 && node < nodes ? new int[] {node, nodes} : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    // the server's threads keep the JVM running until it's stopped (ctrl+c)
+    private static void runHeadless(String host, int port, String listName, int feedPort, List<String> peers, int[] node) {
+        Workspace workspace = createWorkspace();
+        TaskList list;
+        try {list = workspace.open(listName);}
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        list.pin();
+        Runnable replication = replicate(workspace, listName, host, feedPort, peers, node);
+        
+        TaskServer server = new TaskServer(list.getModel(), list.getController());
+        try {server.start(host, port);}
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        // stop taking requests before the journals are closed
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            replication.run();
+            workspace.close();
+        }));
+        System.out.println("Task server listening on http://" + host + ":" + server.getPort());
+        Metrics.start();
+    }
+    
+    // the list's change feed for the peers, and subscriptions to theirs. returns what stops them again.
+    // the list stays loaded while it's replicated
+    private static Runnable replicate(Workspace workspace, String listName, String host, int feedPort, List<String> peers,
+                                      int[] node) {
+        if (feedPort < 0 && peers.isEmpty()) return () -> {};
+        TaskList list;
+        try {list = workspace.open(listName);}
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return null;
+        }
+        list.pin();
+        list.getTaskFactory().setIdSpace(node[0], node[1]);
+        ChangeFeed feed = new ChangeFeed(list.getModel(), list.getTaskFactory());
+        FeedServer server = feedPort < 0 ? null : new FeedServer(feed);
+        if (server != null) {
+            try {server.start(host, feedPort);}
+            catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            System.out.println("Change feed of " + listName + " on " + host + ":" + server.getPort());
+        }
+        List<FeedSubscriber> subscribers = new ArrayList<>();
+        for (String peer : peers) {
+            int colon = peer.lastIndexOf(':');
+            FeedSubscriber subscriber = new FeedSubscriber(feed, peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1)));
+            subscriber.start();
+            subscribers.add(subscriber);
+        }
+        return () -> {
+            for (FeedSubscriber subscriber : subscribers) subscriber.stop();
+            if (server != null) server.stop();
+            feed.close();
+        };
+    }
+    
+    // the lists are stored under ~/.taskmanager (-Dtaskmanager.dir), the loaded ones share the heap budget
+    // (-Dtaskmanager.workspace.budget)
+    private static Workspace createWorkspace() {
+        return new Workspace(TaskStorage.defaultDirectory(), Workspace.defaultBudget(), Main::createStore);
+    }
+    
+    // -Dtaskmanager.store=columnar keeps the tasks in columns with the descriptions off the heap
+    private static TaskStore createStore() {
+        if ("columnar".equals(System.getProperty("taskmanager.store"))) {
+            try {return new ColumnarTaskStore();} 
+            catch (IOException e) {e.printStackTrace();}
+        }
+        return new HeapTaskStore();
     }
 }
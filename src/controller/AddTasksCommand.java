@@ -0,0 +1,51 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.Task;
+import model.TaskModel;
+
+// tasks were added: undo deletes them again, redo adds them the way they were created, at the time of the redo
+
+class AddTasksCommand implements Command {
+    private final int[] ids;
+    private final String[] descriptions;
+
+    AddTasksCommand(List<Task> tasks) {
+        ids = new int[tasks.size()];
+        descriptions = new String[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tasks.get(i).getId();
+            descriptions[i] = tasks.get(i).getDescription();
+        }
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (int id : ids) tasks.add(new Task(id, ""));
+        if (tasks.size() == 1) model.deleteTask(tasks.get(0));
+        else model.deleteTasks(tasks);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        long now = model.currentTimeMillis();
+        for (int i = 0; i < ids.length; i++) {
+            Task task = new Task(ids[i], descriptions[i]);
+            task.setCreatedAt(now);
+            task.setUpdatedAt(now);
+            tasks.add(task);
+        }
+        if (tasks.size() == 1) model.addTask(tasks.get(0));
+        else model.addTasks(tasks);
+    }
+
+    @Override
+    public long getSize() {
+        long size = CommandHistory.OBJECT_SIZE + 4L * ids.length + 8L * descriptions.length;
+        for (String description : descriptions) size += CommandHistory.sizeOf(description);
+        return size;
+    }
+}
@@ -0,0 +1,21 @@
+package controller;
+
+import model.TaskModel;
+
+// one change made through the controller, kept in the CommandHistory so it can be undone.
+// a command only remembers what it needs to go back and forth (ids, old and new values), not the tasks,
+// and it finds the tasks by id again when it's undone or redone
+
+public interface Command {
+    void undo(TaskModel model);
+
+    void redo(TaskModel model);
+
+    // roughly how many bytes the command keeps alive, for the history's memory cap
+    long getSize();
+
+    // takes over the next command if both can be undone as one (e.g. two edits of the same task)
+    default boolean absorb(Command next) {
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package controller;
+
+import java.util.List;
+import model.TaskModel;
+
+// the commands of one TaskController.batch(), undone and redone together
+
+class CommandGroup implements Command {
+    private final Command[] commands;
+
+    CommandGroup(List<Command> commands) {
+        this.commands = commands.toArray(new Command[0]);
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        model.batch(() -> {
+            for (int i = commands.length - 1; i >= 0; i--) commands[i].undo(model);
+        });
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        model.batch(() -> {
+            for (Command command : commands) command.redo(model);
+        });
+    }
+
+    @Override
+    public long getSize() {
+        long size = CommandHistory.OBJECT_SIZE + 8L * commands.length;
+        for (Command command : commands) size += command.getSize();
+        return size;
+    }
+}
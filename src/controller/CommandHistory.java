@@ -0,0 +1,133 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the commands that can be undone and redone, oldest first, in a ring buffer.
+// it holds at most maxCommands commands and about maxBytes of them, the oldest ones are dropped first.
+// a single command bigger than maxBytes (e.g. deleting a huge list) can't be undone, the history starts over after it.
+// the commands are only handed out here, the controller applies them outside of this lock
+
+public class CommandHistory {
+    public static final int DEFAULT_MAX_COMMANDS = 1000;
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    // rough sizes of a small object and of a string, enough to keep the history within its budget
+    static final long OBJECT_SIZE = 32;
+
+    static long sizeOf(String s) {
+        return s == null ? 0 : 48 + s.length();
+    }
+
+    private final Command[] commands;
+    private final long[] sizes;
+    private final long maxBytes;
+    private int first; // where the oldest command is in the ring
+    private int undoCount; // commands from first on that can be undone
+    private int redoCount; // the ones after them, undone and not replaced yet
+    private long bytes;
+
+    public CommandHistory() {
+        this(DEFAULT_MAX_COMMANDS, DEFAULT_MAX_BYTES);
+    }
+
+    public CommandHistory(int maxCommands, long maxBytes) {
+        if (maxCommands < 1) throw new IllegalArgumentException("The history needs room for a command: " + maxCommands);
+        commands = new Command[maxCommands];
+        sizes = new long[maxCommands];
+        this.maxBytes = maxBytes;
+    }
+
+    // a new change, everything that was undone before can't be redone anymore
+    public synchronized void record(Command command) {
+        boolean afterUndo = redoCount > 0;
+        while (redoCount > 0) drop(undoCount + --redoCount);
+
+        // an edit right after an edit of the same task is one step, but not if it follows an undo
+        if (undoCount > 0 && !afterUndo) {
+            int last = slot(undoCount - 1);
+            if (commands[last].absorb(command)) {
+                bytes -= sizes[last];
+                sizes[last] = commands[last].getSize();
+                bytes += sizes[last];
+                return;
+            }
+        }
+
+        long size = command.getSize();
+        if (size > maxBytes) {
+            clear();
+            return;
+        }
+        if (undoCount == commands.length) dropOldest();
+        int slot = slot(undoCount++);
+        commands[slot] = command;
+        sizes[slot] = size;
+        bytes += size;
+        while (bytes > maxBytes) dropOldest();
+    }
+
+    // the commands to undo, newest first. they're redone after this, unless something new is recorded
+    public synchronized List<Command> undo(int steps) {
+        List<Command> undone = new ArrayList<>();
+        while (steps-- > 0 && undoCount > 0) {
+            undone.add(commands[slot(--undoCount)]);
+            redoCount++;
+        }
+        return undone;
+    }
+
+    // the commands to redo, oldest first
+    public synchronized List<Command> redo(int steps) {
+        List<Command> redone = new ArrayList<>();
+        while (steps-- > 0 && redoCount > 0) {
+            redone.add(commands[slot(undoCount++)]);
+            redoCount--;
+        }
+        return redone;
+    }
+
+    public synchronized boolean canUndo() {
+        return undoCount > 0;
+    }
+
+    public synchronized boolean canRedo() {
+        return redoCount > 0;
+    }
+
+    public synchronized int getUndoCount() {
+        return undoCount;
+    }
+
+    public synchronized int getRedoCount() {
+        return redoCount;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        while (undoCount + redoCount > 0) dropOldest();
+        first = 0;
+    }
+
+    private void dropOldest() {
+        drop(0);
+        first = (first + 1) % commands.length;
+        if (undoCount > 0) undoCount--;
+        else redoCount--;
+    }
+
+    // only clears the slot, the counts are up to the caller
+    private void drop(int index) {
+        int slot = slot(index);
+        bytes -= sizes[slot];
+        commands[slot] = null;
+        sizes[slot] = 0;
+    }
+
+    private int slot(int index) {
+        return (first + index) % commands.length;
+    }
+}
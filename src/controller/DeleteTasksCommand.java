@@ -0,0 +1,70 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import model.Priority;
+import model.Task;
+import model.TaskModel;
+
+// tasks were deleted: undo adds them back with the same id, description, status, schedule and created time.
+// adding them back is a change too, their updated time is the undo's (it has to be later than the delete)
+
+class DeleteTasksCommand implements Command {
+    private final int[] ids;
+    private final String[] descriptions;
+    private final BitSet completed = new BitSet(); // by position in ids
+    private final byte[] priorities;
+    private final long[] dueDates, createdAts, updatedAts;
+
+    DeleteTasksCommand(List<Task> tasks) {
+        ids = new int[tasks.size()];
+        descriptions = new String[tasks.size()];
+        priorities = new byte[tasks.size()];
+        dueDates = new long[tasks.size()];
+        createdAts = new long[tasks.size()];
+        updatedAts = new long[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = tasks.get(i);
+            ids[i] = task.getId();
+            descriptions[i] = task.getDescription();
+            if (task.isCompleted()) completed.set(i);
+            priorities[i] = (byte) task.getPriority().ordinal();
+            dueDates[i] = task.getDueDate();
+            createdAts[i] = task.getCreatedAt();
+            updatedAts[i] = task.getUpdatedAt();
+        }
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        long now = model.currentTimeMillis();
+        for (int i = 0; i < ids.length; i++) {
+            Task task = new Task(ids[i], descriptions[i]);
+            task.setCompleted(completed.get(i));
+            task.setPriority(Priority.values()[priorities[i]]);
+            task.setDueDate(dueDates[i]);
+            task.setCreatedAt(createdAts[i]);
+            task.setUpdatedAt(Math.max(now, updatedAts[i] + 1));
+            tasks.add(task);
+        }
+        if (tasks.size() == 1) model.addTask(tasks.get(0));
+        else model.addTasks(tasks);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (int id : ids) tasks.add(new Task(id, ""));
+        if (tasks.size() == 1) model.deleteTask(tasks.get(0));
+        else model.deleteTasks(tasks);
+    }
+
+    @Override
+    public long getSize() {
+        long size = CommandHistory.OBJECT_SIZE + 37L * ids.length + ids.length / 8;
+        for (String description : descriptions) size += CommandHistory.sizeOf(description);
+        return size;
+    }
+}
@@ -0,0 +1,40 @@
+package controller;
+
+import model.Task;
+import model.TaskModel;
+
+// a task's description was changed, edits of the same task right after each other become one
+
+class EditTaskCommand implements Command {
+    private final int id;
+    private final String oldDescription;
+    private String newDescription;
+
+    EditTaskCommand(int id, String oldDescription, String newDescription) {
+        this.id = id;
+        this.oldDescription = oldDescription;
+        this.newDescription = newDescription;
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        model.editTask(new Task(id, ""), oldDescription);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        model.editTask(new Task(id, ""), newDescription);
+    }
+
+    @Override
+    public long getSize() {
+        return CommandHistory.OBJECT_SIZE + CommandHistory.sizeOf(oldDescription) + CommandHistory.sizeOf(newDescription);
+    }
+
+    @Override
+    public boolean absorb(Command next) {
+        if (!(next instanceof EditTaskCommand) || ((EditTaskCommand) next).id != id) return false;
+        newDescription = ((EditTaskCommand) next).newDescription;
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package controller;
+
+import model.Priority;
+import model.Task;
+import model.TaskModel;
+
+// a task's priority or due date was changed, changes of the same task right after each other become one
+
+class ScheduleTaskCommand implements Command {
+    private final int id;
+    private final Priority oldPriority;
+    private final long oldDueDate;
+    private Priority newPriority;
+    private long newDueDate;
+
+    ScheduleTaskCommand(int id, Priority oldPriority, long oldDueDate, Priority newPriority, long newDueDate) {
+        this.id = id;
+        this.oldPriority = oldPriority;
+        this.oldDueDate = oldDueDate;
+        this.newPriority = newPriority;
+        this.newDueDate = newDueDate;
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        model.scheduleTask(new Task(id, ""), oldPriority, oldDueDate);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        model.scheduleTask(new Task(id, ""), newPriority, newDueDate);
+    }
+
+    @Override
+    public long getSize() {
+        return CommandHistory.OBJECT_SIZE + 4 + 8 + 8 + 8 + 8;
+    }
+
+    @Override
+    public boolean absorb(Command next) {
+        if (!(next instanceof ScheduleTaskCommand) || ((ScheduleTaskCommand) next).id != id) return false;
+        newPriority = ((ScheduleTaskCommand) next).newPriority;
+        newDueDate = ((ScheduleTaskCommand) next).newDueDate;
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package controller;
+
+import model.Task;
+import model.TaskModel;
+
+// tasks were marked completed or pending, only the ones that actually changed are kept
+
+class SetCompletedCommand implements Command {
+    private final int[] ids;
+    private final boolean completed;
+
+    SetCompletedCommand(int[] ids, boolean completed) {
+        this.ids = ids;
+        this.completed = completed;
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        set(model, !completed);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        set(model, completed);
+    }
+
+    private void set(TaskModel model, boolean completed) {
+        if (ids.length == 1) {
+            model.setTaskCompleted(new Task(ids[0], ""), completed);
+            return;
+        }
+        model.batch(() -> {
+            for (int id : ids) model.setTaskCompleted(new Task(id, ""), completed);
+        });
+    }
+
+    @Override
+    public long getSize() {
+        return CommandHistory.OBJECT_SIZE + 4L * ids.length;
+    }
+}
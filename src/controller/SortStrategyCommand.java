@@ -0,0 +1,39 @@
+package controller;
+
+import model.TaskModel;
+import strategy.TaskSortStrategy;
+
+// the sort order was changed, the strategies are shared so only the references are kept
+
+class SortStrategyCommand implements Command {
+    private final TaskSortStrategy oldStrategy;
+    private TaskSortStrategy newStrategy;
+
+    SortStrategyCommand(TaskSortStrategy oldStrategy, TaskSortStrategy newStrategy) {
+        this.oldStrategy = oldStrategy;
+        this.newStrategy = newStrategy;
+    }
+
+    @Override
+    public void undo(TaskModel model) {
+        model.setSortStrategy(oldStrategy);
+    }
+
+    @Override
+    public void redo(TaskModel model) {
+        model.setSortStrategy(newStrategy);
+    }
+
+    @Override
+    public long getSize() {
+        return CommandHistory.OBJECT_SIZE;
+    }
+
+    // clicking through the sort options is one change from where it started
+    @Override
+    public boolean absorb(Command next) {
+        if (!(next instanceof SortStrategyCommand)) return false;
+        newStrategy = ((SortStrategyCommand) next).newStrategy;
+        return true;
+    }
+}
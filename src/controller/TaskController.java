@@ -1,40 +1,288 @@
 package controller;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import model.Priority;
 import model.Task;
 import model.TaskModel;
 import model.TaskFactory;
+import model.TaskQuery;
+import persistence.TaskExporter;
+import persistence.TaskFormat;
+import persistence.TaskImporter;
+import persistence.TransferListener;
 import strategy.TaskSortStrategy;
 
-// the controller is the middleman between the model and the view, the view tells the controller to change the model, 
+// the controller is the middleman between the model and the view, the view tells the controller to change the model,
 // but the controller itself doensn't directly interact with the view
+// every change made through it is recorded as a command, so it can be undone and redone
 
 public class TaskController {
     private TaskModel model;
     private TaskFactory taskFactory;
-    
+    private CommandHistory history;
+    // the commands of the batch() running on this thread, recorded as one when it's done
+    private final ThreadLocal<List<Command>> batchCommands = new ThreadLocal<>();
+
     public TaskController(TaskModel model) {
+        this(model, new TaskFactory());
+    }
+
+    // with the factory the stored tasks were loaded with, so ids continue where they left off
+    public TaskController(TaskModel model, TaskFactory taskFactory) {
+        this(model, taskFactory, new CommandHistory());
+    }
+
+    public TaskController(TaskModel model, TaskFactory taskFactory, CommandHistory history) {
         this.model = model;
-        this.taskFactory = new TaskFactory();
+        this.taskFactory = taskFactory;
+        this.history = history;
     }
-    
-    public void addTask(String description) {
+
+    // every change below reads what it needs for undo, makes the change and records it inside
+    // model.atomically(): nothing else changes the task in between (another window, an HTTP client), and the
+    // history gets the commands in the order the changes were made
+
+    public Task addTask(String description) {
         Task task = taskFactory.createTask(description);
-        model.addTask(task);
+        model.atomically(() -> {
+            model.addTask(task);
+            record(new AddTasksCommand(Collections.singletonList(task)));
+        });
+        return task;
     }
-    
+
+    // the old values are the stored task's, not the one that's passed in, it may be an older copy
     public void deleteTask(Task task) {
-        model.deleteTask(task);
+        model.atomically(() -> {
+            Task current = model.getTask(task.getId());
+            if (current == null) return;
+            model.deleteTask(current);
+            record(new DeleteTasksCommand(Collections.singletonList(current)));
+        });
     }
-    
+
     public void setTaskCompleted(Task task, boolean completed) {
-        model.setTaskCompleted(task, completed);
+        model.atomically(() -> {
+            Task current = model.getTask(task.getId());
+            if (current == null || current.isCompleted() == completed) return;
+            model.setTaskCompleted(current, completed);
+            record(new SetCompletedCommand(new int[] {current.getId()}, completed));
+        });
     }
-    
+
     public void editTask(Task task, String newDescription) {
-        model.editTask(task, newDescription);
+        model.atomically(() -> {
+            Task current = model.getTask(task.getId());
+            if (current == null || current.getDescription().equals(newDescription)) return;
+            model.editTask(current, newDescription);
+            record(new EditTaskCommand(current.getId(), current.getDescription(), newDescription));
+        });
+    }
+
+    // dueDate is epoch millis, Task.NO_DUE_DATE for none
+    public void scheduleTask(Task task, Priority priority, long dueDate) {
+        model.atomically(() -> {
+            Task current = model.getTask(task.getId());
+            if (current == null || (current.getPriority() == priority && current.getDueDate() == dueDate)) return;
+            model.scheduleTask(current, priority, dueDate);
+            record(new ScheduleTaskCommand(current.getId(), current.getPriority(), current.getDueDate(), priority, dueDate));
+        });
+    }
+
+    // optimistic versions of the changes above: they only go through if the task is still the version that's
+    // passed in (the one that was read and shown, see Task.getVersion()). false if it was changed or deleted
+    // since, by another thread, window or HTTP client, then nothing is changed. a change to the value it
+    // has already is true and isn't recorded. the old values for undo are the expected task's, it's the
+    // current one if the change goes through
+
+    public boolean tryDeleteTask(Task expected) {
+        boolean[] changed = new boolean[1];
+        model.atomically(() -> {
+            if (!model.compareAndDeleteTask(expected)) return;
+            record(new DeleteTasksCommand(Collections.singletonList(expected)));
+            changed[0] = true;
+        });
+        return changed[0];
+    }
+
+    public boolean trySetTaskCompleted(Task expected, boolean completed) {
+        boolean[] changed = new boolean[1];
+        model.atomically(() -> {
+            if (!isCurrent(expected)) return;
+            changed[0] = true;
+            if (expected.isCompleted() == completed) return;
+            model.setTaskCompleted(expected, completed);
+            record(new SetCompletedCommand(new int[] {expected.getId()}, completed));
+        });
+        return changed[0];
+    }
+
+    public boolean tryEditTask(Task expected, String newDescription) {
+        boolean[] changed = new boolean[1];
+        model.atomically(() -> {
+            if (!isCurrent(expected)) return;
+            changed[0] = true;
+            if (expected.getDescription().equals(newDescription)) return;
+            model.editTask(expected, newDescription);
+            record(new EditTaskCommand(expected.getId(), expected.getDescription(), newDescription));
+        });
+        return changed[0];
+    }
+
+    public boolean tryScheduleTask(Task expected, Priority priority, long dueDate) {
+        boolean[] changed = new boolean[1];
+        model.atomically(() -> {
+            if (!isCurrent(expected)) return;
+            changed[0] = true;
+            if (expected.getPriority() == priority && expected.getDueDate() == dueDate) return;
+            model.scheduleTask(expected, priority, dueDate);
+            record(new ScheduleTaskCommand(expected.getId(), expected.getPriority(), expected.getDueDate(), priority, dueDate));
+        });
+        return changed[0];
     }
-    
+
     public void setSortStrategy(TaskSortStrategy strategy) {
-        model.setSortStrategy(strategy);
+        model.atomically(() -> {
+            TaskSortStrategy oldStrategy = model.getSortStrategy();
+            if (oldStrategy == strategy) return;
+            model.setSortStrategy(strategy);
+            record(new SortStrategyCommand(oldStrategy, strategy));
+        });
+    }
+
+    // bulk operations, the view gets notified once for all of them
+
+    public List<Task> addTasks(Collection<String> descriptions) {
+        List<Task> tasks = taskFactory.createTasks(descriptions);
+        model.atomically(() -> {
+            model.addTasks(tasks);
+            record(new AddTasksCommand(tasks));
+        });
+        return tasks;
+    }
+
+    public void deleteTasks(Collection<Task> tasks) {
+        model.atomically(() -> {
+            List<Task> deleted = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                Task current = model.getTask(task.getId());
+                if (current != null) deleted.add(current);
+            }
+            model.deleteTasks(deleted);
+            if (!deleted.isEmpty()) record(new DeleteTasksCommand(deleted));
+        });
+    }
+
+    public void markAllCompleted() {
+        model.atomically(() -> {
+            List<Task> pending = model.query(TaskQuery.all().completed(false)).toList();
+            int[] ids = new int[pending.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = pending.get(i).getId();
+            model.markAllCompleted();
+            if (ids.length > 0) record(new SetCompletedCommand(ids, true));
+        });
+    }
+
+    // the changes are undone as one step, if they're made through this controller. the step is recorded
+    // before the batch lets go of the model
+    public void batch(Runnable changes) {
+        if (batchCommands.get() != null) {
+            model.batch(changes);
+            return;
+        }
+        model.batch(() -> {
+            List<Command> commands = new ArrayList<>();
+            batchCommands.set(commands);
+            try {
+                changes.run();
+            } finally {
+                batchCommands.remove();
+                if (commands.size() == 1) history.record(commands.get(0));
+                else if (!commands.isEmpty()) history.record(new CommandGroup(commands));
+            }
+        });
+    }
+
+    // import and export stream the file, see TaskImporter and TaskExporter. an import goes to the model
+    // in big batches and is too big for the undo history, the history starts over after it
+    // (its ids may belong to imported tasks now)
+
+    public long importTasks(Path file, TaskFormat format, boolean keepIds, TransferListener listener) throws IOException {
+        try {
+            return new TaskImporter(model, taskFactory).importFile(file, format, keepIds, listener);
+        } finally {
+            history.clear();
+        }
+    }
+
+    // the tasks in their current order
+    public long exportTasks(Path file, TaskFormat format, TransferListener listener) throws IOException {
+        return new TaskExporter().export(model.getTasks(), file, format, listener);
+    }
+
+    // undo and redo go through the model directly, so they aren't recorded again. they're taken from the
+    // history and applied inside model.atomically() too, a change recorded meanwhile can't get in between.
+    // several steps are applied as one batch, observers get a single notification for all of them
+
+    public boolean undo() {
+        return undo(1) > 0;
+    }
+
+    public int undo(int steps) {
+        int[] undone = new int[1];
+        model.atomically(() -> {
+            List<Command> commands = history.undo(steps);
+            if (commands.size() == 1) commands.get(0).undo(model);
+            else if (!commands.isEmpty()) model.batch(() -> {
+                for (Command command : commands) command.undo(model);
+            });
+            undone[0] = commands.size();
+        });
+        return undone[0];
+    }
+
+    public boolean redo() {
+        return redo(1) > 0;
+    }
+
+    public int redo(int steps) {
+        int[] redone = new int[1];
+        model.atomically(() -> {
+            List<Command> commands = history.redo(steps);
+            if (commands.size() == 1) commands.get(0).redo(model);
+            else if (!commands.isEmpty()) model.batch(() -> {
+                for (Command command : commands) command.redo(model);
+            });
+            redone[0] = commands.size();
+        });
+        return redone[0];
+    }
+
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    public CommandHistory getHistory() {
+        return history;
+    }
+
+    private boolean isCurrent(Task expected) {
+        Task current = model.getTask(expected.getId());
+        return current != null && current.getVersion() == expected.getVersion();
+    }
+
+    private void record(Command command) {
+        List<Command> commands = batchCommands.get();
+        if (commands != null) commands.add(command);
+        else history.record(command);
     }
 }
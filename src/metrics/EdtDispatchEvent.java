@@ -0,0 +1,18 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// an AWT event that kept the EDT busy for longer than a frame or so, the window couldn't repaint meanwhile
+
+@Name("taskmanager.EdtDispatch")
+@Label("Slow EDT Dispatch")
+@Category({"Task Manager", "View"})
+@Threshold("20 ms")
+public final class EdtDispatchEvent extends Event {
+    @Label("Event Type")
+    public String eventType;
+}
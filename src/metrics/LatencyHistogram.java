@@ -0,0 +1,94 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// latency histogram in the style of HdrHistogram: every power of two is split into 32 equal buckets,
+// so a value is off by at most ~3% and everything from 1ns to centuries fits in 1888 counters.
+// recording is lock-free (an atomic add on one bucket), a snapshot is read without stopping the writers,
+// so it may be a value or two behind while something is being recorded
+
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0; // nanoTime() is monotonic, but better safe
+        counts.incrementAndGet(indexOf(nanos));
+        total.add(nanos);
+        if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+    }
+
+    // start is a System.nanoTime() from before the work
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long maxNanos = max.get();
+        return new LatencySnapshot(count,
+            count == 0 ? 0 : total.sum() / 1e3 / count,
+            percentile(copy, count, 0.50, maxNanos) / 1e3,
+            percentile(copy, count, 0.90, maxNanos) / 1e3,
+            percentile(copy, count, 0.99, maxNanos) / 1e3,
+            percentile(copy, count, 0.999, maxNanos) / 1e3,
+            maxNanos / 1e3);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        max.set(0);
+    }
+
+    // the highest value of the bucket the percentile falls in, like HdrHistogram reports it
+    private static long percentile(long[] counts, long count, double p, long max) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, highestOf(i));
+        }
+        return max;
+    }
+
+    // values below 32 get a bucket each, above that the top 5 bits after the highest one pick the bucket
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowestOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    static long highestOf(int index) {
+        return index + 1 < BUCKETS ? lowestOf(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,134 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+
+// the latencies and counters of the whole app by name, e.g. "model.add" or "view.apply".
+// the code being measured looks its histogram up once and keeps it in a static field,
+// recording is then a nanoTime() and an atomic add.
+//
+// start() makes them visible: as the MBean taskmanager:type=Metrics (jconsole, VisualVM, ...)
+// and, with -Dtaskmanager.metrics.log=60, as a table on stdout every 60 seconds
+
+public final class Metrics {
+    public static final String OBJECT_NAME = "taskmanager:type=Metrics";
+
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static boolean registered;
+    private static ScheduledExecutorService logger;
+
+    private Metrics() {
+    }
+
+    // the flight recorder events are only created once JFR runs (-XX:StartFlightRecording or jcmd JFR.start).
+    // the first event class that's loaded starts up JFR's machinery, ~300ms the app shouldn't pay without a recording
+    public static boolean isFlightRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    public static LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    // sorted by name
+    public static Map<String, LatencySnapshot> latencies() {
+        Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        for (LatencyHistogram latency : latencies.values()) snapshots.put(latency.getName(), latency.snapshot());
+        return snapshots;
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Counter counter : counters.values()) values.put(counter.getName(), counter.get());
+        return values;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram latency : latencies.values()) latency.reset();
+        for (Counter counter : counters.values()) counter.reset();
+    }
+
+    // everything as a plain text table, latencies in microseconds
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-32s %10s %10s %10s %10s %10s %10s %10s%n",
+            "latency (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<String, LatencySnapshot> entry : latencies().entrySet()) {
+            LatencySnapshot s = entry.getValue();
+            if (s.getCount() == 0) continue;
+            out.append(String.format(Locale.ROOT, "%-32s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                entry.getKey(), s.getCount(), s.getMeanMicros(), s.getP50Micros(), s.getP90Micros(),
+                s.getP99Micros(), s.getP999Micros(), s.getMaxMicros()));
+        }
+        for (Map.Entry<String, Long> entry : counters().entrySet()) {
+            out.append(String.format(Locale.ROOT, "%-32s %10d%n", entry.getKey(), entry.getValue()));
+        }
+        return out.toString();
+    }
+
+    // the MBean, and the periodic dump if -Dtaskmanager.metrics.log is set (seconds). calling it again does nothing
+    public static synchronized void start() {
+        if (!registered) {
+            registered = true;
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                e.printStackTrace(); // the app works without it
+            }
+        }
+        long period = Long.getLong("taskmanager.metrics.log", 0);
+        if (period > 0) startLogging(period);
+    }
+
+    public static synchronized void startLogging(long periodSeconds) {
+        if (logger != null) return;
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> System.out.print(report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopLogging() {
+        if (logger == null) return;
+        logger.shutdownNow();
+        logger = null;
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public Map<String, LatencySnapshot> getLatencies() {
+            return latencies();
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package metrics;
+
+import java.util.Map;
+
+// what JMX shows of the metrics, registered by Metrics.start()
+
+public interface MetricsMXBean {
+    Map<String, LatencySnapshot> getLatencies();
+
+    Map<String, Long> getCounters();
+
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,37 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// how long the app takes to come up, counted from the start of the JVM (so its own startup, what a class
+// data sharing archive saves, is in it too). each phase is marked once and kept as the counter
+// startup.<phase>Millis: main (main() runs), firstPaint (the window shows), interactive (the first list is
+// loaded and can be worked with, headless: the server listens). -Dtaskmanager.startup.log=true prints them
+
+public final class StartupTimer {
+    private static final boolean LOG = Boolean.getBoolean("taskmanager.startup.log");
+    private static final Set<String> marked = ConcurrentHashMap.newKeySet();
+
+    private StartupTimer() {
+    }
+
+    // only the first mark of a phase counts, returns false for the others
+    public static boolean mark(String phase) {
+        return mark(phase, System.currentTimeMillis());
+    }
+
+    // a phase that was reached at timeMillis. the JVM's start time is only looked up with the first mark
+    // (management classes, ~30ms), main() takes its time early and marks it once the window is on its way
+    public static boolean mark(String phase, long timeMillis) {
+        if (!marked.add(phase)) return false;
+        long millis = timeMillis - JvmStart.MILLIS;
+        Metrics.counter("startup." + phase + "Millis").add(millis);
+        if (LOG) System.out.println("startup " + phase + " after " + millis + " ms");
+        return true;
+    }
+
+    private static final class JvmStart {
+        static final long MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// one change to the model in a flight recording (java -XX:StartFlightRecording ...), next to the GC and
+// safepoint events of the same time. changes inside a batch are covered by the batch's event
+
+@Name("taskmanager.TaskMutation")
+@Label("Task Mutation")
+@Category({"Task Manager", "Model"})
+@Description("A change to the task model, from taking the lock until the change is done")
+public final class TaskMutationEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Task Id")
+    @Description("-1 for changes to more than one task")
+    public int taskId;
+
+    @Label("Tasks")
+    @Description("How many tasks the model has afterwards")
+    public int tasks;
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// one refresh of the task list, either worked out on the refresh thread or applied on the EDT
+
+@Name("taskmanager.ViewRefresh")
+@Label("View Refresh")
+@Category({"Task Manager", "View"})
+public final class ViewRefreshEvent extends Event {
+    @Label("Phase")
+    @Description("compute on the refresh thread, apply on the EDT")
+    public String phase;
+
+    @Label("Events")
+    @Description("Model events the refresh was worked out from")
+    public int events;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Changes")
+    @Description("Row changes handed to the list, -1 if it's reloaded")
+    public int changes;
+
+    @Label("Filtered")
+    public boolean filtered;
+}
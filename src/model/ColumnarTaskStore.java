@@ -0,0 +1,352 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+// a store for very large task lists that keeps no Task objects: the columns are indexed by id
+// (ids from the factory are dense), which ids exist and which are completed are two bitsets, and the
+// descriptions are UTF-8 bytes in a memory-mapped file, found through an offset, a length and the
+// capacity of the slot per id. that's ~50 bytes per task on the heap (most of it the timestamps and the
+// version), the descriptions live in the page cache instead.
+// slots come in size classes (16 byte steps up to 512, then powers of two). the slot of a deleted task, or
+// of a description that outgrew it or shrank to half of it, goes on its class's free list and the next
+// description of that class takes it, so the arena only grows with what's stored, not with every edit.
+// get() decodes a fresh Task every time, so a Task that was handed out never changes with the store.
+// get() doesn't lock: it reads the columns optimistically (StampedLock) and only reads them again under the
+// read lock if a change came in between, the changes take the write lock. readers never map a chunk, a
+// change that needs a new one maps it before it lets go of the write lock
+
+public class ColumnarTaskStore implements TaskStore, Closeable {
+    private static final int CHUNK_SIZE = 64 << 20; // a description never spans two chunks
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final int SMALL_CLASSES = 32, SMALL_STEP = 16; // 16, 32, .. 512 bytes
+    private static final int SIZE_CLASSES = sizeClass(CHUNK_SIZE) + 1;
+
+    private final Path arenaFile;
+    private final FileChannel arena;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0]; // a new array when one is mapped
+    private long arenaEnd; // where the next new slot goes
+    private final long[][] free = new long[SIZE_CLASSES][]; // offsets of free slots by size class
+    private final int[] freeCount = new int[SIZE_CLASSES];
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder arenaReaders = new LongAdder(); // reading a chunk right now, close() waits for them
+    private volatile boolean closed;
+
+    private final BitSet live = new BitSet();
+    private final BitSet completed = new BitSet();
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int[] capacities = new int[1024]; // 0: no slot
+    private byte[] priorities = new byte[1024]; // Priority ordinals
+    private long[] dueDates = new long[1024];
+    private long[] createdAts = new long[1024];
+    private long[] updatedAts = new long[1024];
+    private long[] versions = new long[1024];
+    private volatile int size;
+
+    // descriptions go to a temp file that's deleted again on close()
+    public ColumnarTaskStore() throws IOException {
+        this(Files.createTempFile("tasks", ".arena"));
+        arenaFile.toFile().deleteOnExit();
+    }
+
+    public ColumnarTaskStore(Path arenaFile) throws IOException {
+        this.arenaFile = arenaFile;
+        this.arena = FileChannel.open(arenaFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public Task get(int id) {
+        if (id < 0) return null;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Task task = read(id);
+                if (lock.validate(stamp)) return task;
+            } catch (RuntimeException e) {
+                // read in the middle of a change, the columns didn't fit together. read again below
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void put(Task task) {
+        int id = task.getId();
+        if (id < 0) throw new IllegalArgumentException("Task ids can't be negative: " + id);
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(id);
+            if (!live.get(id)) {
+                live.set(id);
+                size++;
+            }
+            completed.set(id, task.isCompleted());
+            priorities[id] = (byte) task.getPriority().ordinal();
+            dueDates[id] = task.getDueDate();
+            createdAts[id] = task.getCreatedAt();
+            updatedAts[id] = task.getUpdatedAt();
+            versions[id] = task.getVersion();
+            writeDescription(id, task.getDescription());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Task remove(int id) {
+        if (id < 0) return null;
+        long stamp = lock.writeLock();
+        try {
+            Task task = read(id);
+            if (task != null) {
+                live.clear(id);
+                completed.clear(id);
+                size--;
+                release(offsets[id], capacities[id]);
+                capacities[id] = 0;
+                lengths[id] = 0;
+            }
+            return task;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Task setCompleted(int id, boolean isCompleted, long version, long updatedAt) {
+        if (id < 0) return null;
+        long stamp = lock.writeLock();
+        try {
+            if (!live.get(id)) return null;
+            completed.set(id, isCompleted);
+            updatedAts[id] = updatedAt;
+            versions[id] = version;
+            return read(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Task setDescription(int id, String description, long version, long updatedAt) {
+        if (id < 0) return null;
+        long stamp = lock.writeLock();
+        try {
+            if (!live.get(id)) return null;
+            writeDescription(id, description);
+            updatedAts[id] = updatedAt;
+            versions[id] = version;
+            return read(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Task setSchedule(int id, Priority priority, long dueDate, long version, long updatedAt) {
+        if (id < 0) return null;
+        long stamp = lock.writeLock();
+        try {
+            if (!live.get(id)) return null;
+            priorities[id] = (byte) priority.ordinal();
+            dueDates[id] = dueDate;
+            updatedAts[id] = updatedAt;
+            versions[id] = version;
+            return read(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // the ids are taken first, the action may change the store (e.g. complete every task)
+    @Override
+    public void forEach(Consumer<Task> action) {
+        BitSet ids;
+        long stamp = lock.readLock();
+        try {
+            ids = (BitSet) live.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Task task = get(id);
+            if (task != null) action.accept(task);
+        }
+    }
+
+    // the mappings are dropped before the file is deleted (Windows doesn't delete a mapped file), once no
+    // get() is reading one anymore. the store can't be used anymore after this
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            if (closed) return;
+            closed = true;
+            while (arenaReaders.sum() > 0) Thread.onSpinWait(); // a get() that started before closed was set
+            for (MappedByteBuffer chunk : chunks) unmap(chunk);
+            chunks = new MappedByteBuffer[0];
+            arena.close();
+            Files.deleteIfExists(arenaFile);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // bytes the arena is using, free slots included
+    public long getArenaBytes() {
+        long stamp = lock.readLock();
+        try {
+            return arenaEnd;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // the task as the columns have it. under the write lock, or optimistically: then anything can come out
+    // of it (or an exception), it only counts if the stamp is still valid afterwards
+    private Task read(int id) {
+        if (!live.get(id)) return null;
+        Task task = new Task(id, readDescription(id));
+        task.setCompleted(completed.get(id));
+        task.setPriority(PRIORITIES[priorities[id]]);
+        task.setDueDate(dueDates[id]);
+        task.setCreatedAt(createdAts[id]);
+        task.setUpdatedAt(updatedAts[id]);
+        task.setVersion(versions[id]);
+        return task;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < offsets.length) return;
+        int capacity = Math.max(id + 1, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        capacities = Arrays.copyOf(capacities, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        dueDates = Arrays.copyOf(dueDates, capacity);
+        createdAts = Arrays.copyOf(createdAts, capacity);
+        updatedAts = Arrays.copyOf(updatedAts, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    // a description is written over the old one if it fits its slot (and doesn't leave most of it empty),
+    // otherwise it moves to a slot of its size class
+    private void writeDescription(int id, String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > CHUNK_SIZE) throw new IllegalArgumentException("Description too long: " + bytes.length + " bytes");
+
+        int sizeClass = sizeClass(bytes.length);
+        if (bytes.length > capacities[id] || classCapacity(sizeClass) <= capacities[id] / 2) {
+            release(offsets[id], capacities[id]);
+            offsets[id] = allocate(sizeClass);
+            capacities[id] = classCapacity(sizeClass);
+        }
+        if (bytes.length > 0) chunk(offsets[id]).put((int) (offsets[id] % CHUNK_SIZE), bytes);
+        lengths[id] = bytes.length;
+    }
+
+    private String readDescription(int id) {
+        int length = lengths[id];
+        if (length == 0) return "";
+        long offset = offsets[id];
+        byte[] bytes = new byte[length];
+        arenaReaders.increment();
+        try {
+            if (closed) throw new IllegalStateException("The task store is closed");
+            chunks[(int) (offset / CHUNK_SIZE)].get((int) (offset % CHUNK_SIZE), bytes);
+        } finally {
+            arenaReaders.decrement();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // a free slot of the class, or a new one at the end of the arena
+    private long allocate(int sizeClass) {
+        int capacity = classCapacity(sizeClass);
+        if (capacity == 0) return 0;
+        if (freeCount[sizeClass] > 0) return free[sizeClass][--freeCount[sizeClass]];
+        if (arenaEnd % CHUNK_SIZE + capacity > CHUNK_SIZE) {
+            arenaEnd = (arenaEnd / CHUNK_SIZE + 1) * CHUNK_SIZE; // start the next chunk
+        }
+        long offset = arenaEnd;
+        arenaEnd += capacity;
+        return offset;
+    }
+
+    private void release(long offset, int capacity) {
+        if (capacity == 0) return;
+        int sizeClass = sizeClass(capacity);
+        long[] slots = free[sizeClass];
+        if (slots == null) slots = free[sizeClass] = new long[16];
+        else if (freeCount[sizeClass] == slots.length) slots = free[sizeClass] = Arrays.copyOf(slots, slots.length * 2);
+        slots[freeCount[sizeClass]++] = offset;
+    }
+
+    // 0 for an empty description, 1..32 for 16..512 bytes, then one class per power of two
+    private static int sizeClass(int length) {
+        if (length <= SMALL_CLASSES * SMALL_STEP) return (length + SMALL_STEP - 1) / SMALL_STEP;
+        return SMALL_CLASSES + (32 - Integer.numberOfLeadingZeros(length - 1)) - 9;
+    }
+
+    private static int classCapacity(int sizeClass) {
+        if (sizeClass <= SMALL_CLASSES) return sizeClass * SMALL_STEP;
+        return 1 << (sizeClass - SMALL_CLASSES + 9);
+    }
+
+    // for writing, maps the chunk if it's new
+    private MappedByteBuffer chunk(long offset) {
+        if (closed) throw new IllegalStateException("The task store is closed");
+        int index = (int) (offset / CHUNK_SIZE);
+        MappedByteBuffer[] mapped = chunks;
+        if (index >= mapped.length) {
+            mapped = Arrays.copyOf(mapped, index + 1);
+            try {
+                for (int i = chunks.length; i <= index; i++) {
+                    mapped[i] = arena.map(FileChannel.MapMode.READ_WRITE, (long) i * CHUNK_SIZE, CHUNK_SIZE);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't map the description arena " + arenaFile, e);
+            }
+            chunks = mapped;
+        }
+        return mapped[index];
+    }
+
+    // a mapping normally stays until its buffer is garbage collected. Unsafe.invokeCleaner() (jdk.unsupported)
+    // unmaps it right away, where that isn't there it's left to the collector
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not unmapped, the file is deleted once the buffer is gone (or on exit)
+        }
+    }
+}
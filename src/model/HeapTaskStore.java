@@ -0,0 +1,127 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// the default store, plain Task objects in an array indexed by id. ids from the factory are dense,
+// so a lookup is one array read: no boxed Integer keys and no map entry per task.
+// iterating goes through the array, which is id order for free.
+// an id far past the end of the array (e.g. imported from somewhere else) goes to a small overflow map
+// instead of growing the array to that size, and moves into the array once the array reaches it.
+// only one thread changes the store at a time (the model's orderLock), get() works from any thread
+
+public class HeapTaskStore implements TaskStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile AtomicReferenceArray<Task> tasks = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private final Map<Integer, Task> overflow = new ConcurrentHashMap<>();
+    private volatile int size;
+
+    @Override
+    public Task get(int id) {
+        AtomicReferenceArray<Task> table = tasks;
+        if (id >= 0 && id < table.length()) return table.get(id);
+        return overflow.isEmpty() ? null : overflow.get(id);
+    }
+
+    @Override
+    public void put(Task task) {
+        int id = task.getId();
+        if (id >= 0 && id >= tasks.length() && id < tasks.length() * 2) grow(id);
+
+        AtomicReferenceArray<Task> table = tasks;
+        Task previous = id >= 0 && id < table.length() ? table.getAndSet(id, task) : overflow.put(id, task);
+        if (previous == null) size++;
+    }
+
+    @Override
+    public Task remove(int id) {
+        AtomicReferenceArray<Task> table = tasks;
+        Task removed = id >= 0 && id < table.length() ? table.getAndSet(id, null)
+            : overflow.isEmpty() ? null : overflow.remove(id);
+        if (removed != null) size--;
+        return removed;
+    }
+
+    // copy on write: the stored task is replaced by a changed copy, whoever read the old one keeps it as it was
+
+    @Override
+    public Task setCompleted(int id, boolean completed, long version, long updatedAt) {
+        Task task = get(id);
+        if (task == null) return null;
+        Task changed = task.copy();
+        changed.setCompleted(completed);
+        return replace(changed, version, updatedAt);
+    }
+
+    @Override
+    public Task setDescription(int id, String description, long version, long updatedAt) {
+        Task task = get(id);
+        if (task == null) return null;
+        Task changed = task.copy();
+        changed.setDescription(description);
+        return replace(changed, version, updatedAt);
+    }
+
+    @Override
+    public Task setSchedule(int id, Priority priority, long dueDate, long version, long updatedAt) {
+        Task task = get(id);
+        if (task == null) return null;
+        Task changed = task.copy();
+        changed.setPriority(priority);
+        changed.setDueDate(dueDate);
+        return replace(changed, version, updatedAt);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Task> action) {
+        AtomicReferenceArray<Task> table = tasks;
+        for (int id = 0; id < table.length(); id++) {
+            Task task = table.get(id);
+            if (task != null) action.accept(task);
+        }
+        if (!overflow.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(overflow.keySet());
+            ids.sort(null);
+            for (Integer id : ids) {
+                Task task = overflow.get(id);
+                if (task != null) action.accept(task);
+            }
+        }
+    }
+
+    private Task replace(Task changed, long version, long updatedAt) {
+        changed.setVersion(version);
+        changed.setUpdatedAt(updatedAt);
+        put(changed);
+        return changed;
+    }
+
+    // readers that still hold the old array only miss tasks added after this, like any other reader
+    private void grow(int id) {
+        AtomicReferenceArray<Task> table = tasks;
+        int capacity = table.length();
+        while (capacity <= id) capacity *= 2;
+        AtomicReferenceArray<Task> grown = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < table.length(); i++) {
+            grown.set(i, table.get(i));
+        }
+        // overflow ids the array now covers move in
+        overflow.entrySet().removeIf(entry -> {
+            int overflowId = entry.getKey();
+            if (overflowId < 0 || overflowId >= grown.length()) return false;
+            grown.set(overflowId, entry.getValue());
+            return true;
+        });
+        tasks = grown;
+    }
+}
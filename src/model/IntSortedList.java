@@ -0,0 +1,57 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// a sorted set of ints in a plain array, for the search index's posting lists.
+// ids only ever grow, so adding is almost always an append
+
+class IntSortedList {
+    private int[] values = new int[1];
+    private int size;
+
+    void add(int value) {
+        if (size > 0 && values[size - 1] >= value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) return;
+            insertAt(-index - 1, value);
+            return;
+        }
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    void remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) return;
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void addTo(BitSet set) {
+        for (int i = 0; i < size; i++) set.set(values[i]);
+    }
+
+    private void insertAt(int index, int value) {
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+}
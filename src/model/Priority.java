@@ -0,0 +1,22 @@
+package model;
+
+import java.util.Locale;
+
+// how urgent a task is, PriorityDueSortStrategy puts the higher ones first
+
+public enum Priority {
+    LOW, NORMAL, HIGH, URGENT;
+
+    // "Low", "Normal", ... for the view
+    public String getLabel() {
+        return name().charAt(0) + name().substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    // case-insensitive, for the API and imports
+    public static Priority parse(String text) {
+        for (Priority priority : values()) {
+            if (priority.name().equalsIgnoreCase(text.trim())) return priority;
+        }
+        throw new IllegalArgumentException("Not a priority: " + text + " (low, normal, high or urgent)");
+    }
+}
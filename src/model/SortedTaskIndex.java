@@ -0,0 +1,86 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import strategy.TaskSortStrategy;
+
+// keeps the tasks sorted by one comparator, changes are found with a binary search (O(log n)).
+// the order is a TaskSnapshot of ids, so a change only copies the path to one leaf instead of shifting
+// the array, and every version of the order can be handed out as it is. the index holds no tasks, the
+// comparisons read them from the store (see TaskHistory), a columnar store isn't kept on the heap twice.
+// a task is removed with the Task that was inserted (its old sort key) and a changed task inserted again.
+// tasks are matched by id, a store may hand out a different Task object for the same task
+
+class SortedTaskIndex {
+    private final Comparator<Task> comparator;
+    private TaskSnapshot tasks;
+
+    // the first sort is the strategy's, on every core for a big list. the tasks are only read for it
+    SortedTaskIndex(TaskSortStrategy strategy, TaskStore store, TaskHistory history, long version) {
+        this.comparator = strategy.getComparator();
+        List<Task> stored = new ArrayList<>(store.size());
+        store.forEach(stored::add);
+        // the stores hand out tasks in id order, so for the id order the sort is one pass over a finished run
+        Task[] sorted = stored.toArray(new Task[0]);
+        strategy.sort(sorted);
+        int[] ids = new int[sorted.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = sorted[i].getId();
+        this.tasks = TaskSnapshot.of(ids, history, version);
+    }
+
+    // new tasks get the highest id so far, in id order they're appended to the last leaf
+    int insert(Task task, long version) {
+        int index = search(task);
+        if (index < 0) index = -index - 1;
+        tasks = tasks.insert(index, task.getId(), version);
+        return index;
+    }
+
+    int remove(Task task, long version) {
+        int index = indexOf(task);
+        if (index >= 0) tasks = tasks.remove(index, version);
+        return index;
+    }
+
+    int indexOf(Task task) {
+        int index = search(task);
+        if (index < 0) return scan(task); // key changed behind our back, fall back to a scan
+        if (tasks.idAt(index) == task.getId()) return index;
+
+        // comparators that aren't total can have equal neighbours, look left and right
+        for (int i = index - 1; i >= 0 && comparator.compare(tasks.at(i), task) == 0; i--) {
+            if (tasks.idAt(i) == task.getId()) return i;
+        }
+        for (int i = index + 1; i < tasks.size() && comparator.compare(tasks.at(i), task) == 0; i++) {
+            if (tasks.idAt(i) == task.getId()) return i;
+        }
+        return scan(task);
+    }
+
+    // the current order, O(1): the index only ever replaces its snapshot
+    TaskSnapshot snapshot() {
+        return tasks;
+    }
+
+    // like Collections.binarySearch, without get() remembering every leaf it jumps to
+    private int search(Task task) {
+        int low = 0, high = tasks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = comparator.compare(tasks.at(middle), task);
+            if (compared < 0) low = middle + 1;
+            else if (compared > 0) high = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    // ids only, no task is read
+    private int scan(Task task) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.idOf(i) == task.getId()) return i;
+        }
+        return -1;
+    }
+}
@@ -1,9 +1,22 @@
 package model;
 
+// times are epoch milliseconds. tasks that were stored before they had timestamps have 0 for them.
+// once a task is in a model it isn't changed anymore, a change stores a changed copy with a new version
+// (see TaskModel). so a task that was read from the model stays as it was, and its version tells if it's
+// still the current one
+
 public class Task {
+    public static final long NO_DUE_DATE = Long.MAX_VALUE; // later than any real date, so it sorts last
+
     private int id;
     private String description;
     private boolean completed;
+    private String descriptionKey; // case-folded description for sorting, null until first needed
+    private Priority priority = Priority.NORMAL;
+    private long dueDate = NO_DUE_DATE;
+    private long createdAt;
+    private long updatedAt;
+    private long version; // the model's version when this task was stored, 0 until then
 
     public Task(int id, String description) {
         this.id = id;
@@ -25,13 +38,94 @@ public class Task {
         return completed;
     }
 
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public long getDueDate() {
+        return dueDate;
+    }
+
+    public boolean hasDueDate() {
+        return dueDate != NO_DUE_DATE;
+    }
+
+    // still pending and past its due date
+    public boolean isOverdue(long now) {
+        return !completed && dueDate < now;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // compares with compareTo() in the same order String.CASE_INSENSITIVE_ORDER gives the description
+    public String getDescriptionKey() {
+        String key = descriptionKey;
+        if (key == null) {
+            key = foldCase(description);
+            descriptionKey = key;
+        }
+        return key;
+    }
+
     //setters
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionKey = null;
     }
 
     public void setCompleted(boolean completed) {
         this.completed = completed;
     }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    public void setDueDate(long dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    // a separate Task with the same values, the one a change is made on
+    public Task copy() {
+        Task copy = new Task(id, description);
+        copy.completed = completed;
+        copy.priority = priority;
+        copy.dueDate = dueDate;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.version = version;
+        return copy;
+    }
+
+    // same folding as CASE_INSENSITIVE_ORDER does per character
+    private static String foldCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
 }
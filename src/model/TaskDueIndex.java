@@ -0,0 +1,84 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// the pending tasks that have a due date, ordered by it (ties by id). finding where a time falls
+// is O(log n), so "what's due next" or "what's overdue" only walks the tasks that are returned.
+// completed tasks and tasks without a due date aren't in here. guarded by the model's orderLock
+
+final class TaskDueIndex {
+    private final NavigableSet<Key> keys = new TreeSet<>();
+
+    // both look at the due date and state the task has right now, so remove before a change, add after it
+    void add(Task task) {
+        if (!task.isCompleted() && task.hasDueDate()) keys.add(new Key(task.getDueDate(), task.getId()));
+    }
+
+    void remove(Task task) {
+        if (task.hasDueDate()) keys.remove(new Key(task.getDueDate(), task.getId()));
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    // ids of the tasks due at or after the time, soonest first
+    List<Integer> from(long time, int limit) {
+        return ids(keys.tailSet(new Key(time, Integer.MIN_VALUE), true), limit);
+    }
+
+    // ids of the tasks due before the time, the longest overdue first
+    List<Integer> before(long time, int limit) {
+        return ids(keys.headSet(new Key(time, Integer.MIN_VALUE), false), limit);
+    }
+
+    // ids of the tasks due in (after, until], for the reminders
+    List<Integer> between(long after, long until) {
+        if (until <= after) return new ArrayList<>();
+        return ids(keys.subSet(new Key(after, Integer.MAX_VALUE), false, new Key(until, Integer.MAX_VALUE), true), Integer.MAX_VALUE);
+    }
+
+    // the first due date after the time, NO_DUE_DATE if there's none
+    long firstAfter(long time) {
+        Key next = keys.higher(new Key(time, Integer.MAX_VALUE));
+        return next == null ? Task.NO_DUE_DATE : next.due;
+    }
+
+    private static List<Integer> ids(NavigableSet<Key> range, int limit) {
+        List<Integer> ids = new ArrayList<>(Math.min(limit, 64));
+        for (Key key : range) {
+            if (ids.size() >= limit) break;
+            ids.add(key.id);
+        }
+        return ids;
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final long due;
+        final int id;
+
+        Key(long due, int id) {
+            this.due = due;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).due == due && ((Key) other).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(due) * 31 + id;
+        }
+    }
+}
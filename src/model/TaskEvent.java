@@ -0,0 +1,113 @@
+package model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// describes a single change in the model, so observers can patch what changed instead of re-reading everything
+// positions are indexes in the sorted task list (before and after the change), -1 when they don't apply
+// a sort change or a batch (TASKS_CHANGED) carries the whole list in its new order instead,
+// a batch also lists the single changes it was made of.
+// a REMINDER is sent when a pending task's due date has come, it doesn't change anything.
+// a single change also carries the model's tasks right after it (getSnapshot()), that costs nothing
+// since the model's lists are persistent, see TaskSnapshot
+
+public class TaskEvent {
+    public enum Type { TASK_ADDED, TASK_REMOVED, TASK_UPDATED, SORT_CHANGED, TASKS_CHANGED, REMINDER }
+
+    public enum Field { DESCRIPTION, COMPLETED, PRIORITY, DUE_DATE }
+
+    private final Type type;
+    private final Task task;
+    private final Set<Field> changedFields;
+    private final int oldIndex;
+    private final int newIndex;
+    private final List<Task> tasks;
+    private final List<TaskEvent> changes;
+    private TaskSnapshot snapshot; // set by the model before the event is queued
+
+    private TaskEvent(Type type, Task task, Set<Field> changedFields, int oldIndex, int newIndex, List<Task> tasks) {
+        this(type, task, changedFields, oldIndex, newIndex, tasks, Collections.emptyList());
+    }
+
+    private TaskEvent(Type type, Task task, Set<Field> changedFields, int oldIndex, int newIndex, List<Task> tasks,
+                      List<TaskEvent> changes) {
+        this.type = type;
+        this.task = task;
+        this.changedFields = changedFields;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+        this.tasks = tasks;
+        this.changes = changes;
+    }
+
+    public static TaskEvent taskAdded(Task task, int newIndex) {
+        return new TaskEvent(Type.TASK_ADDED, task, Collections.emptySet(), -1, newIndex, null);
+    }
+
+    public static TaskEvent taskRemoved(Task task, int oldIndex) {
+        return new TaskEvent(Type.TASK_REMOVED, task, Collections.emptySet(), oldIndex, -1, null);
+    }
+
+    public static TaskEvent taskUpdated(Task task, Field changedField, int oldIndex, int newIndex) {
+        return new TaskEvent(Type.TASK_UPDATED, task, Collections.unmodifiableSet(EnumSet.of(changedField)), oldIndex, newIndex, null);
+    }
+
+    public static TaskEvent taskUpdated(Task task, Set<Field> changedFields, int oldIndex, int newIndex) {
+        return new TaskEvent(Type.TASK_UPDATED, task, Collections.unmodifiableSet(EnumSet.copyOf(changedFields)), oldIndex, newIndex, null);
+    }
+
+    // the task stays where it is, index is its position
+    public static TaskEvent reminder(Task task, int index) {
+        return new TaskEvent(Type.REMINDER, task, Collections.emptySet(), index, index, null);
+    }
+
+    public static TaskEvent sortChanged(List<Task> tasks) {
+        return new TaskEvent(Type.SORT_CHANGED, null, Collections.emptySet(), -1, -1, tasks);
+    }
+
+    public static TaskEvent tasksChanged(List<TaskEvent> changes, List<Task> tasks) {
+        return new TaskEvent(Type.TASKS_CHANGED, null, Collections.emptySet(), -1, -1, tasks,
+            Collections.unmodifiableList(changes));
+    }
+
+    //getters
+
+    public Type getType() {
+        return type;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public Set<Field> getChangedFields() {
+        return changedFields;
+    }
+
+    public int getOldIndex() {
+        return oldIndex;
+    }
+
+    public int getNewIndex() {
+        return newIndex;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<TaskEvent> getChanges() {
+        return changes;
+    }
+
+    // the sorted tasks as they were right after this change, null for changes that were part of a batch
+    public TaskSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    void setSnapshot(TaskSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+}
@@ -1,9 +1,82 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ids are handed out atomically, so tasks can be created from any thread without duplicates.
+// new tasks are stamped with the time they were created.
+// instances of the app that replicate a list (see persistence.ChangeFeed) each get an id space of their own:
+// node n of N only hands out the ids that are n modulo N, so two of them adding a task at the same time
+// can't both give it the same id. a single instance is node 0 of 1, every id
+
 public class TaskFactory {
-    private int idCounter = 1;
+    // how far past the next id a task from somewhere else (an import that keeps its ids, another instance)
+    // can be. the stores and the model's id sets are indexed by id, and once the counter moves past an id
+    // every new task is out there too: one id near Integer.MAX_VALUE would make them that big
+    public static final int MAX_ID_AHEAD = 1 << 24;
+
+    private final AtomicInteger idCounter = new AtomicInteger(1); // the next id, always in this node's space
+    private volatile int node = 0, nodes = 1;
 
     public Task createTask(String description) {
-        return new Task(idCounter++, description);
+        return stamp(new Task(idCounter.getAndAdd(nodes), description), System.currentTimeMillis());
+    }
+
+    // reserves one block of ids for all of them, instead of going to the counter for every task
+    public List<Task> createTasks(Collection<String> descriptions) {
+        int step = nodes;
+        int id = idCounter.getAndAdd(descriptions.size() * step);
+        long now = System.currentTimeMillis();
+        List<Task> tasks = new ArrayList<>(descriptions.size());
+        for (String description : descriptions) {
+            tasks.add(stamp(new Task(id, description), now));
+            id += step;
+        }
+        return tasks;
+    }
+
+    private static Task stamp(Task task, long now) {
+        task.setCreatedAt(now);
+        task.setUpdatedAt(now);
+        return task;
+    }
+
+    // before any tasks are created on other threads, the ids handed out from then on are node modulo nodes
+    public synchronized void setIdSpace(int node, int nodes) {
+        if (nodes < 1 || node < 0 || node >= nodes) {
+            throw new IllegalArgumentException("Not a node of " + nodes + ": " + node);
+        }
+        this.node = node;
+        this.nodes = nodes;
+        idCounter.updateAndGet(this::align);
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public int getNextId() {
+        return idCounter.get();
+    }
+
+    // if a task from somewhere else can keep this id
+    public boolean isInRange(int id) {
+        return id >= 0 && (long) id - idCounter.get() < MAX_ID_AHEAD;
+    }
+
+    // used when tasks are loaded back, so new tasks never reuse an id that was handed out before
+    public void advanceTo(int nextId) {
+        idCounter.accumulateAndGet(align(nextId), Math::max);
+    }
+
+    // the first id from id on that's in this node's space
+    private int align(int id) {
+        return id + Math.floorMod(node - id, nodes);
     }
 }
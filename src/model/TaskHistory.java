@@ -0,0 +1,96 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// where a TaskSnapshot reads its tasks from. a snapshot only holds ids, its tasks are read from the store
+// when they're asked for, so a store that keeps no Task objects (ColumnarTaskStore) isn't held twice.
+// a task that was changed or deleted after the snapshot's version isn't in the store as it was anymore:
+// before every change the model records the task as it was (the Task it read for the change anyway), at
+// the end of a list that only grows there. a snapshot holds the entry that was last when it was made and
+// finds its task in the entries after it. nothing holds the start of the list, the entries before the
+// oldest snapshot that's still around are garbage.
+// recording is guarded by the model's orderLock, reading works from any thread
+
+final class TaskHistory {
+    // past this many entries a lookup walks, the snapshot gets a map of the tasks before the changes
+    private static final int WALK_LIMIT = 64;
+
+    private final TaskStore store;
+    private volatile Entry last = new Entry(null);
+
+    TaskHistory(TaskStore store) {
+        this.store = store;
+    }
+
+    // before the task is changed or removed in the store
+    void record(Task before) {
+        Entry entry = new Entry(before);
+        last.next = entry;
+        last = entry;
+    }
+
+    // what a snapshot made now holds on to
+    Entry last() {
+        return last;
+    }
+
+    // the task as it was at the version, since is the last entry at that version
+    Task read(int id, long version, Entry since) {
+        // the entry is recorded before the store changes, a task that's newer than the version is found after since
+        Task task = store.get(id);
+        if (task != null && task.getVersion() <= version) return task;
+
+        Entry from = since;
+        Earlier earlier = since.earlier;
+        if (earlier != null) {
+            Task before = earlier.tasks.get(id);
+            if (before != null) return before;
+            from = earlier.end;
+        }
+        int walked = 0;
+        for (Entry entry = from.next; entry != null; entry = entry.next) {
+            if (entry.task.getId() == id) {
+                if (walked > WALK_LIMIT) remember(since);
+                return entry.task;
+            }
+            walked++;
+        }
+        if (task != null) return task; // stored outside of the model at a version it never had
+        throw new IllegalStateException("Task " + id + " isn't in the store or its history");
+    }
+
+    // the first task of every id after since, so a snapshot that's long behind the model doesn't walk every
+    // change for each task that changed. racy on purpose, like TaskSnapshot's finger: it's immutable, the
+    // worst case is a second thread building it too
+    private static void remember(Entry since) {
+        Earlier earlier = since.earlier;
+        Map<Integer, Task> tasks = earlier == null ? new HashMap<>() : new HashMap<>(earlier.tasks);
+        Entry end = earlier == null ? since : earlier.end;
+        for (Entry entry = end.next; entry != null; entry = entry.next) {
+            tasks.putIfAbsent(entry.task.getId(), entry.task);
+            end = entry;
+        }
+        since.earlier = new Earlier(tasks, end);
+    }
+
+    static final class Entry {
+        final Task task; // as it was before the change, null for the first entry
+        volatile Entry next;
+        Earlier earlier; // see remember()
+
+        Entry(Task task) {
+            this.task = task;
+        }
+    }
+
+    private static final class Earlier {
+        final Map<Integer, Task> tasks;
+        final Entry end; // the last entry that's in the map
+
+        Earlier(Map<Integer, Task> tasks, Entry end) {
+            this.tasks = tasks;
+            this.end = end;
+        }
+    }
+}
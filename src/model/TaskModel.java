@@ -1,23 +1,134 @@
 package model;
 
+import java.time.Clock;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.TaskMutationEvent;
 import strategy.TaskSortStrategy;
 import strategy.IdSortStrategy;
 
 // the model is the data layer, it is responsible for managing the data and the business logic
 // the model does not know about the view
 
+// the model can be changed from any thread: lookups, reads and observer (un)registration don't lock,
+// only changes to the sort order take the orderLock, because every sorted position depends on it.
+// events are queued in the same order as the changes and handed to observers outside of the lock
+// changes made inside batch() reach the observers as one event when the batch is done
+// every change, index build and observer call is timed, see metrics.Metrics
+
+// readers don't wait for writers either: every change makes a new TaskSnapshot of the order (a persistent
+// tree, the parts that didn't change are shared with the one before) and getTasks() hands out the latest
+// one without locking. every change also gets the next version, which is stored with the changed task,
+// so the compareAnd... changes only go through if the task is still the version that was read
+// (e.g. an edit dialog that was open while someone else changed the task).
+// a task's updated time only goes forward, a change is always later than the one it was made on, even when
+// that came from a machine whose clock is ahead (see persistence.ChangeFeed, it orders changes by it)
+
+// the pending tasks with a due date are also kept in due order (TaskDueIndex), that answers
+// getNextDue() and getOverdue() and tells when the next reminder is due. each model has a single
+// timer for that, on a thread all models share, it's only moved when an earlier due date shows up
+
 public class TaskModel {
-    private Map<Integer, Task> taskMap; // HashMap for O(1) lookups by ID
-    private List<TaskObserver> observers;
-    private TaskSortStrategy sortStrategy;
+    // past this many index updates in one batch, the indexes are dropped and sorted once at the end instead
+    private static final int BATCH_INDEX_LIMIT = 1000;
+    private static final long ANY_VERSION = -1;
+
+    private static final LatencyHistogram ADD_LATENCY = Metrics.latency("model.add"),
+                                          DELETE_LATENCY = Metrics.latency("model.delete"),
+                                          COMPLETE_LATENCY = Metrics.latency("model.complete"),
+                                          EDIT_LATENCY = Metrics.latency("model.edit"),
+                                          SCHEDULE_LATENCY = Metrics.latency("model.schedule"),
+                                          BATCH_LATENCY = Metrics.latency("model.batch"),
+                                          SORT_LATENCY = Metrics.latency("model.setSortStrategy"),
+                                          QUERY_LATENCY = Metrics.latency("model.query"),
+                                          NOTIFY_LATENCY = Metrics.latency("model.notify");
+    private static final Counter GET_TASKS_CALLS = Metrics.counter("model.getTasks"),
+                                 EVENTS = Metrics.counter("model.events"),
+                                 REMINDERS_SENT = Metrics.counter("model.reminders"),
+                                 CONFLICTS = Metrics.counter("model.conflicts");
+    private static final ScheduledThreadPoolExecutor REMINDERS = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "task-reminders");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static {
+        REMINDERS.setRemoveOnCancelPolicy(true); // moved timers don't pile up in the queue
+    }
+    // one histogram per observer class, so a slow observer shows up by name
+    private static final ClassValue<LatencyHistogram> OBSERVER_LATENCY = new ClassValue<>() {
+        @Override
+        protected LatencyHistogram computeValue(Class<?> type) {
+            return Metrics.latency("observer." + simpleName(type));
+        }
+    };
+    // building an index is where the strategy's comparator sorts every task
+    private static final ClassValue<LatencyHistogram> INDEX_BUILD_LATENCY = new ClassValue<>() {
+        @Override
+        protected LatencyHistogram computeValue(Class<?> type) {
+            return Metrics.latency("sort." + simpleName(type));
+        }
+    };
+
+    private final TaskStore store; // the tasks by id, HeapTaskStore unless another store is passed in
+    private final TaskHistory history; // the tasks before each change, for the snapshots of earlier versions
+    private final Clock clock; // for the updated times, what's overdue and when reminders are due
+    private final List<TaskObserver> observers; // copy-on-write, notifying never blocks (un)registering
+    private final Map<TaskSortStrategy, SortedTaskIndex> sortIndexes; // one always-sorted index per strategy used so far
+    private final ReentrantLock orderLock = new ReentrantLock(); // guards the sort indexes and the order of events
+    private final Queue<TaskEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private volatile TaskSortStrategy sortStrategy;
+    private volatile TaskSnapshot snapshot; // what getTasks() hands out, the order after the last change (or batch)
+    private long version; // of the last change, guarded by the orderLock
+    private TaskSearchIndex searchIndex; // built on the first search and kept up to date from then on
+    private int[] orderedIds; // ids of the index below in its order at the version, plain ints are quick to scan
+    private SortedTaskIndex orderedIdsIndex; // not its snapshot, that would keep the history from then on
+    private long orderedIdsVersion;
+    private final BitSet liveIds = new BitSet(); // which ids exist and which of them are completed,
+    private final BitSet completedIds = new BitSet(); // guarded by the orderLock
+    private volatile int completedCount;
+    private boolean substringSearch = true;
+    private int batchDepth; // > 0 while inside batch(), guarded by the orderLock
+    private int batchIndexUpdates;
+    private boolean batchChanged;
+    private List<TaskEvent> batchEvents = new ArrayList<>();
+    private final TaskDueIndex dueIndex = new TaskDueIndex(); // guarded by the orderLock, like these:
+    private long remindedUntil; // reminders for everything due up to here were sent
+    private long reminderTime = Task.NO_DUE_DATE; // what the timer is set for
+    private ScheduledFuture<?> reminderTimer;
+    private boolean remindersStopped;
 
     public TaskModel() {
-        taskMap = new HashMap<>();
-        observers = new ArrayList<>();
+        this(new HeapTaskStore());
+    }
+
+    public TaskModel(TaskStore store) {
+        this(store, Clock.systemUTC());
+    }
+
+    public TaskModel(TaskStore store, Clock clock) {
+        this.store = store;
+        this.history = new TaskHistory(store);
+        this.clock = clock;
+        remindedUntil = clock.millis(); // what's overdue already is overdue, not a reminder
+        observers = new CopyOnWriteArrayList<>();
+        sortIndexes = new ConcurrentHashMap<>();
         // default
         sortStrategy = new IdSortStrategy();
     }
@@ -32,48 +143,604 @@ public class TaskModel {
         observers.remove(observer);
     }
 
+    // called after every change, outside of the lock. one thread at a time drains the queue,
+    // if another thread is already at it, our events are delivered by that thread in order
     private void notifyObservers() {
-        for (TaskObserver observer : observers) {
-            observer.update();
+        if (orderLock.isHeldByCurrentThread()) return; // still inside a batch, the outermost call delivers
+        while (!pendingEvents.isEmpty() && dispatching.compareAndSet(false, true)) {
+            try {
+                TaskEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    EVENTS.increment();
+                    long start = System.nanoTime(), observerStart = start;
+                    for (TaskObserver observer : observers) {
+                        observer.taskChanged(event);
+                        long end = System.nanoTime();
+                        OBSERVER_LATENCY.get(observer.getClass()).record(end - observerStart);
+                        observerStart = end;
+                    }
+                    NOTIFY_LATENCY.record(observerStart - start);
+                }
+            } finally {
+                dispatching.set(false);
+            }
         }
     }
 
+    // a task with the id of one that's there already replaces it, that's an update of the task (all of its
+    // values, its times too, only the updated time doesn't go back). for changes that were made somewhere
+    // else, e.g. another instance of the app
     public void addTask(Task task) {
-        taskMap.put(task.getId(), task);
+        if (task.getId() < 0) throw new IllegalArgumentException("Task ids can't be negative: " + task.getId());
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        orderLock.lock();
+        try {
+            Task previous = store.get(task.getId());
+            if (previous == null) addLocked(task);
+            else replaceLocked(previous, task);
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "add", task.getId(), ADD_LATENCY, start);
         notifyObservers();
     }
 
     public void deleteTask(Task task) {
-        int id = task.getId();
-        if (taskMap.containsKey(id)) {
-            taskMap.remove(id);
-            notifyObservers();
-        }
+        deleteTask(task.getId(), ANY_VERSION);
     }
 
     public void setTaskCompleted(Task task, boolean completed) {
-        Task retrievedTask = taskMap.get(task.getId());
-        if (retrievedTask != null) {
-            retrievedTask.setCompleted(completed);
-            notifyObservers();
-        }
+        setTaskCompleted(task.getId(), ANY_VERSION, completed);
     }
-    
+
     public void editTask(Task task, String newDescription) {
-        Task retrievedTask = taskMap.get(task.getId());
-        if (retrievedTask != null) {
-            retrievedTask.setDescription(newDescription);
-            notifyObservers();
+        editTask(task.getId(), ANY_VERSION, newDescription);
+    }
+
+    // dueDate is epoch millis, Task.NO_DUE_DATE for none
+    public void scheduleTask(Task task, Priority priority, long dueDate) {
+        scheduleTask(task.getId(), ANY_VERSION, priority, dueDate);
+    }
+
+    // the same changes, but only if the stored task is still the version of the one that's passed in.
+    // false if it was changed or deleted since, nothing is changed then
+
+    public boolean compareAndDeleteTask(Task expected) {
+        return deleteTask(expected.getId(), expected.getVersion());
+    }
+
+    public boolean compareAndSetTaskCompleted(Task expected, boolean completed) {
+        return setTaskCompleted(expected.getId(), expected.getVersion(), completed);
+    }
+
+    public boolean compareAndEditTask(Task expected, String newDescription) {
+        return editTask(expected.getId(), expected.getVersion(), newDescription);
+    }
+
+    public boolean compareAndScheduleTask(Task expected, Priority priority, long dueDate) {
+        return scheduleTask(expected.getId(), expected.getVersion(), priority, dueDate);
+    }
+
+    // runs all the changes as one transaction: other threads wait until it's done and observers
+    // get a single TASKS_CHANGED event with the new order instead of one event per change
+    public void batch(Runnable changes) {
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        orderLock.lock();
+        try {
+            batchDepth++;
+            try {
+                changes.run();
+            } finally {
+                if (--batchDepth == 0) endBatch();
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "batch", -1, BATCH_LATENCY, start);
+        notifyObservers();
+    }
+
+    // runs the changes under the model's lock like batch(), but each of them still reaches the observers as
+    // an event of its own. for reading a task and changing it as one step, with other threads waiting, and
+    // for keeping something in the order of the changes (the controller's undo history)
+    public void atomically(Runnable changes) {
+        orderLock.lock();
+        try {
+            changes.run();
+        } finally {
+            orderLock.unlock();
+        }
+        notifyObservers();
+    }
+
+    // bulk versions of the changes above, each one is a single batch
+
+    public void addTasks(Collection<Task> tasks) {
+        batch(() -> {
+            for (Task task : tasks) addTask(task);
+        });
+    }
+
+    public void deleteTasks(Collection<Task> tasks) {
+        batch(() -> {
+            for (Task task : tasks) deleteTask(task);
+        });
+    }
+
+    public void markAllCompleted() {
+        batch(() -> {
+            store.forEach(task -> {
+                if (!task.isCompleted()) setTaskCompleted(task, true);
+            });
+        });
+    }
+
+    // the task with this id as it's stored right now, null if there isn't one
+    public Task getTask(int id) {
+        return store.get(id);
+    }
+
+    // the tasks in the current order, in O(1) and without locking: the list never changes, the next change
+    // makes a new one. while a batch() runs, other threads still get the order from before it
+    public TaskSnapshot getTasks() {
+        GET_TASKS_CALLS.increment();
+        TaskSnapshot tasks = snapshot;
+        if (tasks != null && !orderLock.isHeldByCurrentThread()) return tasks;
+        orderLock.lock();
+        try {
+            tasks = snapshotLocked();
+            if (batchDepth == 0) snapshot = tasks;
+            return tasks;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    // the tasks whose description has every word of the query, case-insensitive and in the current order.
+    // a query word matches the start of a word, with substring search on (the default) words of 3+
+    // characters match anywhere in a word. a query without any words matches every task
+    public List<Task> search(String query) {
+        return query(TaskQuery.all().text(query)).toList();
+    }
+
+    // the tasks are looked up as the result is read, see TaskQueryResult
+    public TaskQueryResult query(TaskQuery query) {
+        long start = System.nanoTime();
+        orderLock.lock();
+        try {
+            BitSet ids = query.getText() != null ? searchLocked(query.getText()) : null;
+            if (ids == null) {
+                // nothing to filter by, the result reads the list as it is and no id set is copied
+                if (query.getCompleted() == null && query.getFromId() <= 0 && query.getToId() == Integer.MAX_VALUE) {
+                    return new TaskQueryResult(snapshotLocked(), null, null, query.getOffset(), query.getLimit());
+                }
+                ids = (BitSet) (Boolean.TRUE.equals(query.getCompleted()) ? completedIds : liveIds).clone();
+            }
+            if (query.getCompleted() != null) {
+                if (query.getCompleted()) ids.and(completedIds);
+                else ids.andNot(completedIds);
+            }
+            if (query.getFromId() > 0) ids.clear(0, query.getFromId());
+            if (query.getToId() < Integer.MAX_VALUE) ids.clear(query.getToId() + 1, Math.max(query.getToId() + 1, ids.length()));
+
+            // in id order the ids come out of the bitset sorted already
+            int[] order = sortStrategy instanceof IdSortStrategy ? null : orderedIdsLocked();
+            return new TaskQueryResult(snapshotLocked(), order, ids, query.getOffset(), query.getLimit());
+        } finally {
+            orderLock.unlock();
+            QUERY_LATENCY.recordSince(start);
+        }
+    }
+
+    // the pending tasks that aren't overdue yet, the soonest due first
+    public List<Task> getNextDue(int limit) {
+        orderLock.lock();
+        try {
+            return tasksOf(dueIndex.from(clock.millis(), limit));
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    // the pending tasks past their due date, the longest overdue first
+    public List<Task> getOverdue(int limit) {
+        orderLock.lock();
+        try {
+            return tasksOf(dueIndex.before(clock.millis(), limit));
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    public long currentTimeMillis() {
+        return clock.millis();
+    }
+
+    // no more reminders, for a model that's not used anymore (the timer would keep it around until it fires)
+    public void stopReminders() {
+        orderLock.lock();
+        try {
+            remindersStopped = true;
+            if (reminderTimer != null) reminderTimer.cancel(false);
+            reminderTimer = null;
+        } finally {
+            orderLock.unlock();
         }
     }
 
-    public List<Task> getTasks() {
-        List<Task> tasks = new ArrayList<>(taskMap.values());
-        return sortStrategy.sort(tasks);
+    // kept up to date with every change, so these don't look at the tasks
+    public int getTaskCount() {
+        return store.size();
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public int getPendingCount() {
+        return Math.max(0, store.size() - completedCount);
+    }
+
+    // substring search needs the n-gram index on top of the words, it's optional to save the memory
+    public void setSubstringSearch(boolean substringSearch) {
+        orderLock.lock();
+        try {
+            this.substringSearch = substringSearch;
+            searchIndex = null;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    public TaskSortStrategy getSortStrategy() {
+        return sortStrategy;
     }
 
     public void setSortStrategy(TaskSortStrategy strategy) {
-        this.sortStrategy = strategy;
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        orderLock.lock();
+        try {
+            this.sortStrategy = strategy;
+            // the new order travels with the event, so it matches the events queued before and after it
+            publish(TaskEvent.sortChanged(snapshotLocked()));
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "sort", -1, SORT_LATENCY, start);
         notifyObservers();
     }
+
+    // the changes themselves, expectedVersion is ANY_VERSION for the ones that don't compare
+
+    private boolean deleteTask(int id, long expectedVersion) {
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        boolean changed = false;
+        orderLock.lock();
+        try {
+            Task retrievedTask = currentLocked(id, expectedVersion);
+            if (retrievedTask != null) {
+                removeLocked(retrievedTask);
+                changed = true;
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "delete", id, DELETE_LATENCY, start);
+        notifyObservers();
+        return changed;
+    }
+
+    private boolean setTaskCompleted(int id, long expectedVersion, boolean completed) {
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        boolean changed = false;
+        orderLock.lock();
+        try {
+            Task retrievedTask = currentLocked(id, expectedVersion);
+            if (retrievedTask != null) {
+                int oldIndex = positionOf(retrievedTask);
+                history.record(retrievedTask);
+                version++;
+                indexRemove(retrievedTask);
+                Task updatedTask = store.setCompleted(id, completed, version, updateTime(retrievedTask));
+                indexInsert(updatedTask);
+                track(updatedTask);
+                publish(TaskEvent.taskUpdated(updatedTask, TaskEvent.Field.COMPLETED, oldIndex, positionOf(updatedTask)));
+                changed = true;
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "complete", id, COMPLETE_LATENCY, start);
+        notifyObservers();
+        return changed;
+    }
+
+    private boolean editTask(int id, long expectedVersion, String newDescription) {
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        boolean changed = false;
+        orderLock.lock();
+        try {
+            Task retrievedTask = currentLocked(id, expectedVersion);
+            if (retrievedTask != null) {
+                int oldIndex = positionOf(retrievedTask);
+                history.record(retrievedTask);
+                version++;
+                indexRemove(retrievedTask);
+                Task updatedTask = store.setDescription(id, newDescription, version, updateTime(retrievedTask));
+                indexInsert(updatedTask);
+                if (searchIndex != null) {
+                    searchIndex.remove(id, retrievedTask.getDescription());
+                    searchIndex.add(id, updatedTask.getDescription());
+                }
+                publish(TaskEvent.taskUpdated(updatedTask, TaskEvent.Field.DESCRIPTION, oldIndex, positionOf(updatedTask)));
+                changed = true;
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "edit", id, EDIT_LATENCY, start);
+        notifyObservers();
+        return changed;
+    }
+
+    private boolean scheduleTask(int id, long expectedVersion, Priority priority, long dueDate) {
+        long start = System.nanoTime();
+        TaskMutationEvent event = beginMutation();
+        boolean changed = false;
+        orderLock.lock();
+        try {
+            Task retrievedTask = currentLocked(id, expectedVersion);
+            if (retrievedTask != null) {
+                int oldIndex = positionOf(retrievedTask);
+                history.record(retrievedTask);
+                version++;
+                indexRemove(retrievedTask);
+                Task updatedTask = store.setSchedule(id, priority, dueDate, version, updateTime(retrievedTask));
+                indexInsert(updatedTask);
+                publish(TaskEvent.taskUpdated(updatedTask, EnumSet.of(TaskEvent.Field.PRIORITY, TaskEvent.Field.DUE_DATE),
+                    oldIndex, positionOf(updatedTask)));
+                changed = true;
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        endMutation(event, "schedule", id, SCHEDULE_LATENCY, start);
+        notifyObservers();
+        return changed;
+    }
+
+    // changes inside a batch are timed, but only the batch gets a flight recorder event,
+    // a big import would flood the recording otherwise
+    private TaskMutationEvent beginMutation() {
+        if (orderLock.isHeldByCurrentThread() || !Metrics.isFlightRecording()) return null;
+        TaskMutationEvent event = new TaskMutationEvent();
+        event.begin();
+        return event;
+    }
+
+    private void endMutation(TaskMutationEvent event, String operation, int taskId, LatencyHistogram latency, long start) {
+        latency.recordSince(start);
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.taskId = taskId;
+            event.tasks = store.size();
+            event.commit();
+        }
+    }
+
+    private static String simpleName(Class<?> type) {
+        // getSimpleName() is empty for anonymous classes and lambdas
+        String name = type.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private void publish(TaskEvent event) {
+        if (batchDepth == 0) {
+            // outside of a batch a change is visible right away, the event comes with the order it made
+            TaskSnapshot tasks = snapshotLocked();
+            event.setSnapshot(tasks);
+            snapshot = tasks;
+            pendingEvents.add(event);
+        } else {
+            batchChanged = true;
+            // nobody listening (e.g. while loading at startup), no need to hold on to every change
+            if (!observers.isEmpty()) batchEvents.add(event);
+        }
+    }
+
+    private void endBatch() {
+        batchIndexUpdates = 0;
+        if (!batchChanged) return;
+        batchChanged = false;
+        List<TaskEvent> changes = batchEvents;
+        batchEvents = new ArrayList<>();
+        TaskSnapshot tasks = snapshotLocked();
+        snapshot = tasks;
+        pendingEvents.add(TaskEvent.tasksChanged(changes, tasks));
+    }
+
+    private List<Task> tasksOf(List<Integer> ids) {
+        List<Task> tasks = new ArrayList<>(ids.size());
+        for (int id : ids) tasks.add(store.get(id));
+        return tasks;
+    }
+
+    // on the reminder thread: a REMINDER for every task that came due since the last time
+    private void sendReminders() {
+        orderLock.lock();
+        try {
+            if (remindersStopped) return;
+            long now = clock.millis();
+            for (int id : dueIndex.between(remindedUntil, now)) {
+                Task task = store.get(id);
+                publish(TaskEvent.reminder(task, positionOf(task)));
+                REMINDERS_SENT.increment();
+            }
+            remindedUntil = Math.max(remindedUntil, now);
+            // a timer that fired for a task that's gone or done since just finds nothing and moves on
+            reminderTime = Task.NO_DUE_DATE;
+            scheduleReminder(dueIndex.firstAfter(remindedUntil));
+        } finally {
+            orderLock.unlock();
+        }
+        notifyObservers();
+    }
+
+    // only ever moves the timer earlier, a later one is found when it fires
+    private void scheduleReminder(long due) {
+        if (due == Task.NO_DUE_DATE || due <= remindedUntil || due >= reminderTime || remindersStopped) return;
+        if (reminderTimer != null) reminderTimer.cancel(false);
+        reminderTime = due;
+        reminderTimer = REMINDERS.schedule(this::sendReminders, Math.max(0, due - clock.millis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void addLocked(Task task) {
+        // the model keeps a copy of its own: whoever passed the task in still holds it, and Task has setters.
+        // a stored task is only ever replaced, never changed, snapshots and readers rely on that
+        Task added = task.copy();
+        added.setVersion(++version);
+        store.put(added);
+        Task stored = store.get(added.getId());
+        indexInsert(stored);
+        track(stored);
+        if (searchIndex != null) searchIndex.add(stored.getId(), stored.getDescription());
+        publish(TaskEvent.taskAdded(stored, positionOf(stored)));
+    }
+
+    private void replaceLocked(Task previous, Task task) {
+        int oldIndex = positionOf(previous);
+        history.record(previous);
+        Task replacement = task.copy(); // like in addLocked()
+        replacement.setVersion(++version);
+        if (replacement.getUpdatedAt() <= previous.getUpdatedAt()) replacement.setUpdatedAt(previous.getUpdatedAt() + 1);
+        indexRemove(previous);
+        store.put(replacement);
+        Task updatedTask = store.get(replacement.getId());
+        indexInsert(updatedTask);
+        track(updatedTask);
+        if (searchIndex != null) {
+            searchIndex.remove(previous.getId(), previous.getDescription());
+            searchIndex.add(updatedTask.getId(), updatedTask.getDescription());
+        }
+        publish(TaskEvent.taskUpdated(updatedTask, EnumSet.allOf(TaskEvent.Field.class), oldIndex, positionOf(updatedTask)));
+    }
+
+    // now, or right after the task's last change if that's later (another machine's clock)
+    private long updateTime(Task task) {
+        return Math.max(clock.millis(), task.getUpdatedAt() + 1);
+    }
+
+    private void removeLocked(Task task) {
+        int oldIndex = positionOf(task);
+        history.record(task);
+        version++;
+        indexRemove(task);
+        store.remove(task.getId());
+        untrack(task.getId());
+        if (searchIndex != null) searchIndex.remove(task.getId(), task.getDescription());
+        publish(TaskEvent.taskRemoved(task, oldIndex));
+    }
+
+    // the current order, inside a batch too
+    private TaskSnapshot snapshotLocked() {
+        return activeIndex().snapshot();
+    }
+
+    // the stored task if it's the expected version (or ANY_VERSION), null if it's not there or changed since
+    private Task currentLocked(int id, long expectedVersion) {
+        Task task = store.get(id);
+        if (task == null || expectedVersion == ANY_VERSION || task.getVersion() == expectedVersion) return task;
+        CONFLICTS.increment();
+        return null;
+    }
+
+    // ids of the search matches, null if the query has no words
+    private BitSet searchLocked(String query) {
+        if (searchIndex == null) {
+            TaskSearchIndex index = new TaskSearchIndex(substringSearch);
+            store.forEach(task -> index.add(task.getId(), task.getDescription()));
+            searchIndex = index;
+        }
+        return searchIndex.search(query);
+    }
+
+    private void track(Task task) {
+        int id = task.getId();
+        liveIds.set(id);
+        if (completedIds.get(id) != task.isCompleted()) {
+            completedIds.set(id, task.isCompleted());
+            completedCount += task.isCompleted() ? 1 : -1;
+        }
+    }
+
+    private void untrack(int id) {
+        liveIds.clear(id);
+        if (completedIds.get(id)) {
+            completedIds.clear(id);
+            completedCount--;
+        }
+    }
+
+    private int[] orderedIdsLocked() {
+        SortedTaskIndex index = activeIndex();
+        if (orderedIdsIndex != index || orderedIdsVersion != index.snapshot().getVersion()) {
+            orderedIds = index.snapshot().ids();
+            orderedIdsIndex = index;
+            orderedIdsVersion = index.snapshot().getVersion();
+        }
+        return orderedIds;
+    }
+
+    // the index of a strategy is built the first time it's needed and kept up to date from then on
+    private SortedTaskIndex activeIndex() {
+        SortedTaskIndex index = sortIndexes.get(sortStrategy);
+        if (index == null) {
+            long start = System.nanoTime();
+            index = new SortedTaskIndex(sortStrategy, store, history, version);
+            INDEX_BUILD_LATENCY.get(sortStrategy.getClass()).recordSince(start);
+            sortIndexes.put(sortStrategy, index);
+        }
+        return index;
+    }
+
+    private void indexInsert(Task task) {
+        if (batchDepth > 0) dropIndexesIfBatchIsLarge();
+        for (SortedTaskIndex index : sortIndexes.values()) {
+            index.insert(task, version);
+        }
+        dueIndex.add(task);
+        if (!task.isCompleted()) scheduleReminder(task.getDueDate());
+    }
+
+    private void indexRemove(Task task) {
+        if (batchDepth > 0) dropIndexesIfBatchIsLarge();
+        for (SortedTaskIndex index : sortIndexes.values()) {
+            index.remove(task, version);
+        }
+        dueIndex.remove(task);
+    }
+
+    // shifting a sorted array for every change gets quadratic on large batches, one sort is cheaper.
+    // same for the search index, it's built again on the next search. the due index is a tree,
+    // it stays
+    private void dropIndexesIfBatchIsLarge() {
+        if (++batchIndexUpdates > BATCH_INDEX_LIMIT) {
+            sortIndexes.clear();
+            searchIndex = null;
+        }
+    }
+
+    // inside a batch the positions are skipped, the batch event comes with the whole new order
+    private int positionOf(Task task) {
+        if (batchDepth > 0) return -1;
+        return activeIndex().indexOf(task);
+    }
 }
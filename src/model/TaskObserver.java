@@ -2,4 +2,9 @@ package model;
 
 public interface TaskObserver {
     void update();
+
+    // observers that want to know what changed override this, the rest just get an update()
+    default void taskChanged(TaskEvent event) {
+        update();
+    }
 }
@@ -0,0 +1,91 @@
+package model;
+
+import java.util.Objects;
+
+// which tasks to get from TaskModel.query(), every method returns a new query with one more condition:
+//   TaskQuery.all().completed(false).text("milk").offset(50).limit(25)
+// conditions are combined with and, the results come in the model's current order
+
+public final class TaskQuery {
+    private static final TaskQuery ALL = new TaskQuery(null, 0, Integer.MAX_VALUE, null, 0, Integer.MAX_VALUE);
+
+    private final Boolean completed; // null for both
+    private final int fromId, toId; // inclusive
+    private final String text; // null for no text condition
+    private final int offset, limit;
+
+    private TaskQuery(Boolean completed, int fromId, int toId, String text, int offset, int limit) {
+        this.completed = completed;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.text = text;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    // only completed tasks or only pending ones
+    public TaskQuery completed(boolean completed) {
+        return new TaskQuery(completed, fromId, toId, text, offset, limit);
+    }
+
+    public TaskQuery idRange(int fromId, int toId) {
+        return new TaskQuery(completed, Math.max(0, fromId), toId, text, offset, limit);
+    }
+
+    // same matching as TaskModel.search()
+    public TaskQuery text(String text) {
+        return new TaskQuery(completed, fromId, toId, text, offset, limit);
+    }
+
+    public TaskQuery offset(int offset) {
+        if (offset < 0) throw new IllegalArgumentException("Offset can't be negative: " + offset);
+        return new TaskQuery(completed, fromId, toId, text, offset, limit);
+    }
+
+    public TaskQuery limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Limit can't be negative: " + limit);
+        return new TaskQuery(completed, fromId, toId, text, offset, limit);
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public int getFromId() {
+        return fromId;
+    }
+
+    public int getToId() {
+        return toId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskQuery)) return false;
+        TaskQuery other = (TaskQuery) o;
+        return fromId == other.fromId && toId == other.toId && offset == other.offset && limit == other.limit
+            && Objects.equals(completed, other.completed) && Objects.equals(text, other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(completed, fromId, toId, text, offset, limit);
+    }
+}
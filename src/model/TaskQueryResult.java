@@ -0,0 +1,122 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// the answer to a TaskQuery. only the matching ids are worked out up front (a bitset, none at all for a
+// query that doesn't filter), the tasks themselves are found when they're asked for, in the order the
+// model had when the query ran and as they were then: they're read from the model's TaskSnapshot of that moment, later changes don't show up.
+// get() remembers where it got to and every CHECKPOINT-th match, so going through the rows in order
+// or jumping back (like a list being scrolled and painted) doesn't start over from the first task.
+// not thread-safe, one reader at a time
+
+public class TaskQueryResult implements Iterable<Task> {
+    private static final int CHECKPOINT = 1024;
+
+    private final TaskSnapshot tasks; // the model's tasks when the query ran
+    private final int[] order; // the ids in that order, null when it's the id order
+    private final BitSet ids; // the matching ids, null when every task matches
+    private final int offset, limit;
+    private int totalCount = -1;
+
+    // a position is an index into tasks, or the id itself in id order
+    private int cursorMatch = -1, cursorPosition = -1;
+    private int[] checkpoints = new int[16];
+    private int checkpointCount;
+
+    TaskQueryResult(TaskSnapshot tasks, int[] order, BitSet ids, int offset, int limit) {
+        this.tasks = tasks;
+        this.order = order;
+        this.ids = ids;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    // how many tasks match, without offset and limit
+    public int getTotalCount() {
+        if (totalCount < 0) totalCount = ids == null ? tasks.size() : ids.cardinality();
+        return totalCount;
+    }
+
+    // how many tasks this page has
+    public int size() {
+        return (int) Math.max(0, Math.min(limit, (long) getTotalCount() - offset));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public Task get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        int match = offset + index;
+        if (ids == null) return tasks.get(match);
+        int checkpoint = Math.min(match / CHECKPOINT, checkpointCount - 1);
+        if (match < cursorMatch || checkpoint >= 0 && checkpoint * CHECKPOINT > cursorMatch) {
+            if (checkpoint >= 0) {
+                cursorMatch = checkpoint * CHECKPOINT;
+                cursorPosition = checkpoints[checkpoint];
+            } else {
+                cursorMatch = -1;
+                cursorPosition = -1;
+            }
+        }
+        while (cursorMatch < match) {
+            cursorPosition = next(cursorPosition);
+            cursorMatch++;
+            if (cursorMatch % CHECKPOINT == 0 && cursorMatch / CHECKPOINT == checkpointCount) {
+                if (checkpointCount == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                checkpoints[checkpointCount++] = cursorPosition;
+            }
+        }
+        return taskAt(cursorPosition);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private int index;
+
+            @Override public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override public Task next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(index++);
+            }
+        };
+    }
+
+    public List<Task> toList() {
+        List<Task> list = new ArrayList<>(size());
+        for (Task task : this) list.add(task);
+        return list;
+    }
+
+    private int next(int position) {
+        if (order == null) return ids.nextSetBit(position + 1);
+        for (int i = position + 1; i < order.length; i++) {
+            if (ids.get(order[i])) return i;
+        }
+        throw new IllegalStateException("Fewer matches than counted");
+    }
+
+    private Task taskAt(int position) {
+        if (order != null) return tasks.get(position);
+        // in id order the position is the id, the tasks are sorted by it
+        int low = 0, high = tasks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = tasks.idAt(middle);
+            if (id < position) low = middle + 1;
+            else if (id > position) high = middle - 1;
+            else return tasks.at(middle);
+        }
+        throw new IllegalStateException("Task " + position + " is missing");
+    }
+}
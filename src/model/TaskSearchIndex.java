@@ -0,0 +1,171 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// full-text index over the descriptions: every word points to the ids of the tasks that have it.
+// a query word matches the start of a word ("rep" finds "Report"). with n-grams on, query words of
+// 3+ characters match anywhere in a word ("port" finds "Report"): the words are also listed under
+// their trigrams, so a query only looks at the words that share its rarest trigram, never at the tasks.
+// words are case-folded the same way as the alphabetical sort
+
+class TaskSearchIndex {
+    private static final int GRAM = 3;
+    private static final int LOOKUP_COST = 20; // a binary search in a posting list vs. setting one bit
+
+    // a distinct word and the ids of the tasks that have it
+    private static final class Word extends IntSortedList {
+        final String text;
+        final int ordinal;
+
+        Word(String text, int ordinal) {
+            this.text = text;
+            this.ordinal = ordinal;
+        }
+    }
+
+    private final TreeMap<String, Word> words = new TreeMap<>(); // sorted, a prefix is a range
+    private final Map<String, IntSortedList> trigrams; // trigram -> ordinals of the words with it, null without n-grams
+    private Word[] byOrdinal = new Word[1024];
+    private final IntSortedList freeOrdinals = new IntSortedList();
+    private int nextOrdinal;
+
+    TaskSearchIndex(boolean ngrams) {
+        trigrams = ngrams ? new HashMap<>() : null;
+    }
+
+    // negative ids (only possible from outside the factory) don't fit in the result sets, they aren't indexed
+    void add(int id, String description) {
+        if (id < 0) return;
+        for (String text : words(description)) {
+            Word word = words.get(text);
+            if (word == null) word = attach(text);
+            word.add(id);
+        }
+    }
+
+    void remove(int id, String description) {
+        for (String text : words(description)) {
+            Word word = words.get(text);
+            if (word == null) continue;
+            word.remove(id);
+            if (word.isEmpty()) detach(word);
+        }
+    }
+
+    // ids of the tasks that match every word of the query, null if the query has no words.
+    // the rarest query word goes first, what's left is usually few enough to look up one by one
+    BitSet search(String query) {
+        List<List<Word>> terms = new ArrayList<>();
+        for (String term : words(query)) terms.add(matches(term));
+        if (terms.isEmpty()) return null;
+        terms.sort(Comparator.comparingLong(TaskSearchIndex::postings));
+
+        BitSet result = new BitSet();
+        for (Word word : terms.get(0)) word.addTo(result);
+        for (int i = 1; i < terms.size() && !result.isEmpty(); i++) {
+            List<Word> matches = terms.get(i);
+            if ((long) result.cardinality() * matches.size() * LOOKUP_COST < postings(matches)) {
+                for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                    if (!containsAny(matches, id)) result.clear(id);
+                }
+            } else {
+                BitSet ids = new BitSet();
+                for (Word word : matches) word.addTo(ids);
+                result.and(ids);
+            }
+        }
+        return result;
+    }
+
+    // the indexed words a query word matches
+    private List<Word> matches(String term) {
+        List<Word> matches = new ArrayList<>();
+        if (trigrams != null && term.length() >= GRAM) {
+            IntSortedList rarest = null;
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                IntSortedList candidates = trigrams.get(term.substring(i, i + GRAM));
+                if (candidates == null) return matches; // no word has this trigram
+                if (rarest == null || candidates.size() < rarest.size()) rarest = candidates;
+            }
+            for (int i = 0; i < rarest.size(); i++) {
+                Word word = byOrdinal[rarest.get(i)];
+                if (word.text.contains(term)) matches.add(word);
+            }
+        } else {
+            matches.addAll(words.subMap(term, term + Character.MAX_VALUE).values());
+        }
+        return matches;
+    }
+
+    private static long postings(List<Word> words) {
+        long postings = 0;
+        for (Word word : words) postings += word.size();
+        return postings;
+    }
+
+    private static boolean containsAny(List<Word> words, int id) {
+        for (Word word : words) {
+            if (word.contains(id)) return true;
+        }
+        return false;
+    }
+
+    private Word attach(String text) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = nextOrdinal++;
+        } else {
+            ordinal = freeOrdinals.get(freeOrdinals.size() - 1);
+            freeOrdinals.remove(ordinal);
+        }
+        if (ordinal == byOrdinal.length) byOrdinal = Arrays.copyOf(byOrdinal, ordinal * 2);
+
+        Word word = new Word(text, ordinal);
+        words.put(text, word);
+        byOrdinal[ordinal] = word;
+        if (trigrams != null) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                trigrams.computeIfAbsent(text.substring(i, i + GRAM), gram -> new IntSortedList()).add(ordinal);
+            }
+        }
+        return word;
+    }
+
+    private void detach(Word word) {
+        words.remove(word.text);
+        byOrdinal[word.ordinal] = null;
+        freeOrdinals.add(word.ordinal);
+        if (trigrams != null) {
+            for (int i = 0; i + GRAM <= word.text.length(); i++) {
+                String gram = word.text.substring(i, i + GRAM);
+                IntSortedList ordinals = trigrams.get(gram);
+                if (ordinals == null) continue;
+                ordinals.remove(word.ordinal);
+                if (ordinals.isEmpty()) trigrams.remove(gram);
+            }
+        }
+    }
+
+    // runs of letters and digits, case-folded like Task.getDescriptionKey()
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(Character.toUpperCase(c)));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,287 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// the model's tasks in one sort order as they were at one version, a list that never changes.
+// it's a B+tree whose nodes are never changed either: a change copies the nodes on the way from the root
+// to the leaf it touches (a few small arrays) and shares every other node with the version before.
+// so the model hands out its current list in O(1), and every list it ever handed out stays valid.
+// the leaves hold ids, not tasks: a task is read from the model's store when it's asked for, as it was at
+// the list's version (see TaskHistory). with a store that keeps no Task objects, get() decodes a new one.
+// get() is O(log n) with 64 entries per node, 3-4 array reads for a million tasks. reading in order
+// (or backwards) is O(1) per task, the leaf that was read last is remembered
+
+public final class TaskSnapshot extends AbstractList<Task> implements RandomAccess {
+    private static final int MAX_WIDTH = 64; // ids per leaf, children per branch
+    private static final int MIN_WIDTH = MAX_WIDTH / 4; // a smaller node is merged with a neighbour if they fit in one
+
+    private final Object root; // an int[] leaf or a Branch, null when it's empty
+    private final int size;
+    private final long version;
+    private final TaskHistory history; // where the tasks are read from
+    private final TaskHistory.Entry since; // the history's last entry at this version
+    private Finger finger; // racy on purpose, it's immutable and the worst case is a lookup from the root
+
+    private TaskSnapshot(Object root, int size, long version, TaskHistory history) {
+        this.root = root;
+        this.size = size;
+        this.version = version;
+        this.history = history;
+        this.since = history.last();
+    }
+
+    // the model's version this list belongs to, it goes up with every change
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int index) {
+        return read(idOf(index));
+    }
+
+    // get() without remembering the leaf, for lookups that jump around (binary searches)
+    Task at(int index) {
+        return read(idAt(index));
+    }
+
+    // the id at the index, without reading the task
+    int idOf(int index) {
+        checkIndex(index);
+        Finger last = finger;
+        if (last != null && index >= last.start && index - last.start < last.leaf.length) return last.leaf[index - last.start];
+        Object node = root;
+        int start = 0;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(index - start);
+            start += branch.start(child);
+            node = branch.children[child];
+        }
+        int[] leaf = (int[]) node;
+        finger = new Finger(leaf, start);
+        return leaf[index - start];
+    }
+
+    // idOf() without remembering the leaf
+    int idAt(int index) {
+        checkIndex(index);
+        Object node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(index);
+            index -= branch.start(child);
+            node = branch.children[child];
+        }
+        return ((int[]) node)[index];
+    }
+
+    // all the ids in order, a copy
+    int[] ids() {
+        int[] ids = new int[size];
+        copyIds(root, ids, 0);
+        return ids;
+    }
+
+    private static int copyIds(Object node, int[] ids, int start) {
+        if (node instanceof int[]) {
+            int[] leaf = (int[]) node;
+            System.arraycopy(leaf, 0, ids, start, leaf.length);
+            return start + leaf.length;
+        }
+        if (node != null) {
+            for (Object child : ((Branch) node).children) start = copyIds(child, ids, start);
+        }
+        return start;
+    }
+
+    private Task read(int id) {
+        return history.read(id, version, since);
+    }
+
+    // the changes below return a new list, this one stays as it is
+
+    static TaskSnapshot empty(TaskHistory history, long version) {
+        return new TaskSnapshot(null, 0, version, history);
+    }
+
+    // the ids have to be in order already, the leaves are filled up completely
+    static TaskSnapshot of(int[] ids, TaskHistory history, long version) {
+        if (ids.length == 0) return empty(history, version);
+        List<Object> level = new ArrayList<>(ids.length / MAX_WIDTH + 1);
+        for (int i = 0; i < ids.length; i += MAX_WIDTH) {
+            level.add(Arrays.copyOfRange(ids, i, Math.min(ids.length, i + MAX_WIDTH)));
+        }
+        while (level.size() > 1) {
+            List<Object> parents = new ArrayList<>(level.size() / MAX_WIDTH + 1);
+            for (int i = 0; i < level.size(); i += MAX_WIDTH) {
+                parents.add(new Branch(level.subList(i, Math.min(level.size(), i + MAX_WIDTH)).toArray()));
+            }
+            level = parents;
+        }
+        return new TaskSnapshot(level.get(0), ids.length, version, history);
+    }
+
+    TaskSnapshot insert(int index, int id, long version) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        if (root == null) return new TaskSnapshot(new int[] {id}, 1, version, history);
+        Object[] nodes = insert(root, index, id);
+        return new TaskSnapshot(nodes.length == 1 ? nodes[0] : new Branch(nodes), size + 1, version, history);
+    }
+
+    TaskSnapshot remove(int index, long version) {
+        checkIndex(index);
+        Object node = remove(root, index);
+        // a root with a single child isn't needed, the tree gets lower again
+        while (node instanceof Branch && ((Branch) node).children.length == 1) node = ((Branch) node).children[0];
+        return new TaskSnapshot(node, size - 1, version, history);
+    }
+
+    // the node with the id in it, as one node or split in two
+    private static Object[] insert(Object node, int index, int id) {
+        if (node instanceof int[]) {
+            int[] leaf = (int[]) node;
+            // appending to a full leaf (tasks added in order, new ids), it stays full and the id starts the next one
+            if (leaf.length == MAX_WIDTH && index == leaf.length) return new Object[] {leaf, new int[] {id}};
+            int[] inserted = new int[leaf.length + 1];
+            System.arraycopy(leaf, 0, inserted, 0, index);
+            inserted[index] = id;
+            System.arraycopy(leaf, index, inserted, index + 1, leaf.length - index);
+            if (inserted.length <= MAX_WIDTH) return new Object[] {inserted};
+            int half = inserted.length / 2;
+            return new Object[] {Arrays.copyOfRange(inserted, 0, half), Arrays.copyOfRange(inserted, half, inserted.length)};
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childBefore(index);
+        Object[] children = replace(branch.children, child, 1, insert(branch.children[child], index - branch.start(child), id));
+        if (children.length <= MAX_WIDTH) return new Object[] {new Branch(children)};
+        int half = index == branch.size() ? MAX_WIDTH : children.length / 2; // same as the leaves when appending
+        return new Object[] {new Branch(Arrays.copyOfRange(children, 0, half)),
+                             new Branch(Arrays.copyOfRange(children, half, children.length))};
+    }
+
+    // the node without the id, null once it's empty
+    private static Object remove(Object node, int index) {
+        if (node instanceof int[]) {
+            int[] leaf = (int[]) node;
+            if (leaf.length == 1) return null;
+            int[] removed = new int[leaf.length - 1];
+            System.arraycopy(leaf, 0, removed, 0, index);
+            System.arraycopy(leaf, index + 1, removed, index, removed.length - index);
+            return removed;
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childAt(index);
+        Object shrunk = remove(branch.children[child], index - branch.start(child));
+        if (shrunk == null) {
+            return branch.children.length == 1 ? null : new Branch(replace(branch.children, child, 1, new Object[0]));
+        }
+        if (widthOf(shrunk) < MIN_WIDTH && branch.children.length > 1) {
+            int neighbour = child + 1 < branch.children.length ? child + 1 : child - 1;
+            Object other = branch.children[neighbour];
+            if (widthOf(shrunk) + widthOf(other) <= MAX_WIDTH) {
+                Object merged = neighbour > child ? concat(shrunk, other) : concat(other, shrunk);
+                return new Branch(replace(branch.children, Math.min(child, neighbour), 2, new Object[] {merged}));
+            }
+        }
+        return new Branch(replace(branch.children, child, 1, new Object[] {shrunk}));
+    }
+
+    // array with count elements from index on replaced by the nodes
+    private static Object[] replace(Object[] array, int index, int count, Object[] nodes) {
+        Object[] replaced = new Object[array.length - count + nodes.length];
+        System.arraycopy(array, 0, replaced, 0, index);
+        System.arraycopy(nodes, 0, replaced, index, nodes.length);
+        System.arraycopy(array, index + count, replaced, index + nodes.length, array.length - index - count);
+        return replaced;
+    }
+
+    // two neighbours on the same level
+    private static Object concat(Object left, Object right) {
+        if (left instanceof int[]) {
+            int[] l = (int[]) left, r = (int[]) right;
+            int[] both = Arrays.copyOf(l, l.length + r.length);
+            System.arraycopy(r, 0, both, l.length, r.length);
+            return both;
+        }
+        Object[] l = ((Branch) left).children, r = ((Branch) right).children;
+        Object[] both = Arrays.copyOf(l, l.length + r.length);
+        System.arraycopy(r, 0, both, l.length, r.length);
+        return new Branch(both);
+    }
+
+    private static int widthOf(Object node) {
+        return node instanceof int[] ? ((int[]) node).length : ((Branch) node).children.length;
+    }
+
+    private static int sizeOf(Object node) {
+        return node instanceof int[] ? ((int[]) node).length : ((Branch) node).size();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+
+    private static final class Branch {
+        final Object[] children; // all int[] or all Branch, every leaf is at the same depth
+        final int[] ends; // ends[i] is how many ids children 0 to i have together
+
+        Branch(Object[] children) {
+            this.children = children;
+            ends = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                total += sizeOf(children[i]);
+                ends[i] = total;
+            }
+        }
+
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        int start(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+
+        // the child that has the task at index
+        int childAt(int index) {
+            return search(index + 1);
+        }
+
+        // the child a task goes into at index, the one before when it's right between two
+        int childBefore(int index) {
+            return search(index);
+        }
+
+        // the first child whose end is at least the position
+        private int search(int position) {
+            int low = 0, high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] < position) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+
+    private static final class Finger {
+        final int[] leaf;
+        final int start;
+
+        Finger(int[] leaf, int start) {
+            this.leaf = leaf;
+            this.start = start;
+        }
+    }
+}
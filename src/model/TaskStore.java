@@ -0,0 +1,29 @@
+package model;
+
+import java.util.function.Consumer;
+
+// where the model keeps its tasks, by id. changes go through the store, so a store doesn't have to
+// keep Task objects around: it can hand out a fresh Task for every get() (see ColumnarTaskStore).
+// a Task the store handed out is never changed afterwards, a change makes a new one.
+// the model only changes the store while holding its orderLock, get() can be called from any thread
+
+public interface TaskStore {
+    // null if there's no task with that id
+    Task get(int id);
+
+    // adds the task, or replaces the one with the same id
+    void put(Task task);
+
+    // returns the removed task, null if there was none
+    Task remove(int id);
+
+    // these return the task as it is after the change, null if there's no task with that id.
+    // version is the model's version of the change, updatedAt the time of it
+    Task setCompleted(int id, boolean completed, long version, long updatedAt);
+    Task setDescription(int id, String description, long version, long updatedAt);
+    Task setSchedule(int id, Priority priority, long dueDate, long version, long updatedAt);
+
+    int size();
+
+    void forEach(Consumer<Task> action);
+}
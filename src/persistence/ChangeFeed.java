@@ -0,0 +1,243 @@
+package persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import model.Task;
+import model.TaskEvent;
+import model.TaskFactory;
+import model.TaskModel;
+import model.TaskObserver;
+import model.TaskSnapshot;
+
+// the model's changes in order, numbered, for other instances of the app that work on the same list
+// (FeedServer hands them out, FeedSubscriber pulls them from a peer). it observes the model like the
+// journal does and keeps the last records in memory (-Dtaskmanager.feed.retain, 100000): a peer asks for the
+// records after the last sequence number it got. a peer that's further behind, new, or asking a feed that
+// was restarted since (every feed has a random epoch) gets the whole list instead, and the deletes it knows.
+//
+// a peer's records are merged with last writer wins: a task's updated time is its version across instances
+// (the model only moves it forward, see TaskModel) and the later one wins, a delete is a change at the time it
+// was made. two different versions with the same time are ordered by their values, so every instance keeps
+// the same one, and a version that's here already (our own change coming back from a peer) changes nothing.
+// what's applied from a peer goes into this feed too, so it reaches the peers of peers.
+//
+// deletes are only remembered while the app runs, a task deleted here while a peer was down comes back from
+// that peer. every instance hands out ids of its own (TaskFactory.setIdSpace()), so tasks added on two of them
+// at the same time are two tasks. ids that come in from peers move this instance's factory past them, a
+// record with an id no instance would hand out (TaskFactory.isInRange()) is ignored
+
+public class ChangeFeed implements TaskObserver {
+    static final byte PUT = 1, DELETE = 2;
+    private static final int DEFAULT_RETAIN = Integer.getInteger("taskmanager.feed.retain", 100_000);
+    private static final Counter RECORDS = Metrics.counter("feed.records"),
+                                 APPLIED = Metrics.counter("feed.applied"),
+                                 IGNORED = Metrics.counter("feed.ignored"),
+                                 RESETS = Metrics.counter("feed.resets");
+    private static final LatencyHistogram APPLY_LATENCY = Metrics.latency("feed.apply");
+
+    private final TaskModel model;
+    private final TaskFactory taskFactory;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    // everything below is guarded by this
+    private final Record[] records; // ring, the record with sequence number n is at n % length
+    private long sequence; // of the last record, 0 before the first
+    private TaskSnapshot latest; // the model's tasks right after the last record
+    private final Map<Integer, Long> deleted = new HashMap<>(); // id -> when it was deleted
+    private final Map<Long, Long> peerDeletes = new HashMap<>(); // version of a task a peer's delete removed -> its time
+
+    public ChangeFeed(TaskModel model, TaskFactory taskFactory) {
+        this(model, taskFactory, DEFAULT_RETAIN);
+    }
+
+    public ChangeFeed(TaskModel model, TaskFactory taskFactory, int retain) {
+        if (retain < 1) throw new IllegalArgumentException("The feed has to keep at least one record: " + retain);
+        this.model = model;
+        this.taskFactory = taskFactory;
+        this.records = new Record[retain];
+        // inside a batch no change can fall between the list the feed starts from and its first event
+        model.batch(() -> {
+            model.addObserver(this);
+            synchronized (this) {
+                latest = model.getTasks();
+            }
+        });
+    }
+
+    public void close() {
+        model.removeObserver(this);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void update() {
+        // only single changes are recorded, see taskChanged()
+    }
+
+    @Override
+    public synchronized void taskChanged(TaskEvent event) {
+        record(event);
+        // single changes carry the list after them, batches and sort changes are the list
+        TaskSnapshot after = event.getSnapshot();
+        if (after == null && event.getTasks() instanceof TaskSnapshot) after = (TaskSnapshot) event.getTasks();
+        if (after != null) latest = after;
+        notifyAll(); // peers waiting in read()
+    }
+
+    private void record(TaskEvent event) {
+        Task task = event.getTask();
+        switch (event.getType()) {
+            case TASK_ADDED:
+            case TASK_UPDATED:
+                deleted.remove(task.getId());
+                append(new Record(PUT, task, task.getId(), task.getUpdatedAt()));
+                break;
+            case TASK_REMOVED:
+                // a peer's delete keeps the peer's time, a delete here is now (and later than the task's last change)
+                Long peerTime = peerDeletes.remove(task.getVersion());
+                long time = peerTime != null ? peerTime : Math.max(model.currentTimeMillis(), task.getUpdatedAt() + 1);
+                deleted.merge(task.getId(), time, Math::max);
+                append(new Record(DELETE, null, task.getId(), time));
+                break;
+            case TASKS_CHANGED:
+                for (TaskEvent change : event.getChanges()) record(change);
+                break;
+            default:
+                break; // the order and reminders aren't changes of the tasks
+        }
+    }
+
+    private void append(Record record) {
+        records[(int) (++sequence % records.length)] = record;
+        RECORDS.increment();
+    }
+
+    // the records after the sequence number, at most max. if there aren't any yet this waits up to
+    // waitMillis for one. a peer of another epoch or too far behind gets the whole list (Answer.isState())
+    synchronized Answer read(long peerEpoch, long after, int max, long waitMillis) throws InterruptedException {
+        if (peerEpoch != epoch || after < sequence - records.length || after > sequence) {
+            RESETS.increment();
+            return new Answer(sequence, null, latest, new HashMap<>(deleted));
+        }
+        long deadline = System.nanoTime() + waitMillis * 1_000_000;
+        while (sequence == after) {
+            long left = (deadline - System.nanoTime()) / 1_000_000;
+            if (left <= 0) break;
+            wait(left);
+        }
+        if (sequence - records.length > after) return read(peerEpoch, after, max, 0); // overtaken while waiting
+        int count = (int) Math.min(max, sequence - after);
+        List<Record> delta = new ArrayList<>(count);
+        for (long n = after + 1; n <= after + count; n++) delta.add(records[(int) (n % records.length)]);
+        return new Answer(after + count, delta, null, null);
+    }
+
+    // a peer's records, as one batch: last writer wins, see above. returns how many changed something here
+    int apply(List<Record> peerRecords) {
+        long start = System.nanoTime();
+        int[] applied = new int[1];
+        boolean[] behind = new boolean[1];
+        do {
+            // the feed has to know every change the model made before it can tell what's newer,
+            // the events of a change that was just made may still be on their way to it
+            if (behind[0]) Thread.yield();
+            behind[0] = false;
+            model.batch(() -> {
+                synchronized (this) {
+                    if (latest.getVersion() < model.getTasks().getVersion()) {
+                        behind[0] = true;
+                        return;
+                    }
+                    for (Record record : peerRecords) {
+                        if (applyLocked(record)) applied[0]++;
+                    }
+                }
+            });
+        } while (behind[0]);
+        APPLIED.add(applied[0]);
+        IGNORED.add(peerRecords.size() - applied[0]);
+        APPLY_LATENCY.recordSince(start);
+        return applied[0];
+    }
+
+    private boolean applyLocked(Record record) {
+        // no instance hands out such an id, a task there would make every id set that big (see TaskFactory)
+        if (!taskFactory.isInRange(record.id)) return false;
+        Task current = model.getTask(record.id);
+        Long deletedAt = deleted.get(record.id);
+        if (record.op == DELETE) {
+            deleted.merge(record.id, record.time, Math::max);
+            if (current == null || current.getUpdatedAt() > record.time) return false;
+            peerDeletes.put(current.getVersion(), record.time);
+            model.deleteTask(current);
+            return true;
+        }
+        Task task = record.task;
+        if (current == null) {
+            // a delete at the same time wins
+            if (deletedAt != null && deletedAt >= task.getUpdatedAt()) return false;
+        } else if (task.getUpdatedAt() < current.getUpdatedAt()
+                || task.getUpdatedAt() == current.getUpdatedAt() && compareValues(task, current) <= 0) {
+            return false;
+        }
+        taskFactory.advanceTo(task.getId() + 1);
+        model.addTask(task);
+        return true;
+    }
+
+    // any order works, as long as every instance uses the same
+    private static int compareValues(Task a, Task b) {
+        int compared = a.getDescription().compareTo(b.getDescription());
+        if (compared == 0) compared = Boolean.compare(a.isCompleted(), b.isCompleted());
+        if (compared == 0) compared = a.getPriority().compareTo(b.getPriority());
+        if (compared == 0) compared = Long.compare(a.getDueDate(), b.getDueDate());
+        if (compared == 0) compared = Long.compare(a.getCreatedAt(), b.getCreatedAt());
+        return compared;
+    }
+
+    // a task's new values (PUT) or its delete, time is the task's updated time or when it was deleted
+    static final class Record {
+        final byte op;
+        final Task task; // null for a DELETE
+        final int id;
+        final long time;
+
+        Record(byte op, Task task, int id, long time) {
+            this.op = op;
+            this.task = task;
+            this.id = id;
+            this.time = time;
+        }
+    }
+
+    // the records up to sequence, or the whole list as of sequence (records is null then)
+    static final class Answer {
+        final long sequence;
+        final List<Record> records;
+        final TaskSnapshot tasks;
+        final Map<Integer, Long> deleted;
+
+        Answer(long sequence, List<Record> records, TaskSnapshot tasks, Map<Integer, Long> deleted) {
+            this.sequence = sequence;
+            this.records = records;
+            this.tasks = tasks;
+            this.deleted = deleted;
+        }
+
+        boolean isState() {
+            return records == null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import model.Task;
+
+// hands a ChangeFeed out to peers over TCP (FeedSubscriber is the other end). a peer connects, says hello
+// ([int MAGIC][int VERSION]) and then asks for the records after the last one it got, again and again:
+// [long epoch][long after][int max]. an answer waits up to a second for new records, so a peer that's
+// up to date hears about a change right away without asking all the time.
+// an answer is one or more frames [int length][long epoch][long sequence][byte flags][int count][records],
+// a record is [byte PUT][task record, like the journal's] or [byte DELETE][int id][long time].
+// STATE frames are the whole list instead of changes, MORE means another frame of the answer follows.
+// there's no authentication, it's bound to 127.0.0.1 unless told otherwise
+
+public class FeedServer {
+    static final int MAGIC = 0x54464544; // "TFED"
+    static final int VERSION = 1;
+    static final byte STATE = 1, MORE = 2;
+    static final int MAX_RECORDS = 4096; // per frame
+    private static final long POLL_MILLIS = 1000;
+
+    private final ChangeFeed feed;
+    private final Set<Socket> peers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService threads = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "feed-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocket server;
+
+    public FeedServer(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    // port 0 picks a free one, see getPort()
+    public void start(String host, int port) throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(host, port));
+        threads.execute(this::accept);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public void stop() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (Socket peer : peers) close(peer);
+        threads.shutdownNow();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket peer = server.accept();
+                peer.setTcpNoDelay(true);
+                peers.add(peer);
+                threads.execute(() -> serve(peer));
+            } catch (IOException e) {
+                if (!server.isClosed()) e.printStackTrace();
+            }
+        }
+    }
+
+    private void serve(Socket peer) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(peer.getInputStream()));
+            DataOutputStream out = new DataOutputStream(peer.getOutputStream());
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return; // not a peer, or one of another version
+            Frames frames = new Frames(out);
+            while (true) {
+                long epoch = in.readLong(), after = in.readLong();
+                int max = Math.max(1, Math.min(MAX_RECORDS, in.readInt()));
+                ChangeFeed.Answer answer = feed.read(epoch, after, max, POLL_MILLIS);
+                if (answer.isState()) frames.writeState(answer);
+                else frames.writeRecords(answer);
+            }
+        } catch (EOFException | SocketException e) {
+            // the peer went away (or we're stopping)
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            peers.remove(peer);
+            close(peer);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    // a frame is put together in memory first, its length goes in front of it
+    private final class Frames {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream frame = new ByteArrayOutputStream(1 << 16);
+        private final RecordWriter writer = new RecordWriter(Channels.newChannel(frame), 1 << 16);
+
+        Frames(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeRecords(ChangeFeed.Answer answer) throws IOException {
+            begin(answer.sequence, (byte) 0, answer.records.size());
+            for (ChangeFeed.Record record : answer.records) {
+                if (record.op == ChangeFeed.PUT) put(record.task);
+                else delete(record.id, record.time);
+            }
+            end();
+        }
+
+        // the tasks, then the deletes, MAX_RECORDS per frame
+        void writeState(ChangeFeed.Answer answer) throws IOException {
+            int total = answer.tasks.size() + answer.deleted.size();
+            int written = 0;
+            begin(answer.sequence, frameFlags(total, written), Math.min(MAX_RECORDS, total));
+            for (Task task : answer.tasks) {
+                put(task);
+                if (++written % MAX_RECORDS == 0) next(answer.sequence, total, written);
+            }
+            for (Map.Entry<Integer, Long> delete : answer.deleted.entrySet()) {
+                delete(delete.getKey(), delete.getValue());
+                if (++written % MAX_RECORDS == 0) next(answer.sequence, total, written);
+            }
+            if (written == 0 || written % MAX_RECORDS != 0) end();
+        }
+
+        private void next(long sequence, int total, int written) throws IOException {
+            end();
+            if (written < total) begin(sequence, frameFlags(total, written), Math.min(MAX_RECORDS, total - written));
+        }
+
+        private byte frameFlags(int total, int written) {
+            return (byte) (STATE | (total - written > MAX_RECORDS ? MORE : 0));
+        }
+
+        private void begin(long sequence, byte flags, int count) throws IOException {
+            writer.putLong(feed.getEpoch());
+            writer.putLong(sequence);
+            writer.putByte(flags);
+            writer.putInt(count);
+        }
+
+        private void put(Task task) throws IOException {
+            writer.putByte(ChangeFeed.PUT);
+            writer.putTask(task);
+        }
+
+        private void delete(int id, long time) throws IOException {
+            writer.putByte(ChangeFeed.DELETE);
+            writer.putInt(id);
+            writer.putLong(time);
+        }
+
+        private void end() throws IOException {
+            writer.flush();
+            out.writeInt(frame.size());
+            frame.writeTo(out);
+            out.flush();
+            frame.reset();
+        }
+    }
+}
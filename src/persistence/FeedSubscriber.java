@@ -0,0 +1,123 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import model.Task;
+
+// pulls a peer's change feed (a FeedServer) into ours, on a thread of its own. while the peer is down it
+// tries again every couple of seconds, and carries on after the last record it got from it
+// (or gets the whole list if the peer was restarted in the meantime, see ChangeFeed.read())
+
+public class FeedSubscriber {
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final long RETRY_MILLIS = 2000;
+    private static final int MAX_FRAME = 64 << 20;
+
+    private final ChangeFeed feed;
+    private final String host;
+    private final int port;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread thread;
+    // where we are in the peer's feed, only used on the thread
+    private long epoch, after;
+
+    public FeedSubscriber(ChangeFeed feed, String host, int port) {
+        this.feed = feed;
+        this.host = host;
+        this.port = port;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "feed-subscriber-" + host + ":" + port);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        Socket connected = socket;
+        if (connected != null) {
+            try {
+                connected.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket connected = new Socket()) {
+                socket = connected;
+                if (!running) return; // stopped before the socket was there to close
+                connected.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+                connected.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream()));
+                out.writeInt(FeedServer.MAGIC);
+                out.writeInt(FeedServer.VERSION);
+                while (running) {
+                    out.writeLong(epoch);
+                    out.writeLong(after);
+                    out.writeInt(FeedServer.MAX_RECORDS);
+                    out.flush();
+                    pull(in);
+                }
+            } catch (IOException e) {
+                if (!running) return;
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // the frames of one answer, each applied as it comes in
+    private void pull(DataInputStream in) throws IOException {
+        while (true) {
+            int length = in.readInt();
+            if (length < 21 || length > MAX_FRAME) throw new IOException("Bad feed frame length " + length);
+            byte[] frame = new byte[length];
+            in.readFully(frame);
+            RecordReader reader = RecordReader.wrap(ByteBuffer.wrap(frame));
+            long frameEpoch = reader.getLong(), sequence = reader.getLong();
+            byte flags = reader.getByte();
+            int count = reader.getInt();
+            List<ChangeFeed.Record> records = new ArrayList<>(Math.max(0, Math.min(count, FeedServer.MAX_RECORDS)));
+            for (int i = 0; i < count; i++) records.add(read(reader));
+            if (!records.isEmpty()) feed.apply(records);
+            if ((flags & FeedServer.MORE) == 0) {
+                epoch = frameEpoch;
+                after = sequence;
+                return;
+            }
+        }
+    }
+
+    private static ChangeFeed.Record read(RecordReader reader) throws IOException {
+        if (!reader.has(1)) throw new IOException("Cut off feed frame");
+        byte op = reader.getByte();
+        if (op == ChangeFeed.PUT) {
+            Task task = reader.getTask(TaskJournal.VERSION);
+            if (task == null) throw new IOException("Cut off feed frame");
+            return new ChangeFeed.Record(op, task, task.getId(), task.getUpdatedAt());
+        }
+        if (op != ChangeFeed.DELETE) throw new IOException("Unknown feed record " + op);
+        if (!reader.has(12)) throw new IOException("Cut off feed frame");
+        int id = reader.getInt();
+        return new ChangeFeed.Record(op, null, id, reader.getLong());
+    }
+}
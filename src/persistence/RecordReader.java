@@ -0,0 +1,87 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import model.Priority;
+import model.Task;
+
+// reads a whole journal or snapshot file (or a change feed frame) in one go, records are decoded straight
+// from the buffer.
+// a record that was cut off (crash in the middle of a write) reads as the end of the file
+
+class RecordReader {
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ByteBuffer buffer;
+
+    private RecordReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    static RecordReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+            buffer.flip();
+            return new RecordReader(buffer);
+        }
+    }
+
+    // a heap buffer, read from its position to its limit
+    static RecordReader wrap(ByteBuffer buffer) {
+        return new RecordReader(buffer);
+    }
+
+    boolean has(int bytes) {
+        return buffer.remaining() >= bytes;
+    }
+
+    // bytes read so far
+    int position() {
+        return buffer.position();
+    }
+
+    byte getByte() {
+        return buffer.get();
+    }
+
+    int getInt() {
+        return buffer.getInt();
+    }
+
+    long getLong() {
+        return buffer.getLong();
+    }
+
+    // null if the record isn't complete. version 1 records don't have the priority, due date and times,
+    // those tasks get the defaults
+    Task getTask(int version) {
+        if (!has(version == 1 ? 9 : RecordWriter.TASK_HEADER_SIZE)) return null;
+        int id = buffer.getInt();
+        boolean completed = buffer.get() != 0;
+        Priority priority = Priority.NORMAL;
+        long dueDate = Task.NO_DUE_DATE, createdAt = 0, updatedAt = 0;
+        if (version > 1) {
+            int ordinal = buffer.get();
+            if (ordinal >= 0 && ordinal < PRIORITIES.length) priority = PRIORITIES[ordinal];
+            dueDate = buffer.getLong();
+            createdAt = buffer.getLong();
+            updatedAt = buffer.getLong();
+        }
+        int length = buffer.getInt();
+        if (length < 0 || !has(length)) return null;
+        String description = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        Task task = new Task(id, description);
+        task.setCompleted(completed);
+        task.setPriority(priority);
+        task.setDueDate(dueDate);
+        task.setCreatedAt(createdAt);
+        task.setUpdatedAt(updatedAt);
+        return task;
+    }
+}
@@ -0,0 +1,72 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import model.Task;
+
+// buffers records and writes them to the channel in big chunks, shared by the journal, the snapshots
+// and the change feed.
+// a task record is [int id][byte completed][byte priority][long due date][long created][long updated]
+// [int length][utf-8 description], times in epoch millis. version 1 files had only the id, completed and description
+
+class RecordWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    static final int TASK_HEADER_SIZE = 34; // everything before the description
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+
+    RecordWriter(WritableByteChannel channel) {
+        this(channel, BUFFER_SIZE);
+    }
+
+    RecordWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void putByte(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    void putTask(Task task) throws IOException {
+        byte[] bytes = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        ensure(TASK_HEADER_SIZE + bytes.length);
+        buffer.putInt(task.getId());
+        buffer.put((byte) (task.isCompleted() ? 1 : 0));
+        buffer.put((byte) task.getPriority().ordinal());
+        buffer.putLong(task.getDueDate());
+        buffer.putLong(task.getCreatedAt());
+        buffer.putLong(task.getUpdatedAt());
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        flush();
+        // a single record bigger than the buffer gets a bigger buffer
+        if (buffer.capacity() < bytes) buffer = ByteBuffer.allocateDirect(bytes);
+    }
+}
@@ -0,0 +1,96 @@
+package persistence;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import model.Task;
+import util.Json;
+
+// writes tasks to a CSV or NDJSON file, one line at a time through a buffered channel writer.
+// like the snapshot it's written next to the file and moved over it when it's complete,
+// a cancelled or failed export leaves the old file alone.
+// times are ISO-8601 instants in UTC, in CSV a task without one has an empty field
+
+public class TaskExporter {
+    private static final int PROGRESS_INTERVAL = 4096; // tasks between progress calls
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // returns how many tasks were written, 0 if it was cancelled
+    public long export(List<Task> tasks, Path file, TaskFormat format, TransferListener listener) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean cancelled = false;
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE)) {
+            StringBuilder line = new StringBuilder(256);
+            if (format == TaskFormat.CSV) out.write("id,description,completed,priority,dueDate,createdAt,updatedAt\n");
+            for (Task task : tasks) {
+                line.setLength(0);
+                if (format == TaskFormat.CSV) {
+                    line.append(task.getId()).append(',');
+                    csvField(line, task.getDescription());
+                    line.append(',').append(task.isCompleted());
+                    line.append(',').append(task.getPriority().name().toLowerCase(Locale.ROOT));
+                    csvTime(line.append(','), task.hasDueDate() ? task.getDueDate() : 0);
+                    csvTime(line.append(','), task.getCreatedAt());
+                    csvTime(line.append(','), task.getUpdatedAt());
+                } else {
+                    Json.task(line, task);
+                }
+                out.append(line.append('\n'));
+                if (++count % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.progress(count, tasks.size(), count);
+                    if (listener.isCancelled()) {
+                        cancelled = true;
+                        break;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (cancelled) {
+            Files.deleteIfExists(temp);
+            return 0;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (listener != null) listener.progress(count, tasks.size(), count);
+        return count;
+    }
+
+    private static void csvTime(StringBuilder out, long epochMillis) {
+        if (epochMillis != 0) out.append(Instant.ofEpochMilli(epochMillis));
+    }
+
+    // quoted only when it has to be, quotes inside are doubled
+    private static void csvField(StringBuilder out, String value) {
+        boolean quote = value.isEmpty() || value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+        for (int i = 0; !quote && i < value.length(); i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,19 @@
+package persistence;
+
+import java.nio.file.Path;
+
+// the text formats tasks can be imported from and exported to, one task per record:
+//   CSV     id,description,completed with a header row, quoted like RFC 4180 ("a, ""b""")
+//   NDJSON  one {"id":1,"description":"...","completed":false} object per line (JSON Lines)
+
+public enum TaskFormat {
+    CSV, NDJSON;
+
+    // by the file's extension: .csv, or .ndjson/.jsonl
+    public static TaskFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Unknown task file format: " + file.getFileName());
+    }
+}
@@ -0,0 +1,310 @@
+package persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Priority;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import util.Json;
+
+// reads tasks from a CSV or NDJSON file into the model while the file is streamed, only one batch of tasks
+// is held on top of the model. the tasks go in with model.addTasks(), so observers see one change per batch
+// instead of one per task. batches grow with the model (a quarter of it, capped), because every batch
+// hands observers a copy of the whole list, and with a fixed size a big import would copy it over and over.
+//
+// with keepIds the ids in the file are used (a task with the same id is replaced) and the factory is moved
+// past them, otherwise every task gets a new id. records without an id always get a new one, and so do ids
+// too far past the factory's next one (see TaskFactory.MAX_ID_AHEAD), like ones from another program.
+// the priority, due date and times are optional, a task without a created time is created now.
+// if the file is bad or the import is cancelled, the batches before stay in the model
+
+public class TaskImporter {
+    private static final int MIN_BATCH_SIZE = 10_000;
+    private static final int MAX_BATCH_SIZE = 1 << 20;
+    private static final int PROGRESS_INTERVAL = 4096; // records between progress calls
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final TaskModel model;
+    private final TaskFactory taskFactory;
+
+    public TaskImporter(TaskModel model, TaskFactory taskFactory) {
+        this.model = model;
+        this.taskFactory = taskFactory;
+    }
+
+    // returns how many tasks were imported, less than the file has if it was cancelled
+    public long importFile(Path file, TaskFormat format, boolean keepIds, TransferListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE)) {
+            Import run = new Import(channel, keepIds, listener);
+            if (format == TaskFormat.CSV) run.csv(reader);
+            else run.ndjson(new BufferedReader(reader, BUFFER_SIZE));
+            return run.finish();
+        }
+    }
+
+    // the state of one importFile() call
+    private final class Import {
+        private final FileChannel channel;
+        private final long size;
+        private final boolean keepIds;
+        private final TransferListener listener;
+        private List<Task> batch = new ArrayList<>();
+        private int batchSize = MIN_BATCH_SIZE;
+        private long count;
+        private boolean cancelled;
+
+        Import(FileChannel channel, boolean keepIds, TransferListener listener) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.keepIds = keepIds;
+            this.listener = listener;
+        }
+
+        // a header row names the columns, without one they're id,description,completed,priority,dueDate,createdAt,updatedAt
+        void csv(Reader reader) throws IOException {
+            CsvReader csv = new CsvReader(reader);
+            int idColumn = 0, descriptionColumn = 1, completedColumn = 2;
+            int priorityColumn = 3, dueDateColumn = 4, createdAtColumn = 5, updatedAtColumn = 6;
+            boolean first = true;
+            while (!cancelled && csv.next()) {
+                List<String> fields = csv.fields;
+                if (first) {
+                    first = false;
+                    fields.set(0, stripBom(fields.get(0)));
+                    if (fields.stream().anyMatch(f -> f.trim().equalsIgnoreCase("description"))) {
+                        idColumn = descriptionColumn = completedColumn = -1;
+                        priorityColumn = dueDateColumn = createdAtColumn = updatedAtColumn = -1;
+                        for (int i = 0; i < fields.size(); i++) {
+                            String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                            if (name.equals("id")) idColumn = i;
+                            else if (name.equals("description")) descriptionColumn = i;
+                            else if (name.equals("completed")) completedColumn = i;
+                            else if (name.equals("priority")) priorityColumn = i;
+                            else if (name.equals("duedate")) dueDateColumn = i;
+                            else if (name.equals("createdat")) createdAtColumn = i;
+                            else if (name.equals("updatedat")) updatedAtColumn = i;
+                        }
+                        continue;
+                    }
+                    if (fields.size() == 1) {
+                        idColumn = completedColumn = -1; // a plain list of descriptions
+                        priorityColumn = dueDateColumn = createdAtColumn = updatedAtColumn = -1;
+                        descriptionColumn = 0;
+                    }
+                }
+                try {
+                    String id = column(fields, idColumn);
+                    String description = column(fields, descriptionColumn);
+                    String completed = column(fields, completedColumn);
+                    String priority = column(fields, priorityColumn);
+                    Task task = add(id == null || id.trim().isEmpty() ? -1 : parseId(id.trim()), description,
+                        completed != null && parseCompleted(completed.trim()));
+                    if (priority != null && !priority.trim().isEmpty()) task.setPriority(Priority.parse(priority));
+                    task.setDueDate(csvTime(column(fields, dueDateColumn), Task.NO_DUE_DATE));
+                    task.setCreatedAt(csvTime(column(fields, createdAtColumn), task.getCreatedAt()));
+                    task.setUpdatedAt(csvTime(column(fields, updatedAtColumn), task.getUpdatedAt()));
+                    added();
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + csv.recordLine + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        void ndjson(BufferedReader reader) throws IOException {
+            String line;
+            long lineNumber = 0;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                if (++lineNumber == 1) line = stripBom(line);
+                if (line.trim().isEmpty()) continue;
+                try {
+                    Object value = Json.parse(line);
+                    if (!(value instanceof Map)) throw new IllegalArgumentException("Expected a JSON object");
+                    Map<?, ?> object = (Map<?, ?>) value;
+                    Object id = object.get("id");
+                    Object description = object.get("description");
+                    Object completed = object.get("completed");
+                    if (id != null && !(id instanceof Long)) throw new IllegalArgumentException("id has to be a whole number");
+                    if (!(description instanceof String)) throw new IllegalArgumentException("description has to be a string");
+                    if (completed != null && !(completed instanceof Boolean)) throw new IllegalArgumentException("completed has to be true or false");
+                    Object priority = object.get("priority");
+                    if (priority != null && !(priority instanceof String)) throw new IllegalArgumentException("priority has to be a string");
+                    Task task = add(id == null ? -1 : checkId((Long) id), (String) description, Boolean.TRUE.equals(completed));
+                    if (priority != null) task.setPriority(Priority.parse((String) priority));
+                    task.setDueDate(Json.parseTime(object.get("dueDate")));
+                    if (object.get("createdAt") != null) task.setCreatedAt(Json.parseTime(object.get("createdAt")));
+                    if (object.get("updatedAt") != null) task.setUpdatedAt(Json.parseTime(object.get("updatedAt")));
+                    added();
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        // id is -1 for a record without one. the record's other fields are set on the task that's returned,
+        // then added() hands it on
+        private Task add(int id, String description, boolean completed) {
+            if (description == null || description.trim().isEmpty()) throw new IllegalArgumentException("The description is empty");
+            Task task;
+            if (keepIds && id >= 0 && taskFactory.isInRange(id)) {
+                task = new Task(id, description);
+                task.setCreatedAt(System.currentTimeMillis());
+                task.setUpdatedAt(task.getCreatedAt());
+                taskFactory.advanceTo(id + 1);
+            } else {
+                task = taskFactory.createTask(description); // stamped with the time
+            }
+            task.setCompleted(completed);
+            batch.add(task);
+            return task;
+        }
+
+        private void added() throws IOException {
+            count++;
+            if (batch.size() >= batchSize) flush();
+            if (count % PROGRESS_INTERVAL == 0) report();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            model.addTasks(batch);
+            batch = new ArrayList<>();
+            batchSize = Math.min(MAX_BATCH_SIZE, Math.max(MIN_BATCH_SIZE, model.getTaskCount() / 4));
+        }
+
+        private void report() throws IOException {
+            if (listener == null) return;
+            listener.progress(channel.position(), size, count);
+            if (listener.isCancelled()) cancelled = true;
+        }
+
+        long finish() throws IOException {
+            flush();
+            if (listener != null) listener.progress(cancelled ? channel.position() : size, size, count);
+            return count;
+        }
+    }
+
+    // spreadsheet programs like to start their UTF-8 files with one
+    private static String stripBom(String text) {
+        return text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+
+    private static String column(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    // an empty or missing field is the default
+    private static long csvTime(String text, long missing) {
+        return text == null || text.trim().isEmpty() ? missing : Json.parseTime(text);
+    }
+
+    private static int parseId(String text) {
+        try {
+            return checkId(Long.parseLong(text));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a task id: " + text);
+        }
+    }
+
+    private static int checkId(long id) {
+        if (id < 0 || id >= Integer.MAX_VALUE) throw new IllegalArgumentException("Not a task id: " + id);
+        return (int) id;
+    }
+
+    private static boolean parseCompleted(String text) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "": case "false": case "0": case "no": return false;
+            case "true": case "1": case "yes": case "x": return true;
+            default: throw new IllegalArgumentException("completed has to be true or false: " + text);
+        }
+    }
+
+    // one CSV record at a time. quoted fields may have commas, doubled quotes and line breaks in them
+    private static final class CsvReader {
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position, length;
+        private final StringBuilder field = new StringBuilder();
+        final List<String> fields = new ArrayList<>();
+        long line = 1, recordLine;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        // false at the end of the input, blank lines are skipped
+        boolean next() throws IOException {
+            fields.clear();
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                if (c == '\n') line++;
+                c = read();
+            }
+            if (c < 0) return false;
+            recordLine = line;
+            while (true) {
+                field.setLength(0);
+                if (c == '"') {
+                    while (true) {
+                        c = read();
+                        if (c < 0) throw new IOException("Line " + recordLine + ": a quoted field isn't closed");
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') break;
+                        } else if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        field.append((char) c);
+                        c = read();
+                    }
+                }
+                fields.add(field.toString());
+                if (c == ',') {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r' && peek() == '\n') c = read();
+                if (c == '\n') line++;
+                if (c < 0 || c == '\n' || c == '\r') return true;
+                throw new IOException("Line " + line + ": text after a quoted field");
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == length && !fill()) return -1;
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == length && !fill()) return -1;
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) return false;
+            position = 0;
+            length = read;
+            return true;
+        }
+    }
+}
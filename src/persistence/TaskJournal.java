@@ -0,0 +1,182 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import model.Task;
+import model.TaskEvent;
+import model.TaskObserver;
+
+// append-only log of every change to the model, it observes the model like the view does.
+// the changes are written by a background thread: whatever queued up while the last write was
+// going on is written and forced to disk together (group commit), so a burst of changes costs one fsync.
+// a record is [byte op][task record], every op sets a value, so replaying the journal over a newer
+// snapshot still ends in the right state. an op only applies its own fields (EDIT the description,
+// SCHEDULE the priority and due date, ...) and the updated time
+
+class TaskJournal implements TaskObserver {
+    static final int MAGIC = 0x544A4E4C; // "TJNL"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final byte ADD = 1, EDIT = 2, COMPLETE = 3, DELETE = 4, SCHEDULE = 5;
+
+    // after this many records a snapshot is written and the journal starts over, so replay stays short
+    private static final int SNAPSHOT_EVERY = 100_000;
+
+    private static final Entry CLOSE = new Entry((byte) 0, new Task(0, ""));
+    private static final Entry COMPACT = new Entry((byte) 0, new Task(0, ""));
+
+    // a copy of the task at the time of the change, the task object itself can change afterwards
+    private static class Entry {
+        final byte op;
+        final Task task;
+
+        Entry(byte op, Task task) {
+            this.op = op;
+            this.task = task;
+        }
+    }
+
+    // writes a snapshot of the model, called on the writer thread before the journal is cleared
+    interface Compaction {
+        void writeSnapshot() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final RecordWriter writer;
+    private final Compaction compaction;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private int recordsSinceSnapshot;
+
+    TaskJournal(Path file, Compaction compaction) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writer = new RecordWriter(channel);
+        this.compaction = compaction;
+        if (channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            writeHeader();
+        }
+        channel.position(channel.size());
+
+        writerThread = new Thread(this::writeLoop, "task-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void update() {
+        // the journal only records single changes, see taskChanged()
+    }
+
+    @Override
+    public void taskChanged(TaskEvent event) {
+        Task task = event.getTask();
+        switch (event.getType()) {
+            case TASK_ADDED:
+                queue.add(new Entry(ADD, task)); // the model doesn't change a task it handed out, no copy needed
+                break;
+            case TASK_REMOVED:
+                queue.add(new Entry(DELETE, new Task(task.getId(), "")));
+                break;
+            case TASK_UPDATED:
+                // a task that was replaced as a whole (TaskModel.addTask()) is stored as a whole, ADD replaces it
+                if (event.getChangedFields().size() == TaskEvent.Field.values().length) {
+                    queue.add(new Entry(ADD, task));
+                    break;
+                }
+                if (event.getChangedFields().contains(TaskEvent.Field.DESCRIPTION)) queue.add(new Entry(EDIT, task));
+                if (event.getChangedFields().contains(TaskEvent.Field.COMPLETED)) queue.add(new Entry(COMPLETE, task));
+                if (event.getChangedFields().contains(TaskEvent.Field.PRIORITY)
+                        || event.getChangedFields().contains(TaskEvent.Field.DUE_DATE)) {
+                    queue.add(new Entry(SCHEDULE, task));
+                }
+                break;
+            case TASKS_CHANGED:
+                for (TaskEvent change : event.getChanges()) taskChanged(change);
+                break;
+            default:
+                break; // the sort order and reminders aren't stored
+        }
+    }
+
+    // asks the writer thread for a snapshot, e.g. after loading a long journal
+    void compact() {
+        queue.add(COMPACT);
+    }
+
+    // writes what's left, takes a last snapshot (so the next start only reads that) and stops
+    void close() {
+        queue.add(CLOSE);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group);
+
+                boolean compact = false;
+                int written = 0;
+                for (Entry entry : group) {
+                    if (entry == CLOSE) {
+                        running = false;
+                        compact = true;
+                    } else if (entry == COMPACT) {
+                        compact = true;
+                    } else {
+                        writer.putByte(entry.op);
+                        writer.putTask(entry.task);
+                        written++;
+                    }
+                }
+                group.clear();
+
+                if (written > 0) {
+                    writer.flush();
+                    channel.force(false);
+                    recordsSinceSnapshot += written;
+                }
+                if (compact || recordsSinceSnapshot >= SNAPSHOT_EVERY) {
+                    // anything queued after this point ends up in the fresh journal
+                    compaction.writeSnapshot();
+                    channel.truncate(0);
+                    writeHeader();
+                    recordsSinceSnapshot = 0;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+    }
+}
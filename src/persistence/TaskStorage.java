@@ -0,0 +1,245 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+
+// keeps the tasks on disk: a snapshot of all tasks plus a journal of the changes made since.
+// open() reads both back into the model and restores the id counter, from then on every change
+// goes into the journal and the journal is folded into a new snapshot now and then.
+// files of an older version are still read, they're replaced by ones in the current version on open()
+
+public class TaskStorage {
+    private static final String SNAPSHOT_FILE = "tasks.snapshot";
+    private static final String JOURNAL_FILE = "tasks.journal";
+    private static final int SNAPSHOT_MAGIC = 0x54534E50; // "TSNP"
+    private static final int SNAPSHOT_VERSION = 2;
+    // the tasks go into the model in batches, a view that shows it already fills up batch by batch. every batch
+    // ends with the order of all tasks so far, each one four times as big as the last keeps that work to a third more
+    private static final int FIRST_LOAD_BATCH = 4096, LOAD_BATCH_GROWTH = 4;
+
+    private final Path directory;
+    private TaskModel model;
+    private TaskFactory taskFactory;
+    private TaskJournal journal;
+    private int journalVersion; // of the journal that was replayed, 0 if there was none
+
+    public TaskStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    // ~/.taskmanager unless -Dtaskmanager.dir says otherwise
+    public static Path defaultDirectory() {
+        String dir = System.getProperty("taskmanager.dir");
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".taskmanager");
+    }
+
+    public void open(TaskModel model, TaskFactory taskFactory) throws IOException {
+        this.model = model;
+        this.taskFactory = taskFactory;
+        Files.createDirectories(directory);
+
+        ArrayList<Task> tasks = new ArrayList<>();
+        int nextId = readSnapshot(tasks);
+        int journalRecords = replayJournal(tasks);
+        for (Task task : tasks) {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        taskFactory.advanceTo(nextId);
+        for (int i = 0, batch = FIRST_LOAD_BATCH; i < tasks.size(); i += batch, batch *= LOAD_BATCH_GROWTH) {
+            model.addTasks(tasks.subList(i, Math.min(tasks.size(), i + batch)));
+        }
+
+        // new records can't go after ones of an older version, so that journal is folded into a snapshot first
+        if (journalVersion != 0 && journalVersion != TaskJournal.VERSION) {
+            writeSnapshot();
+            Files.delete(directory.resolve(JOURNAL_FILE));
+            journalRecords = 0;
+        }
+
+        journal = new TaskJournal(directory.resolve(JOURNAL_FILE), this::writeSnapshot);
+        model.addObserver(journal);
+        // a long journal (e.g. after a crash) is folded into a snapshot right away, in the background
+        if (journalRecords > 0) journal.compact();
+    }
+
+    public void close() {
+        if (journal == null) return;
+        model.removeObserver(journal);
+        journal.close();
+        journal = null;
+    }
+
+    // returns the next id that was stored with the snapshot
+    private int readSnapshot(ArrayList<Task> tasks) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.isRegularFile(file)) return 1;
+
+        RecordReader reader = RecordReader.open(file);
+        if (!reader.has(16) || reader.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a task snapshot: " + file);
+        int version = reader.getInt();
+        if (version < 1 || version > SNAPSHOT_VERSION) throw new IOException("Task snapshot of an unknown version " + version + ": " + file);
+        int nextId = reader.getInt();
+        int count = reader.getInt();
+        tasks.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Task task = reader.getTask(version);
+            if (task == null) throw new IOException("Task snapshot is cut off: " + file);
+            tasks.add(task);
+        }
+        return nextId;
+    }
+
+    // applies the journal on top of the snapshot tasks, returns the number of records that were replayed
+    private int replayJournal(List<Task> tasks) throws IOException {
+        Path file = directory.resolve(JOURNAL_FILE);
+        if (!Files.isRegularFile(file)) return 0;
+
+        RecordReader reader = RecordReader.open(file);
+        if (!reader.has(TaskJournal.HEADER_SIZE)) return 0; // the header didn't make it, the journal starts over
+        if (reader.getInt() != TaskJournal.MAGIC) throw new IOException("Not a task journal: " + file);
+        int version = reader.getInt();
+        if (version < 1 || version > TaskJournal.VERSION) throw new IOException("Task journal of an unknown version " + version + ": " + file);
+        journalVersion = version;
+
+        // nothing written since the snapshot (the usual start after a clean close), the tasks stay as they are
+        if (!reader.has(1)) return 0;
+
+        TasksById byId = new TasksById(tasks);
+        int records = 0, end = reader.position(); // end of the last whole record
+        while (reader.has(1)) {
+            byte op = reader.getByte();
+            Task record = reader.getTask(version);
+            if (record == null) break; // last write didn't make it
+            Task task = byId.get(record.getId());
+            switch (op) {
+                case TaskJournal.ADD: byId.put(record); break;
+                case TaskJournal.EDIT: if (task != null) task.setDescription(record.getDescription()); break;
+                case TaskJournal.COMPLETE: if (task != null) task.setCompleted(record.isCompleted()); break;
+                case TaskJournal.SCHEDULE:
+                    if (task != null) {
+                        task.setPriority(record.getPriority());
+                        task.setDueDate(record.getDueDate());
+                    }
+                    break;
+                case TaskJournal.DELETE: byId.remove(record.getId()); break;
+                default: throw new IOException("Unknown journal record " + op + " in " + file);
+            }
+            // version 1 records have no times, the task keeps the ones it had
+            if (task != null && op != TaskJournal.DELETE && version > 1) task.setUpdatedAt(record.getUpdatedAt());
+            records++;
+            end = reader.position();
+        }
+        byId.removeDeleted();
+        // the new records go after the last whole one, not after what's left of one that was cut off
+        if (reader.has(1) || end < reader.position()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        return records;
+    }
+
+    // written next to the old one and moved over it, so there's always one complete snapshot
+    private void writeSnapshot() throws IOException {
+        List<Task> tasks = model.getTasks();
+        int nextId = taskFactory.getNextId();
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            RecordWriter writer = new RecordWriter(channel);
+            writer.putInt(SNAPSHOT_MAGIC);
+            writer.putInt(SNAPSHOT_VERSION);
+            writer.putInt(nextId);
+            writer.putInt(tasks.size());
+            for (Task task : tasks) {
+                writer.putTask(task);
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // the tasks in the list by id, for replaying the journal on them without a boxed map entry per task.
+    // ids are dense, so it's the task's position in the list in an array indexed by id. an id far past the
+    // others (an import that kept its ids) goes into a small map instead, like in model.HeapTaskStore.
+    // a deleted task leaves a null in the list until removeDeleted(), an added one goes at the end
+    private static final class TasksById {
+        private final List<Task> tasks;
+        private int[] positions; // position + 1 by id, 0 when there's no task with that id
+        private final Map<Integer, Integer> overflow = new HashMap<>();
+        private boolean deleted;
+
+        TasksById(List<Task> tasks) {
+            this.tasks = tasks;
+            // as far as the highest id, unless that's way past what the number of tasks needs
+            long limit = Math.max(1024, tasks.size() * 4L);
+            int highest = 0;
+            for (Task task : tasks) {
+                if (task.getId() < limit) highest = Math.max(highest, task.getId());
+            }
+            positions = new int[Math.max(16, highest + 1)];
+            for (int i = 0; i < tasks.size(); i++) {
+                setPosition(tasks.get(i).getId(), i);
+            }
+        }
+
+        Task get(int id) {
+            int position = position(id);
+            return position < 0 ? null : tasks.get(position);
+        }
+
+        // adds the task, or replaces the one with its id
+        void put(Task task) {
+            int position = position(task.getId());
+            if (position >= 0) {
+                tasks.set(position, task);
+            } else {
+                setPosition(task.getId(), tasks.size());
+                tasks.add(task);
+            }
+        }
+
+        void remove(int id) {
+            int position = position(id);
+            if (position < 0) return;
+            tasks.set(position, null);
+            if (id >= 0 && id < positions.length) positions[id] = 0;
+            else overflow.remove(id);
+            deleted = true;
+        }
+
+        void removeDeleted() {
+            if (deleted) tasks.removeIf(Objects::isNull);
+        }
+
+        private int position(int id) {
+            if (id >= 0 && id < positions.length) return positions[id] - 1;
+            Integer position = overflow.get(id);
+            return position == null ? -1 : position;
+        }
+
+        private void setPosition(int id, int position) {
+            // the next ids after the last one grow the array, ones way out stay in the map
+            if (id >= positions.length && id < positions.length * 2) positions = Arrays.copyOf(positions, positions.length * 2);
+            if (id >= 0 && id < positions.length) positions[id] = position + 1;
+            else overflow.put(id, position);
+        }
+    }
+}
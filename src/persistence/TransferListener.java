@@ -0,0 +1,13 @@
+package persistence;
+
+// hooks for a running import or export, called on the thread doing it every few thousand tasks.
+// done and total count bytes for an import and tasks for an export, total is -1 if it isn't known
+
+public interface TransferListener {
+    void progress(long done, long total, long tasks);
+
+    // checked along with progress(), the transfer stops soon after this turns true
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,523 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import model.Priority;
+import model.Task;
+import model.TaskModel;
+import model.TaskQuery;
+import model.TaskQueryResult;
+import controller.TaskController;
+import metrics.LatencyHistogram;
+import metrics.LatencySnapshot;
+import metrics.Metrics;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.PriorityDueSortStrategy;
+import strategy.StatusSortStrategy;
+import strategy.TaskSortStrategy;
+import util.Json;
+
+// the task manager without a window: the controller's operations as a small HTTP/JSON API.
+// reads go to the model, changes go through the controller like the view's do, so they can be undone.
+//
+//   GET    /tasks?offset=&limit=&completed=&q=&from=&to=   tasks in the current order, streamed
+//   POST   /tasks             {"description": "...", "priority": "high", "dueDate": "2024-05-01T09:00:00Z"}
+//   GET    /tasks/{id}        with the task's version as its ETag
+//   PATCH  /tasks/{id}        {"description": "...", "completed": true, "priority": "...", "dueDate": ...}, all optional,
+//                             changed as one step
+//   GET    /tasks/due?limit=      pending tasks that aren't overdue yet, the soonest due first
+//   GET    /tasks/overdue?limit=  pending tasks past their due date, the longest overdue first
+//   DELETE /tasks/{id}
+//   POST   /tasks/bulk        {"add": ["..."], "delete": [ids], "completeAll": true}, undone as one step
+//   GET    /sort, PUT /sort   {"strategy": "id" | "status" | "alphabetical" | "status-alphabetical" | "priority"}
+//
+// priorities are "low", "normal", "high" and "urgent", times are ISO-8601 instants (or epoch millis),
+// a dueDate of null clears it. PATCH and DELETE with If-Match: "<version>" only change the task if it's still
+// that version, 412 with the task as it is now if it was changed meanwhile
+//   POST   /undo?steps=, POST /redo?steps=
+//   GET    /stats
+//   GET    /metrics           the latencies (microseconds) and counters of metrics.Metrics
+//
+// requests are handled on virtual threads where the JVM has them (21+), on a thread pool otherwise
+
+public class TaskServer {
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int STREAM_BUFFER = 1 << 16;
+    private static final int DUE_LIMIT = 100; // tasks per /tasks/due or /tasks/overdue without a limit
+    private static final long ANY_VERSION = -1; // no If-Match
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.latency("server.request");
+
+    private final TaskModel model;
+    private final TaskController controller;
+    private final Map<String, TaskSortStrategy> sortStrategies = new HashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public TaskServer(TaskModel model, TaskController controller) {
+        this.model = model;
+        this.controller = controller;
+        // the same instances every time, so the model reuses its sorted index for each
+        sortStrategies.put("id", new IdSortStrategy());
+        sortStrategies.put("status", new StatusSortStrategy());
+        sortStrategies.put("alphabetical", new AlphabeticalSortStrategy());
+        sortStrategies.put("status-alphabetical", new StatusSortStrategy().thenBy(new AlphabeticalSortStrategy()));
+        sortStrategies.put("priority", new PriorityDueSortStrategy());
+    }
+
+    public void start(String host, int port) throws IOException {
+        // without it small responses wait for the client's delayed ack, ~40ms per request on keep-alive connections.
+        // read once when the JDK's server is first used, so it has to be set before that
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", this::handleTasks);
+        server.createContext("/sort", this::handleSort);
+        server.createContext("/undo", exchange -> handleHistory(exchange, true));
+        server.createContext("/redo", exchange -> handleHistory(exchange, false));
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    // the port actually bound, for port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // before Java 21. the handlers are short, a few threads per core cover clients that read slowly
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), r -> {
+                Thread thread = new Thread(r, "task-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // routing
+
+    private void handleTasks(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/tasks") || path.equals("/tasks/")) {
+                if (method.equals("GET")) listTasks(exchange);
+                else if (method.equals("POST")) addTask(exchange);
+                else methodNotAllowed(exchange);
+            } else if (path.equals("/tasks/bulk")) {
+                if (method.equals("POST")) bulk(exchange);
+                else methodNotAllowed(exchange);
+            } else if (path.equals("/tasks/due") || path.equals("/tasks/overdue")) {
+                if (method.equals("GET")) dueTasks(exchange, path.endsWith("overdue"));
+                else methodNotAllowed(exchange);
+            } else if (path.startsWith("/tasks/")) {
+                int id = parseId(path.substring("/tasks/".length()));
+                if (method.equals("GET")) getTask(exchange, id);
+                else if (method.equals("PATCH") || method.equals("PUT")) updateTask(exchange, id);
+                else if (method.equals("DELETE")) deleteTask(exchange, id);
+                else methodNotAllowed(exchange);
+            } else {
+                notFound(exchange);
+            }
+        });
+    }
+
+    private void handleSort(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!exchange.getRequestURI().getPath().equals("/sort")) {
+                notFound(exchange);
+            } else if (exchange.getRequestMethod().equals("GET")) {
+                sendSort(exchange);
+            } else if (exchange.getRequestMethod().equals("PUT") || exchange.getRequestMethod().equals("POST")) {
+                Object name = body(exchange).get("strategy");
+                TaskSortStrategy strategy = sortStrategies.get(name);
+                if (strategy == null) throw new IllegalArgumentException("Unknown sort strategy: " + name);
+                controller.setSortStrategy(strategy);
+                sendSort(exchange);
+            } else {
+                methodNotAllowed(exchange);
+            }
+        });
+    }
+
+    private void handleHistory(HttpExchange exchange, boolean undo) throws IOException {
+        handle(exchange, () -> {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                methodNotAllowed(exchange);
+                return;
+            }
+            String steps = query(exchange).get("steps");
+            int count = steps == null ? 1 : parseInt(steps, "steps");
+            int done = undo ? controller.undo(count) : controller.redo(count);
+            send(exchange, 200, new StringBuilder("{\"steps\":").append(done)
+                .append(",\"canUndo\":").append(controller.canUndo())
+                .append(",\"canRedo\":").append(controller.canRedo()).append('}'));
+        });
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                methodNotAllowed(exchange);
+                return;
+            }
+            send(exchange, 200, new StringBuilder("{\"tasks\":").append(model.getTaskCount())
+                .append(",\"pending\":").append(model.getPendingCount())
+                .append(",\"completed\":").append(model.getCompletedCount()).append('}'));
+        });
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                methodNotAllowed(exchange);
+                return;
+            }
+            StringBuilder out = new StringBuilder("{\"latencies\":{");
+            for (Map.Entry<String, LatencySnapshot> entry : Metrics.latencies().entrySet()) {
+                LatencySnapshot s = entry.getValue();
+                if (out.charAt(out.length() - 1) != '{') out.append(',');
+                Json.string(out, entry.getKey());
+                out.append(":{\"count\":").append(s.getCount())
+                    .append(",\"mean\":").append(s.getMeanMicros())
+                    .append(",\"p50\":").append(s.getP50Micros())
+                    .append(",\"p90\":").append(s.getP90Micros())
+                    .append(",\"p99\":").append(s.getP99Micros())
+                    .append(",\"p999\":").append(s.getP999Micros())
+                    .append(",\"max\":").append(s.getMaxMicros()).append('}');
+            }
+            out.append("},\"counters\":{");
+            for (Map.Entry<String, Long> entry : Metrics.counters().entrySet()) {
+                if (out.charAt(out.length() - 1) != '{') out.append(',');
+                Json.string(out, entry.getKey());
+                out.append(':').append(entry.getValue());
+            }
+            send(exchange, 200, out.append("}}"));
+        });
+    }
+
+    // endpoints
+
+    // the page is written as the result is read, a big list never sits in memory as one string
+    private void listTasks(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        TaskQuery taskQuery = TaskQuery.all();
+        if (query.containsKey("completed")) taskQuery = taskQuery.completed(parseBoolean(query.get("completed"), "completed"));
+        if (query.containsKey("q")) taskQuery = taskQuery.text(query.get("q"));
+        if (query.containsKey("from") || query.containsKey("to")) {
+            int from = query.containsKey("from") ? parseInt(query.get("from"), "from") : 0;
+            int to = query.containsKey("to") ? parseInt(query.get("to"), "to") : Integer.MAX_VALUE;
+            taskQuery = taskQuery.idRange(from, to);
+        }
+        if (query.containsKey("offset")) taskQuery = taskQuery.offset(parseInt(query.get("offset"), "offset"));
+        if (query.containsKey("limit")) taskQuery = taskQuery.limit(parseInt(query.get("limit"), "limit"));
+        TaskQueryResult result = model.query(taskQuery);
+
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0); // chunked
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER)) {
+            StringBuilder line = new StringBuilder(256);
+            line.append("{\"total\":").append(result.getTotalCount())
+                .append(",\"offset\":").append(taskQuery.getOffset()).append(",\"tasks\":[");
+            boolean first = true;
+            for (Task task : result) {
+                if (!first) line.append(',');
+                first = false;
+                Json.task(line, task);
+                out.append(line);
+                line.setLength(0);
+            }
+            out.append(line).append("]}");
+        }
+    }
+
+    // with a priority or due date it's added and scheduled as one step
+    private void addTask(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = body(exchange);
+        String description = description(body.get("description"));
+        Priority priority = body.containsKey("priority") ? priority(body.get("priority")) : Priority.NORMAL;
+        long dueDate = Json.parseTime(body.get("dueDate"));
+        Task[] task = new Task[1];
+        if (priority == Priority.NORMAL && dueDate == Task.NO_DUE_DATE) {
+            task[0] = controller.addTask(description);
+        } else {
+            controller.batch(() -> {
+                task[0] = controller.addTask(description);
+                controller.scheduleTask(task[0], priority, dueDate);
+            });
+        }
+        sendTask(exchange, 201, model.getTask(task[0].getId()));
+    }
+
+    private void dueTasks(HttpExchange exchange, boolean overdue) throws IOException {
+        Map<String, String> query = query(exchange);
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DUE_LIMIT;
+        List<Task> tasks = overdue ? model.getOverdue(limit) : model.getNextDue(limit);
+        StringBuilder out = new StringBuilder("{\"tasks\":[");
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i > 0) out.append(',');
+            Json.task(out, tasks.get(i));
+        }
+        send(exchange, 200, out.append("]}"));
+    }
+
+    private void getTask(HttpExchange exchange, int id) throws IOException {
+        sendTask(exchange, 200, model.getTask(id));
+    }
+
+    private void updateTask(HttpExchange exchange, int id) throws IOException {
+        Map<String, Object> body = body(exchange);
+        long expectedVersion = ifMatch(exchange);
+        // everything is checked before anything changes
+        String description = body.containsKey("description") ? description(body.get("description")) : null;
+        Object completed = body.get("completed");
+        if (body.containsKey("completed") && !(completed instanceof Boolean)) {
+            throw new IllegalArgumentException("completed has to be true or false");
+        }
+        Priority priority = body.containsKey("priority") ? priority(body.get("priority")) : null;
+        boolean schedule = priority != null || body.containsKey("dueDate");
+        long dueDate = Json.parseTime(body.get("dueDate"));
+
+        // in one batch the task can't change between the version check and the changes
+        Task[] found = new Task[1];
+        boolean[] conflict = new boolean[1];
+        controller.batch(() -> {
+            Task task = model.getTask(id);
+            found[0] = task;
+            if (task == null) return;
+            if (expectedVersion != ANY_VERSION && task.getVersion() != expectedVersion) {
+                conflict[0] = true;
+                return;
+            }
+            if (description != null) controller.editTask(task, description);
+            if (completed != null) controller.setTaskCompleted(task, (Boolean) completed);
+            if (schedule) {
+                Task current = model.getTask(id);
+                controller.scheduleTask(current, priority != null ? priority : current.getPriority(),
+                    body.containsKey("dueDate") ? dueDate : current.getDueDate());
+            }
+        });
+        if (found[0] == null) notFound(exchange);
+        else sendTask(exchange, conflict[0] ? 412 : 200, model.getTask(id));
+    }
+
+    private void deleteTask(HttpExchange exchange, int id) throws IOException {
+        long expectedVersion = ifMatch(exchange);
+        Task task = model.getTask(id);
+        if (task == null) {
+            notFound(exchange);
+            return;
+        }
+        if (expectedVersion == ANY_VERSION) {
+            controller.deleteTask(task);
+        } else if (task.getVersion() != expectedVersion || !controller.tryDeleteTask(task)) {
+            sendTask(exchange, 412, model.getTask(id));
+            return;
+        }
+        send(exchange, 204, null);
+    }
+
+    private void bulk(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = body(exchange);
+        List<String> add = new ArrayList<>();
+        for (Object description : list(body.get("add"), "add")) add.add(description(description));
+        List<Task> delete = new ArrayList<>();
+        for (Object id : list(body.get("delete"), "delete")) {
+            if (!(id instanceof Long) || (Long) id < 0 || (Long) id > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a task id: " + id);
+            }
+            delete.add(new Task((int) (long) (Long) id, ""));
+        }
+        boolean completeAll = Boolean.TRUE.equals(body.get("completeAll"));
+
+        List<List<Task>> added = new ArrayList<>(1);
+        controller.batch(() -> {
+            if (!delete.isEmpty()) controller.deleteTasks(delete);
+            if (!add.isEmpty()) added.add(controller.addTasks(add));
+            if (completeAll) controller.markAllCompleted();
+        });
+
+        StringBuilder out = new StringBuilder("{\"added\":[");
+        if (!added.isEmpty()) {
+            boolean first = true;
+            for (Task task : added.get(0)) {
+                Task stored = model.getTask(task.getId()); // the model's copy, with its version
+                if (stored == null) continue;
+                if (!first) out.append(',');
+                first = false;
+                Json.task(out, stored);
+            }
+        }
+        send(exchange, 200, out.append("]}"));
+    }
+
+    private void sendSort(HttpExchange exchange) throws IOException {
+        String current = null;
+        for (Map.Entry<String, TaskSortStrategy> entry : sortStrategies.entrySet()) {
+            if (entry.getValue() == model.getSortStrategy()) current = entry.getKey();
+        }
+        StringBuilder out = new StringBuilder("{\"strategy\":");
+        if (current == null) out.append("null");
+        else Json.string(out, current);
+        out.append(",\"name\":");
+        Json.string(out, model.getSortStrategy().getName());
+        send(exchange, 200, out.append('}'));
+    }
+
+    // helpers
+
+    private interface Handler {
+        void run() throws IOException;
+    }
+
+    // bad input is the client's fault (400), anything else is ours (500)
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            handler.run();
+        } catch (IllegalArgumentException | ClassCastException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+            REQUEST_LATENCY.recordSince(start);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // 404 if it's gone, otherwise with its version as the ETag
+    private static void sendTask(HttpExchange exchange, int status, Task task) throws IOException {
+        if (task == null) {
+            notFound(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + task.getVersion() + "\"");
+        send(exchange, status, Json.task(new StringBuilder(), task));
+    }
+
+    // the version in an If-Match header, ANY_VERSION without one (or for *)
+    private static long ifMatch(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("If-Match");
+        if (value == null || value.trim().equals("*")) return ANY_VERSION;
+        String version = value.trim();
+        if (version.startsWith("W/")) version = version.substring(2);
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) version = version.substring(1, version.length() - 1);
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match has to be a task version: " + value);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        // too late if the headers of a streamed list are already out, the client sees a cut off body
+        if (exchange.getResponseCode() != -1) return;
+        send(exchange, status, Json.string(new StringBuilder("{\"error\":"), message == null ? "" : message).append('}'));
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, 404, "Not found");
+    }
+
+    private static void methodNotAllowed(HttpExchange exchange) throws IOException {
+        sendError(exchange, 405, "Method not allowed");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        String text = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Object value = Json.parse(text);
+        if (!(value instanceof Map)) throw new IllegalArgumentException("Expected a JSON object");
+        return (Map<String, Object>) value;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return parameters;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static List<?> list(Object value, String name) {
+        if (value == null) return List.of();
+        if (!(value instanceof List)) throw new IllegalArgumentException(name + " has to be an array");
+        return (List<?>) value;
+    }
+
+    private static Priority priority(Object value) {
+        if (!(value instanceof String)) throw new IllegalArgumentException("priority has to be low, normal, high or urgent");
+        return Priority.parse((String) value);
+    }
+
+    private static String description(Object value) {
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            throw new IllegalArgumentException("description has to be a non-empty string");
+        }
+        return ((String) value).trim();
+    }
+
+    private static int parseId(String text) {
+        int id = parseInt(text, "id");
+        if (id < 0) throw new IllegalArgumentException("Not a task id: " + text);
+        return id;
+    }
+
+    private static int parseInt(String text, String name) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " has to be a number: " + text);
+        }
+    }
+
+    private static boolean parseBoolean(String text, String name) {
+        if (text.equals("true")) return true;
+        if (text.equals("false")) return false;
+        throw new IllegalArgumentException(name + " has to be true or false: " + text);
+    }
+}
@@ -1,21 +1,26 @@
 package strategy;
 
 import model.Task;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
 
 public class AlphabeticalSortStrategy implements TaskSortStrategy {
+    // compares the case-folded key cached on the task, instead of folding every character on every comparison
+    private static final Comparator<Task> BY_DESCRIPTION = (a, b) -> a.getDescriptionKey().compareTo(b.getDescriptionKey());
+    // ties are broken by id so the order (and the positions in events) stay stable
+    private static final Comparator<Task> BY_DESCRIPTION_THEN_ID = BY_DESCRIPTION.thenComparingInt(Task::getId);
     
     @Override
-    public List<Task> sort(List<Task> tasks) {
-        List<Task> sortedTasks = new ArrayList<>(tasks);
-        sortedTasks.sort(Comparator.comparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER));
-        return sortedTasks;
+    public Comparator<Task> getKeyComparator() {
+        return BY_DESCRIPTION;
+    }
+    
+    @Override
+    public Comparator<Task> getComparator() {
+        return BY_DESCRIPTION_THEN_ID;
     }
     
     @Override
     public String getName() {
         return "Alphabetically";
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package strategy;
+
+import model.Task;
+import java.util.Comparator;
+
+// sorts by the keys of several strategies in order, ties on all of them are broken by id
+
+public class CompositeSortStrategy implements TaskSortStrategy {
+    private final Comparator<Task> keyComparator;
+    private final Comparator<Task> comparator;
+    private final String name;
+
+    public CompositeSortStrategy(TaskSortStrategy first, TaskSortStrategy... rest) {
+        Comparator<Task> keys = first.getKeyComparator();
+        StringBuilder names = new StringBuilder(first.getName());
+        for (TaskSortStrategy strategy : rest) {
+            keys = keys.thenComparing(strategy.getKeyComparator());
+            names.append(", then ").append(strategy.getName());
+        }
+        this.keyComparator = keys;
+        this.comparator = keys.thenComparingInt(Task::getId);
+        this.name = names.toString();
+    }
+    
+    @Override
+    public Comparator<Task> getKeyComparator() {
+        return keyComparator;
+    }
+    
+    @Override
+    public Comparator<Task> getComparator() {
+        return comparator;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+}
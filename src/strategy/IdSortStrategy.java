@@ -1,21 +1,24 @@
 package strategy;
 
 import model.Task;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
 
 public class IdSortStrategy implements TaskSortStrategy {
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
     
     @Override
-    public List<Task> sort(List<Task> tasks) {
-        List<Task> sortedTasks = new ArrayList<>(tasks);
-        sortedTasks.sort(Comparator.comparing(Task::getId));
-        return sortedTasks;
+    public Comparator<Task> getKeyComparator() {
+        return BY_ID;
+    }
+    
+    @Override
+    public Comparator<Task> getComparator() {
+        // ids are unique, nothing to break ties with
+        return BY_ID;
     }
     
     @Override
     public String getName() {
         return "by ID (Default)";
     }
-} 
\ No newline at end of file
+}
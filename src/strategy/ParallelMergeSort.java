@@ -0,0 +1,141 @@
+package strategy;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// a stable merge sort on a fork-join pool: the array is split in halves until the pieces are small,
+// the pieces are sorted with Arrays.sort and merged back up. the merges are split as well (the middle
+// of the longer run, a binary search in the other), so the last merges don't run on one thread.
+// Arrays.parallelSort does much the same, but it always sizes itself for the common pool and falls back
+// to one thread when that has a single thread, here the pool decides
+
+final class ParallelMergeSort {
+    static final int SORT_GRAIN = 1 << 13; // pieces this small are sorted on one thread
+    static final int MERGE_GRAIN = 1 << 14; // merges this small as well
+
+    private ParallelMergeSort() {
+    }
+
+    static <T> void sort(T[] array, Comparator<? super T> comparator, ForkJoinPool pool) {
+        sort(array, 0, array.length, comparator, pool);
+    }
+
+    static <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator, ForkJoinPool pool) {
+        if (to - from <= SORT_GRAIN || pool.getParallelism() == 1) {
+            Arrays.sort(array, from, to, comparator);
+            return;
+        }
+        T[] buffer = Arrays.copyOfRange(array, from, to);
+        Sort<T> sort = new Sort<>(array, buffer, from, to, from, comparator, true);
+        // from a thread of the pool itself the tasks are forked into it directly
+        if (ForkJoinTask.getPool() == pool) sort.invoke();
+        else pool.invoke(sort);
+    }
+
+    // sorts array[from, to), the result ends up in array or, with inPlace false, in buffer.
+    // buffer[i - offset] mirrors array[i], the two swap roles on every level
+    private static final class Sort<T> extends RecursiveAction {
+        private final T[] array, buffer;
+        private final int from, to, offset;
+        private final Comparator<? super T> comparator;
+        private final boolean inPlace;
+
+        Sort(T[] array, T[] buffer, int from, int to, int offset, Comparator<? super T> comparator, boolean inPlace) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.offset = offset;
+            this.comparator = comparator;
+            this.inPlace = inPlace;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SORT_GRAIN) {
+                Arrays.sort(array, from, to, comparator);
+                if (!inPlace) System.arraycopy(array, from, buffer, from - offset, to - from);
+                return;
+            }
+            // both halves are sorted into the other array, then merged into the one we're asked for
+            int middle = (from + to) >>> 1;
+            invokeAll(new Sort<>(array, buffer, from, middle, offset, comparator, !inPlace),
+                      new Sort<>(array, buffer, middle, to, offset, comparator, !inPlace));
+            if (inPlace) {
+                new Merge<>(buffer, from - offset, middle - offset, middle - offset, to - offset, array, from, comparator).invoke();
+            } else {
+                new Merge<>(array, from, middle, middle, to, buffer, from - offset, comparator).invoke();
+            }
+        }
+    }
+
+    // merges the sorted runs source[left, leftEnd) and source[right, rightEnd) into target from at.
+    // on a tie the left run's element comes first, that keeps the sort stable
+    private static final class Merge<T> extends RecursiveAction {
+        private final T[] source, target;
+        private final int left, leftEnd, right, rightEnd, at;
+        private final Comparator<? super T> comparator;
+
+        Merge(T[] source, int left, int leftEnd, int right, int rightEnd, T[] target, int at, Comparator<? super T> comparator) {
+            this.source = source;
+            this.left = left;
+            this.leftEnd = leftEnd;
+            this.right = right;
+            this.rightEnd = rightEnd;
+            this.target = target;
+            this.at = at;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int leftLength = leftEnd - left, rightLength = rightEnd - right;
+            if (leftLength > 0 && rightLength > 0 && comparator.compare(source[leftEnd - 1], source[right]) <= 0) {
+                // already in order (e.g. tasks sorted by id that come in id order), nothing to merge
+                System.arraycopy(source, left, target, at, leftLength);
+                System.arraycopy(source, right, target, at + leftLength, rightLength);
+                return;
+            }
+            if (leftLength + rightLength <= MERGE_GRAIN || leftLength == 0 || rightLength == 0) {
+                merge();
+                return;
+            }
+            int leftSplit, rightSplit;
+            if (leftLength >= rightLength) {
+                // everything in the right run that's smaller than the left middle goes first
+                leftSplit = (left + leftEnd) >>> 1;
+                rightSplit = search(source[leftSplit], right, rightEnd, false);
+            } else {
+                // everything in the left run up to the right middle goes first
+                rightSplit = (right + rightEnd) >>> 1;
+                leftSplit = search(source[rightSplit], left, leftEnd, true);
+            }
+            int split = at + (leftSplit - left) + (rightSplit - right);
+            invokeAll(new Merge<>(source, left, leftSplit, right, rightSplit, target, at, comparator),
+                      new Merge<>(source, leftSplit, leftEnd, rightSplit, rightEnd, target, split, comparator));
+        }
+
+        // the first index in [from, to) whose element is greater than the key (or greater or equal, without orEqual)
+        private int search(T key, int from, int to, boolean orEqual) {
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                int c = comparator.compare(source[middle], key);
+                if (c < 0 || (orEqual && c == 0)) from = middle + 1;
+                else to = middle;
+            }
+            return from;
+        }
+
+        private void merge() {
+            int l = left, r = right, out = at;
+            while (l < leftEnd && r < rightEnd) {
+                target[out++] = comparator.compare(source[r], source[l]) < 0 ? source[r++] : source[l++];
+            }
+            while (l < leftEnd) target[out++] = source[l++];
+            while (r < rightEnd) target[out++] = source[r++];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package strategy;
+
+import model.Task;
+import java.util.Comparator;
+
+public class PriorityDueSortStrategy implements TaskSortStrategy {
+    // sort the most urgent first, same priority by due date (none last) then id
+    private static final Comparator<Task> BY_PRIORITY_AND_DUE = Comparator.comparing(Task::getPriority, Comparator.reverseOrder())
+        .thenComparingLong(Task::getDueDate);
+    private static final Comparator<Task> BY_PRIORITY_AND_DUE_THEN_ID = BY_PRIORITY_AND_DUE.thenComparingInt(Task::getId);
+
+    @Override
+    public Comparator<Task> getKeyComparator() {
+        return BY_PRIORITY_AND_DUE;
+    }
+
+    @Override
+    public Comparator<Task> getComparator() {
+        return BY_PRIORITY_AND_DUE_THEN_ID;
+    }
+
+    @Override
+    public String getName() {
+        return "by Priority and Due Date";
+    }
+}
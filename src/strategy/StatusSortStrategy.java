@@ -1,22 +1,58 @@
 package strategy;
 
 import model.Task;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class StatusSortStrategy implements TaskSortStrategy {
+    // sort completed first then id
+    private static final Comparator<Task> BY_STATUS = (a, b) -> Boolean.compare(a.isCompleted(), b.isCompleted());
+    private static final Comparator<Task> BY_STATUS_THEN_ID = BY_STATUS.thenComparingInt(Task::getId);
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
     
     @Override
-    public List<Task> sort(List<Task> tasks) {
-        List<Task> sortedTasks = new ArrayList<>(tasks);
-        // sort completed first then id
-        sortedTasks.sort(Comparator.comparing(Task::isCompleted).thenComparing(Task::getId));
-        return sortedTasks;
+    public Comparator<Task> getKeyComparator() {
+        return BY_STATUS;
     }
     
+    @Override
+    public Comparator<Task> getComparator() {
+        return BY_STATUS_THEN_ID;
+    }
+    
+    // there are only two keys, so instead of comparing the tasks are split into pending and completed in one pass.
+    // the split keeps the order the tasks came in, and they usually come in id order (the stores hand them out
+    // that way), then both halves are done. otherwise a half that's out of order is sorted by id
+    @Override
+    public void sort(Task[] tasks, ForkJoinPool pool) {
+        int pending = 0;
+        for (Task task : tasks) {
+            if (!task.isCompleted()) pending++;
+        }
+        Task[] split = new Task[tasks.length];
+        int nextPending = 0, nextCompleted = pending;
+        for (Task task : tasks) {
+            if (task.isCompleted()) split[nextCompleted++] = task;
+            else split[nextPending++] = task;
+        }
+        System.arraycopy(split, 0, tasks, 0, tasks.length);
+        sortById(tasks, 0, pending, pool);
+        sortById(tasks, pending, tasks.length, pool);
+    }
+
+    private static void sortById(Task[] tasks, int from, int to, ForkJoinPool pool) {
+        for (int i = from + 1; i < to; i++) {
+            if (tasks[i - 1].getId() > tasks[i].getId()) {
+                if (to - from < PARALLEL_THRESHOLD) Arrays.sort(tasks, from, to, BY_ID);
+                else ParallelMergeSort.sort(tasks, from, to, BY_ID, pool);
+                return;
+            }
+        }
+    }
+
     @Override
     public String getName() {
         return "by Status";
     }
-} 
\ No newline at end of file
+}
@@ -1,9 +1,45 @@
 package strategy;
 
 import model.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// a strategy is its comparator, implementations build it once and hand out the same instance every time.
+// big lists are sorted on every core (see ParallelMergeSort), so comparators have to be safe to call
+// from several threads at once. a strategy with few distinct keys can sort faster than by comparing
 
 public interface TaskSortStrategy {
-    List<Task> sort(List<Task> tasks)
+    // from this many tasks on sort() runs in parallel, -Dtaskmanager.sort.parallelThreshold changes it
+    int PARALLEL_THRESHOLD = Integer.getInteger("taskmanager.sort.parallelThreshold", 1 << 15);
+
+    // the strategy's own sort key, without any tie-breaking (used when strategies are composed)
+    Comparator<Task> getKeyComparator();
+    // the full order, the key and then the id so no two tasks are ever equal
+    Comparator<Task> getComparator();
     String getName();
-} 
+
+    default List<Task> sort(List<Task> tasks) {
+        Task[] sortedTasks = tasks.toArray(new Task[0]);
+        sort(sortedTasks);
+        return new ArrayList<>(Arrays.asList(sortedTasks));
+    }
+
+    // in place, in getComparator()'s order
+    default void sort(Task[] tasks) {
+        sort(tasks, ForkJoinPool.commonPool());
+    }
+
+    // the pool's threads do the work if there are enough tasks, the calling thread waits for them
+    default void sort(Task[] tasks, ForkJoinPool pool) {
+        if (tasks.length < PARALLEL_THRESHOLD) Arrays.sort(tasks, getComparator());
+        else ParallelMergeSort.sort(tasks, getComparator(), pool);
+    }
+
+    // e.g. status.thenBy(alphabetical) sorts by status, then alphabetically, then by id
+    default TaskSortStrategy thenBy(TaskSortStrategy next) {
+        return new CompositeSortStrategy(this, next);
+    }
+}
@@ -0,0 +1,209 @@
+package util;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Task;
+
+// just enough JSON for the task API and the NDJSON import/export, without a library.
+// writing appends straight to a StringBuilder, parsing gives Maps, Lists, Strings, Longs/Doubles, Booleans and null
+
+public final class Json {
+    private Json() {}
+
+    // times are ISO-8601 instants in UTC, null when the task has none.
+    // the version is the model's (see Task.getVersion()), it's only good for the model the task came from
+    public static StringBuilder task(StringBuilder out, Task task) {
+        out.append("{\"id\":").append(task.getId()).append(",\"description\":");
+        string(out, task.getDescription());
+        out.append(",\"completed\":").append(task.isCompleted());
+        out.append(",\"priority\":\"").append(task.getPriority().name().toLowerCase(Locale.ROOT)).append('"');
+        time(out.append(",\"dueDate\":"), task.hasDueDate() ? task.getDueDate() : 0);
+        time(out.append(",\"createdAt\":"), task.getCreatedAt());
+        time(out.append(",\"updatedAt\":"), task.getUpdatedAt());
+        return out.append(",\"version\":").append(task.getVersion()).append('}');
+    }
+
+    // 0 means no time and is written as null
+    public static StringBuilder time(StringBuilder out, long epochMillis) {
+        if (epochMillis == 0) return out.append("null");
+        return out.append('"').append(Instant.ofEpochMilli(epochMillis)).append('"');
+    }
+
+    // an ISO-8601 instant ("2024-05-01T09:00:00Z") or epoch milliseconds, null is Task.NO_DUE_DATE
+    public static long parseTime(Object value) {
+        if (value == null) return Task.NO_DUE_DATE;
+        if (value instanceof Number) return ((Number) value).longValue();
+        try {
+            return Instant.parse(value.toString().trim()).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a time: " + value + " (e.g. 2024-05-01T09:00:00Z)");
+        }
+    }
+
+    public static StringBuilder string(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    // throws IllegalArgumentException for anything that isn't one complete JSON value
+    public static Object parse(String text) {
+        Parser parser = new Parser(text);
+        Object value = parser.value();
+        parser.skipSpace();
+        if (parser.position != text.length()) throw parser.error("Unexpected text after the value");
+        return value;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipSpace();
+            if (position >= text.length()) throw error("Unexpected end");
+            char c = text.charAt(position);
+            switch (c) {
+                case '{': return object();
+                case '[': return array();
+                case '"': return string();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default:
+                    if (c == '-' || c >= '0' && c <= '9') return number();
+                    throw error("Unexpected '" + c + "'");
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            position++;
+            skipSpace();
+            if (peek('}')) return map;
+            do {
+                skipSpace();
+                if (position >= text.length() || text.charAt(position) != '"') throw error("Expected a name");
+                String name = string();
+                skipSpace();
+                expect(':');
+                map.put(name, value());
+                skipSpace();
+            } while (peek(','));
+            expect('}');
+            return map;
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            position++;
+            skipSpace();
+            if (peek(']')) return list;
+            do {
+                list.add(value());
+                skipSpace();
+            } while (peek(','));
+            expect(']');
+            return list;
+        }
+
+        private String string() {
+            position++;
+            StringBuilder s = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') return s.toString();
+                if (c != '\\') {
+                    s.append(c);
+                    continue;
+                }
+                if (position >= text.length()) break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n': s.append('\n'); break;
+                    case 'r': s.append('\r'); break;
+                    case 't': s.append('\t'); break;
+                    case 'b': s.append('\b'); break;
+                    case 'f': s.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) throw error("Bad \\u escape");
+                        try {
+                            s.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad \\u escape");
+                        }
+                        position += 4;
+                        break;
+                    default: s.append(escaped); // \" \\ \/
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Object number() {
+            int start = position;
+            if (text.charAt(position) == '-') position++;
+            boolean fraction = false;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') fraction = true;
+                else if (c < '0' || c > '9') break;
+                position++;
+            }
+            String number = text.substring(start, position);
+            try {
+                return fraction ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("Bad number " + number);
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, position)) throw error("Unexpected '" + text.charAt(position) + "'");
+            position += word.length();
+            return value;
+        }
+
+        private boolean peek(char c) {
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipSpace();
+            if (!peek(c)) throw error("Expected '" + c + "'");
+        }
+
+        void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + position);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package view;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.concurrent.TimeUnit;
+import metrics.Counter;
+import metrics.EdtDispatchEvent;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+
+// sits in front of the system event queue and times every event the EDT dispatches.
+// the time spent in events longer than a frame is counted as blocked (view.edt.blockedNanos),
+// the window can't repaint or react to input while one of them runs. those events also go
+// to a flight recording, next to the GC pauses that may have caused them
+
+final class EdtMonitor extends EventQueue {
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    private static final LatencyHistogram DISPATCH_LATENCY = Metrics.latency("view.edt.dispatch");
+    private static final Counter BLOCKED_NANOS = Metrics.counter("view.edt.blockedNanos"),
+                                 SLOW_DISPATCHES = Metrics.counter("view.edt.slowDispatches");
+    private static boolean installed;
+
+    // on the EDT, only the first call pushes the queue
+    static void install() {
+        if (installed) return;
+        installed = true;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EdtMonitor());
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        EdtDispatchEvent recorded = null;
+        if (Metrics.isFlightRecording()) {
+            recorded = new EdtDispatchEvent();
+            recorded.begin();
+        }
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long time = System.nanoTime() - start;
+            DISPATCH_LATENCY.record(time);
+            if (time > FRAME_NANOS) {
+                BLOCKED_NANOS.add(time);
+                SLOW_DISPATCHES.increment();
+            }
+            if (recorded != null) recorded.end();
+            if (recorded != null && recorded.shouldCommit()) {
+                recorded.eventType = event.getClass().getName();
+                recorded.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.time.Instant;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import metrics.Counter;
+import metrics.Metrics;
+import model.Priority;
+import model.Task;
+
+import static view.TaskView.DUE_FORMAT;
+import static view.TaskView.createFont;
+
+// renders a task row for the JList, only the visible rows are ever painted.
+// a row is one component that paints itself: the checkbox, two lines of the description, the priority and
+// due date and the edit/delete links, laid out like the panels it used to be made of (with the same
+// fonts, colors and gaps). where every line and link goes is worked out when a task is bound to the row,
+// painting only draws it (the panels made a Graphics per component and the text area copied its text for
+// the line breaks on every paint).
+// the rows come from a small pool, each one stays bound to the task it shows: a stored task never
+// changes (a change is a new Task object), so a row that's painted again for the same task is returned as it
+// is, and only a task the pool hasn't seen takes over the row that was used the longest time ago. binding
+// only touches what's different from the row's last task, the fonts and colors are shared by all rows.
+// with TaskListUI painting them, repainting, scrolling back and forth and changes elsewhere in the list
+// don't allocate per row.
+// the list doesn't forward clicks to renderers, so hitTest() tells the view which part of the row
+// (checkbox, edit, delete) was clicked
+
+class TaskCellRenderer implements ListCellRenderer<Task> {
+    private static final Color ACTIVE_TASK_BG = new Color(210, 235, 255),
+                               COMPLETED_TASK_BG = new Color(245, 245, 245),
+                               EDIT_COLOR = new Color(100, 180, 220),
+                               DELETE_COLOR = new Color(255, 140, 140),
+                               OVERDUE_COLOR = new Color(200, 40, 40),
+                               HIGH_COLOR = new Color(210, 120, 20),
+                               META_COLOR = new Color(110, 110, 110),
+                               LINE_COLOR = new Color(230, 230, 230);
+    private static final Font DESCRIPTION_FONT = createFont(Font.PLAIN, 14),
+                              META_FONT = createFont(Font.PLAIN, 12),
+                              LINK_FONT = createFont(Font.BOLD, 14);
+    private static final String EDIT = "Edit", DELETE = "Delete";
+    // the gaps, in pixels: around the row (and the line below it), either side of the checkbox,
+    // left of the meta line, around a link's text, between the links and right of them
+    private static final int PAD = 8, LINE = 1,
+                             CHECK_LEFT = 7, CHECK_RIGHT = 14,
+                             META_LEFT = 5,
+                             LINK_PAD_X = 10, LINK_PAD_Y = 5, LINK_GAP = 20, LINKS_RIGHT = 10, LINKS_TOP = 4;
+    private static final int LINES = 2; // longer descriptions are in the tooltip and edit dialog
+    static final int POOL_SIZE = 64; // a window shows ~10 rows, the rest keeps rows around for scrolling back
+    private static final Counter ROWS_RENDERED = Metrics.counter("view.rowsRendered"),
+                                 ROWS_BOUND = Metrics.counter("view.rowsBound");
+
+    public enum Hit { NONE, CHECKBOX, EDIT, DELETE }
+
+    private final Row[] rows = new Row[POOL_SIZE]; // built when they're first needed
+    private final Map<Task, Row> rowOf = new IdentityHashMap<>(POOL_SIZE);
+    private long renders;
+
+    // every row has the same height, and with a fixed width as well the list never measures all rows
+    // (without one it asks the renderer for every row's width again after each change)
+    public int getRowHeight() {
+        return row(0).rowHeight;
+    }
+
+    // rows are stretched to the list's width anyway, this is only the narrowest a row gets
+    public int getRowWidth() {
+        Row row = row(0);
+        return row.textX + row.linksWidth + PAD;
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Task> list, Task task, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        ROWS_RENDERED.increment();
+        Row row = rowOf.get(task);
+        if (row == null) {
+            row = leastRecentlyUsed();
+            if (row.task != null) rowOf.remove(row.task);
+            row.bind(task);
+            rowOf.put(task, row);
+            ROWS_BOUND.increment();
+        }
+        row.lastUsed = ++renders;
+        row.updateDue(System.currentTimeMillis()); // a task comes due without changing
+        return row;
+    }
+
+    public Hit hitTest(JList<Task> list, int index, Point point) {
+        Rectangle cell = list.getCellBounds(index, index);
+        if (cell == null || !cell.contains(point)) return Hit.NONE;
+
+        Task task = list.getModel().getElementAt(index);
+        Row row = (Row) getListCellRendererComponent(list, task, index, false, false);
+        return row.hit(point.x - cell.x, point.y - cell.y, cell.width, cell.height);
+    }
+
+    private Row row(int slot) {
+        if (rows[slot] == null) rows[slot] = new Row();
+        return rows[slot];
+    }
+
+    // the rows of one paint are always the most recently used ones, the pool is far bigger than a paint
+    private Row leastRecentlyUsed() {
+        int oldest = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null) return row(i);
+            if (rows[i].lastUsed < rows[oldest].lastUsed) oldest = i;
+        }
+        return rows[oldest];
+    }
+
+    // the look and feel's checkbox, drawn once per state
+    private static final class CheckIcons {
+        static final Image CHECKED = draw(true), UNCHECKED = draw(false);
+        static final int WIDTH = CHECKED.getWidth(null), HEIGHT = CHECKED.getHeight(null);
+
+        private static Image draw(boolean selected) {
+            Icon icon = UIManager.getIcon("CheckBox.icon");
+            JCheckBox box = new JCheckBox();
+            box.setSelected(selected);
+            BufferedImage image = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                icon.paintIcon(box, g, 0, 0);
+            } finally {
+                g.dispose();
+            }
+            return image;
+        }
+    }
+
+    // one row and what it shows right now. the list stretches it to its own width, the description's
+    // lines are broken again when that changes (a row only knows its width once it's painted)
+    static final class Row extends JComponent {
+        static final int PASSES = 4;
+        private final FontMetrics descriptionMetrics, metaMetrics, linkMetrics;
+        // where things go, the same for every task
+        final int rowHeight;
+        private final int textX, metaY, linkY, linkHeight, editWidth, deleteWidth, linksWidth;
+
+        Task task; // null until it's bound
+        long lastUsed;
+        // what the row shows, so binding another task only changes what's different
+        private boolean completed;
+        private String text = "";
+        private char[] chars = new char[64]; // the description's characters, painted without copying them
+        private final int[] lineStart = new int[LINES], lineEnd = new int[LINES];
+        private int lines, wrapWidth = -1;
+        private Priority priority;
+        private long dueDate;
+        private String metaText = " ";
+        private Color metaColor = META_COLOR;
+
+        Row() {
+            descriptionMetrics = getFontMetrics(DESCRIPTION_FONT);
+            metaMetrics = getFontMetrics(META_FONT);
+            linkMetrics = getFontMetrics(LINK_FONT);
+            textX = PAD + CHECK_LEFT + CheckIcons.WIDTH + CHECK_RIGHT;
+            metaY = PAD + LINES * descriptionMetrics.getHeight();
+            rowHeight = metaY + metaMetrics.getHeight() + PAD + LINE;
+            linkHeight = linkMetrics.getHeight() + 2 * LINK_PAD_Y;
+            // the links are centered below their top gap (an odd pixel goes above them, like the box layout did)
+            linkY = PAD + LINKS_TOP + (rowHeight - 2 * PAD - LINE - LINKS_TOP) / 2 - (linkHeight + 1) / 2;
+            editWidth = linkMetrics.stringWidth(EDIT) + 2 * LINK_PAD_X;
+            deleteWidth = linkMetrics.stringWidth(DELETE) + 2 * LINK_PAD_X;
+            linksWidth = editWidth + LINK_GAP + deleteWidth + LINKS_RIGHT;
+        }
+
+        // a toggled task keeps its description and schedule, only the status is set then
+        void bind(Task task) {
+            this.task = task;
+            completed = task.isCompleted();
+            if (!task.getDescription().equals(text)) {
+                text = task.getDescription();
+                if (chars.length < text.length()) chars = new char[Math.max(text.length(), 2 * chars.length)];
+                text.getChars(0, text.length(), chars, 0);
+                wrapWidth = -1;
+            }
+            if (task.getPriority() != priority || task.getDueDate() != dueDate) {
+                priority = task.getPriority();
+                dueDate = task.getDueDate();
+                metaText = metaText(task);
+            }
+        }
+
+        // the meta line's color, red once the task is overdue
+        void updateDue(long now) {
+            if (task.isCompleted()) metaColor = Color.GRAY;
+            else if (task.isOverdue(now)) metaColor = OVERDUE_COLOR;
+            else if (task.getPriority().compareTo(Priority.HIGH) >= 0) metaColor = HIGH_COLOR;
+            else metaColor = META_COLOR;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            for (int pass = 0; pass < PASSES; pass++) paintRow(g, getWidth(), getHeight(), pass);
+        }
+
+        // paints one pass of the row at 0,0 of g: the background and checkbox, then the text in each of
+        // the fonts. TaskListUI paints a pass of all visible rows before the next one
+        void paintRow(Graphics g, int width, int height, int pass) {
+            switch (pass) {
+                case 0:
+                    g.setColor(completed ? COMPLETED_TASK_BG : ACTIVE_TASK_BG);
+                    g.fillRect(0, 0, width, height - LINE);
+                    g.setColor(LINE_COLOR);
+                    g.fillRect(0, height - LINE, width, LINE);
+                    g.drawImage(completed ? CheckIcons.CHECKED : CheckIcons.UNCHECKED,
+                                PAD + CHECK_LEFT, (height - LINE - CheckIcons.HEIGHT) / 2, null);
+                    break;
+                case 1:
+                    if (width != wrapWidth) wrap(width);
+                    g.setFont(DESCRIPTION_FONT);
+                    g.setColor(completed ? Color.GRAY : Color.BLACK);
+                    for (int i = 0; i < lines; i++) {
+                        g.drawChars(chars, lineStart[i], lineEnd[i] - lineStart[i],
+                                    textX, PAD + i * descriptionMetrics.getHeight() + descriptionMetrics.getAscent());
+                    }
+                    break;
+                case 2:
+                    g.setFont(META_FONT);
+                    g.setColor(metaColor);
+                    g.drawString(metaText, textX + META_LEFT, metaY + metaMetrics.getAscent());
+                    break;
+                default:
+                    int baseline = linkY + LINK_PAD_Y + linkMetrics.getAscent();
+                    g.setFont(LINK_FONT);
+                    g.setColor(EDIT_COLOR);
+                    g.drawString(EDIT, editX(width) + LINK_PAD_X, baseline);
+                    g.setColor(DELETE_COLOR);
+                    g.drawString(DELETE, deleteX(width) + LINK_PAD_X, baseline);
+                    break;
+            }
+        }
+
+        // where on a row of the given size x,y is. the checkbox takes the row's height like it did
+        // as a component, the links are their text and the gaps around it
+        Hit hit(int x, int y, int width, int height) {
+            if (y < PAD || y >= height - PAD - LINE) return Hit.NONE;
+            if (x >= PAD && x < textX) return Hit.CHECKBOX;
+            if (y < linkY || y >= linkY + linkHeight) return Hit.NONE;
+            if (x >= editX(width) && x < editX(width) + editWidth) return Hit.EDIT;
+            if (x >= deleteX(width) && x < deleteX(width) + deleteWidth) return Hit.DELETE;
+            return Hit.NONE;
+        }
+
+        // the whole description when the mouse is over the text
+        @Override
+        public String getToolTipText(MouseEvent event) {
+            int x = event.getX();
+            return task != null && x >= textX && x < textX + textWidth(getWidth()) ? text : null;
+        }
+
+        private int editX(int width) {
+            return deleteX(width) - LINK_GAP - editWidth;
+        }
+
+        private int deleteX(int width) {
+            return width - PAD - LINKS_RIGHT - deleteWidth;
+        }
+
+        private int textWidth(int width) {
+            return width - PAD - linksWidth - textX;
+        }
+
+        // breaks the description into lines like a word wrapping text area: after the last space that
+        // still fits, inside a word only if it's longer than a line, and at line breaks
+        private void wrap(int width) {
+            wrapWidth = width;
+            int available = Math.max(1, textWidth(width));
+            int length = text.length(), start = 0;
+            lines = 0;
+            while (lines < LINES && start < length) {
+                int end = start, space = -1, lineWidth = 0;
+                while (end < length && chars[end] != '\n') {
+                    lineWidth += descriptionMetrics.charWidth(chars[end]);
+                    if (lineWidth > available) break;
+                    if (chars[end] == ' ') space = end;
+                    end++;
+                }
+                if (end < length && chars[end] != '\n') {
+                    if (space >= 0) end = space + 1;
+                    else if (end == start) end++; // not even one character fits, show it anyway
+                }
+                lineStart[lines] = start;
+                lineEnd[lines] = end;
+                lines++;
+                start = end < length && chars[end] == '\n' ? end + 1 : end;
+            }
+        }
+
+        // "High · due 2024-05-01 09:00". a normal task without a due date has an empty line,
+        // so every row keeps the same height
+        private static String metaText(Task task) {
+            Priority priority = task.getPriority();
+            if (priority == Priority.NORMAL && !task.hasDueDate()) return " ";
+            String text = priority == Priority.NORMAL ? "" : priority.getLabel();
+            if (task.hasDueDate()) {
+                text += (text.isEmpty() ? "due " : " · due ") + DUE_FORMAT.format(Instant.ofEpochMilli(task.getDueDate()));
+            }
+            return text;
+        }
+    }
+}
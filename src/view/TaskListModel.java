@@ -0,0 +1,59 @@
+package view;
+
+import javax.swing.AbstractListModel;
+import java.util.Collections;
+import java.util.List;
+import model.Task;
+import model.TaskQueryResult;
+
+// list model behind the task JList, it shows the rows the TaskListRefresher worked out off the EDT.
+// with a filter on (show completed off, search) the rows come from a query result instead,
+// which only looks up the rows the list actually asks for
+
+class TaskListModel extends AbstractListModel<Task> {
+    private List<Task> all = Collections.emptyList();
+    private TaskQueryResult filtered; // null without a filter
+
+    // swaps in the update's rows. the single changes are only fired if they were worked out against
+    // the rows shown right now, after a skipped update or with a filter the list is told to reload instead
+    public void apply(TaskListUpdate update) {
+        int oldSize = getSize();
+        boolean incremental = update.getChanges() != null && update.getBase() == all
+            && filtered == null && update.getFiltered() == null;
+        all = update.getTasks();
+        filtered = update.getFiltered();
+        if (!incremental) {
+            fireReloaded(oldSize);
+            return;
+        }
+        for (TaskListUpdate.Change change : update.getChanges()) {
+            switch (change.type) {
+                case ADDED: fireIntervalAdded(this, change.from, change.to); break;
+                case REMOVED: fireIntervalRemoved(this, change.from, change.to); break;
+                case CHANGED: fireContentsChanged(this, change.from, change.to); break;
+            }
+        }
+    }
+
+    public boolean isFiltered() {
+        return filtered != null;
+    }
+
+    @Override
+    public int getSize() {
+        return filtered != null ? filtered.size() : all.size();
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        return filtered != null ? filtered.get(index) : all.get(index);
+    }
+
+    // only tell the list what actually changed in size, the rest is a content change
+    private void fireReloaded(int oldSize) {
+        int newSize = getSize();
+        if (newSize < oldSize) fireIntervalRemoved(this, newSize, oldSize - 1);
+        if (newSize > oldSize) fireIntervalAdded(this, oldSize, newSize - 1);
+        if (Math.min(oldSize, newSize) > 0) fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+    }
+}
@@ -0,0 +1,276 @@
+package view;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.ViewRefreshEvent;
+import model.Task;
+import model.TaskEvent;
+import model.TaskModel;
+import model.TaskObserver;
+import model.TaskQuery;
+import model.TaskQueryResult;
+
+// keeps the list model in step with the task model without doing the work on the EDT.
+// events are collected for one frame and then turned into the next rows on a single worker thread:
+// the rows are the model's snapshot after the last event (it never changes, so it's shown as it is),
+// the changes come from the events' positions, or from a diff against the shown rows when a whole new list
+// arrives (sort change, batch),
+// and run through the filter query if there is one. the EDT only swaps the rows in and fires the changes.
+// a refresh that's finished before the EDT got to the previous one replaces it, so the EDT never falls behind.
+// both halves are timed: view.refresh on the worker, view.apply for the time it holds up the EDT.
+// a refresher belongs to one model and only follows it while it's attached, the view keeps the refreshers
+// of recently shown lists, so a list that's shown again starts from the rows it had
+
+class TaskListRefresher implements TaskObserver {
+    private static final int MAX_CHANGES = 256; // past that one reload is cheaper for the list than single changes
+    private static final LatencyHistogram REFRESH_LATENCY = Metrics.latency("view.refresh"),
+                                          APPLY_LATENCY = Metrics.latency("view.apply");
+
+    private final TaskModel model;
+    private final TaskListModel listModel;
+    private final int frameMillis;
+    private final Runnable afterApply; // on the EDT, after the list got the new rows
+
+    // one thread for all refreshers, only the shown list is refreshed anyway
+    private static final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "task-view-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Queue<TaskEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+    private final AtomicReference<TaskListUpdate> latestUpdate = new AtomicReference<>();
+    private volatile TaskQuery filter; // null shows every task
+    private volatile boolean filterChanged;
+    private volatile boolean attached;
+    private TaskListUpdate lastApplied; // on the EDT, what the list model got last
+
+    // only touched on the worker
+    private List<Task> shown = Collections.emptyList();
+
+    TaskListRefresher(TaskModel model, TaskListModel listModel, int frameMillis, Runnable afterApply) {
+        this.model = model;
+        this.listModel = listModel;
+        this.frameMillis = frameMillis;
+        this.afterApply = afterApply;
+    }
+
+    // on the EDT. the rows this refresher applied last are shown again right away, then it follows the model
+    void attach(TaskQuery filter) {
+        attached = true;
+        if (lastApplied != null) {
+            listModel.apply(lastApplied);
+            afterApply.run();
+        }
+        this.filter = filter;
+        filterChanged = true;
+        model.addObserver(this);
+        update();
+    }
+
+    // on the EDT. a refresh that's still on its way is dropped, the next attach() starts from the model again
+    void detach() {
+        attached = false;
+        model.removeObserver(this);
+        latestUpdate.set(null);
+    }
+
+    @Override
+    public void update() {
+        // unknown changes, the model's current list replaces everything that's queued before
+        pendingEvents.add(TaskEvent.tasksChanged(Collections.emptyList(), model.getTasks()));
+        scheduleRefresh();
+    }
+
+    // called on the thread that changed the model, the event is only queued here
+    @Override
+    public void taskChanged(TaskEvent event) {
+        pendingEvents.add(event);
+        scheduleRefresh();
+    }
+
+    // the query the list shows, null for all tasks. it's run on the worker, a text search can take a while
+    void setFilter(TaskQuery filter) {
+        this.filter = filter;
+        filterChanged = true;
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            worker.schedule(this::refresh, frameMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // on the worker
+    private void refresh() {
+        refreshScheduled.set(false);
+        List<TaskEvent> events = new ArrayList<>();
+        TaskEvent event;
+        while ((event = pendingEvents.poll()) != null) events.add(event);
+        boolean refilter = filterChanged;
+        filterChanged = false;
+        if (events.isEmpty() && !refilter) return;
+
+        long start = System.nanoTime();
+        ViewRefreshEvent recorded = beginEvent();
+        try {
+            TaskListUpdate update = next(events);
+            TaskQuery query = filter;
+            TaskQueryResult filtered = null;
+            if (query != null) {
+                // queried again on every refresh, so changed and new tasks are matched too
+                filtered = model.query(query);
+                filtered.size(); // counted here rather than on the EDT
+            }
+            update = new TaskListUpdate(update.getBase(), update.getTasks(), filtered, update.getChanges());
+            REFRESH_LATENCY.recordSince(start);
+            commit(recorded, "compute", events.size(), update);
+            publish(update);
+        } catch (RuntimeException e) {
+            // the worker has to survive for the next refresh, start over from the model's list
+            e.printStackTrace();
+            shown = model.getTasks();
+        }
+    }
+
+    private void publish(TaskListUpdate update) {
+        // an update the EDT hasn't got to yet is simply replaced, the list model reloads if it missed one
+        latestUpdate.set(update);
+        if (applyScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::apply);
+        }
+    }
+
+    // on the EDT
+    private void apply() {
+        applyScheduled.set(false);
+        TaskListUpdate update = latestUpdate.getAndSet(null);
+        if (update == null || !attached) return;
+        long start = System.nanoTime();
+        ViewRefreshEvent recorded = beginEvent();
+        listModel.apply(update);
+        lastApplied = update;
+        afterApply.run();
+        APPLY_LATENCY.recordSince(start);
+        commit(recorded, "apply", 0, update);
+    }
+
+    // null without a flight recording
+    private static ViewRefreshEvent beginEvent() {
+        if (!Metrics.isFlightRecording()) return null;
+        ViewRefreshEvent recorded = new ViewRefreshEvent();
+        recorded.begin();
+        return recorded;
+    }
+
+    private static void commit(ViewRefreshEvent recorded, String phase, int events, TaskListUpdate update) {
+        if (recorded == null) return;
+        recorded.end();
+        if (!recorded.shouldCommit()) return;
+        recorded.phase = phase;
+        recorded.events = events;
+        recorded.filtered = update.getFiltered() != null;
+        recorded.rows = recorded.filtered ? update.getFiltered().size() : update.getTasks().size();
+        recorded.changes = update.getChanges() != null ? update.getChanges().size() : -1;
+        recorded.commit();
+    }
+
+    // works out the next rows from the shown ones. an event that carries the whole list (sort change, batch)
+    // replaces everything that came before it and is diffed against the shown rows. the single changes after it
+    // only add their positions, the rows are the snapshot the last one came with
+    private TaskListUpdate next(List<TaskEvent> events) {
+        List<Task> base = shown;
+        List<Task> tasks = base;
+        List<TaskListUpdate.Change> changes = new ArrayList<>();
+        int start = 0;
+        for (int i = events.size() - 1; i >= 0; i--) {
+            TaskEvent event = events.get(i);
+            if (event.getTasks() != null) {
+                tasks = event.getTasks();
+                start = i + 1;
+                // a changed task is a new Task object, so the diff finds the changed rows too
+                diff(base, tasks, changes);
+                break;
+            }
+        }
+
+        if (start < events.size()) {
+            int size = tasks.size();
+            for (int i = start; i < events.size() && size >= 0; i++) {
+                size = patch(size, events.get(i), changes);
+            }
+            List<Task> latest = events.get(events.size() - 1).getSnapshot();
+            if (latest != null && latest.size() == size) {
+                tasks = latest;
+            } else {
+                tasks = model.getTasks();
+                changes = null;
+            }
+        }
+
+        if (changes != null && changes.size() > MAX_CHANGES) changes = null;
+        shown = tasks;
+        return new TaskListUpdate(base, tasks, null, changes);
+    }
+
+    // the rows both lists start and end with stay, only the part in between is changed, added or removed.
+    // a task that moved shows up as a change of the rows between its old and new place
+    static void diff(List<Task> oldTasks, List<Task> newTasks, List<TaskListUpdate.Change> changes) {
+        int oldSize = oldTasks.size(), newSize = newTasks.size();
+        int shorter = Math.min(oldSize, newSize);
+        int prefix = 0;
+        while (prefix < shorter && oldTasks.get(prefix) == newTasks.get(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < shorter - prefix && oldTasks.get(oldSize - 1 - suffix) == newTasks.get(newSize - 1 - suffix)) {
+            suffix++;
+        }
+
+        int oldEnd = oldSize - suffix, newEnd = newSize - suffix;
+        int common = Math.min(oldEnd, newEnd) - prefix;
+        if (common > 0) changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.CHANGED, prefix, prefix + common - 1));
+        if (oldEnd > newEnd) changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.REMOVED, newEnd, oldEnd - 1));
+        if (newEnd > oldEnd) changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.ADDED, oldEnd, newEnd - 1));
+    }
+
+    // the change of a single event, given the number of rows before it. returns the number after it, -1 if the
+    // event doesn't fit (the list is reloaded then)
+    private static int patch(int size, TaskEvent event, List<TaskListUpdate.Change> changes) {
+        int oldIndex = event.getOldIndex(), newIndex = event.getNewIndex();
+        switch (event.getType()) {
+            case TASK_ADDED:
+                if (newIndex < 0 || newIndex > size) return -1;
+                changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.ADDED, newIndex, newIndex));
+                return size + 1;
+            case TASK_REMOVED:
+                if (oldIndex < 0 || oldIndex >= size) return -1;
+                changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.REMOVED, oldIndex, oldIndex));
+                return size - 1;
+            case TASK_UPDATED:
+                if (oldIndex < 0 || oldIndex >= size || newIndex < 0 || newIndex >= size) return -1;
+                changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.CHANGED,
+                    Math.min(oldIndex, newIndex), Math.max(oldIndex, newIndex)));
+                return size;
+            case REMINDER:
+                // nothing moved, the row is only repainted to show it's due now
+                if (oldIndex >= 0 && oldIndex < size) {
+                    changes.add(new TaskListUpdate.Change(TaskListUpdate.Type.CHANGED, oldIndex, oldIndex));
+                }
+                return size;
+            default:
+                return -1;
+        }
+    }
+}
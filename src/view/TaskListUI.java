@@ -0,0 +1,61 @@
+package view;
+
+import javax.swing.*;
+import javax.swing.plaf.basic.BasicListUI;
+import java.awt.*;
+import java.util.Arrays;
+
+// paints the task list's visible rows straight onto the list's Graphics. the basic list UI goes through a
+// CellRendererPane, which makes a Graphics (and a Rectangle for the cell) per row, and the row's own
+// paint() makes another, that's most of what painting a row allocates once the row itself doesn't.
+// the rows are painted in passes (see TaskCellRenderer.Row.paintRow()) so the font only changes a few
+// times per paint, a Graphics looks its glyphs up again after every font change.
+// rows all have the list's fixed height and nothing is drawn for selection or focus, like before.
+// anything that isn't a TaskCellRenderer row is left to the basic UI
+
+class TaskListUI extends BasicListUI {
+    private final Rectangle clip = new Rectangle();
+    private final Insets insets = new Insets(0, 0, 0, 0);
+    private TaskCellRenderer.Row[] rows = new TaskCellRenderer.Row[0]; // the rows of the paint
+
+    @Override
+    public void paint(Graphics g, JComponent c) {
+        ListCellRenderer<Object> renderer = list.getCellRenderer();
+        int rowHeight = list.getFixedCellHeight();
+        if (rowHeight <= 0 || !((Object) renderer instanceof TaskCellRenderer)) {
+            super.paint(g, c);
+            return;
+        }
+        ListModel<?> model = list.getModel();
+        maybeUpdateLayoutState();
+
+        clip.setBounds(0, 0, list.getWidth(), list.getHeight()); // if g has no clip
+        g.getClipBounds(clip);
+        list.getInsets(insets);
+        int width = list.getWidth() - insets.left - insets.right;
+        int first = Math.max(0, (clip.y - insets.top) / rowHeight);
+        int last = Math.min(model.getSize() - 1, (clip.y + clip.height - 1 - insets.top) / rowHeight);
+        // a chunk of rows at a time, the renderer's pool has to hold all the rows of a chunk
+        for (int start = first; start <= last; start += TaskCellRenderer.POOL_SIZE) {
+            int count = Math.min(TaskCellRenderer.POOL_SIZE, last - start + 1);
+            if (rows.length < count) rows = new TaskCellRenderer.Row[count];
+            for (int i = 0; i < count; i++) {
+                int index = start + i;
+                rows[i] = (TaskCellRenderer.Row) renderer.getListCellRendererComponent(
+                    list, model.getElementAt(index), index, false, false);
+            }
+            for (int pass = 0; pass < TaskCellRenderer.Row.PASSES; pass++) {
+                for (int i = 0; i < count; i++) {
+                    int y = insets.top + (start + i) * rowHeight;
+                    g.translate(insets.left, y);
+                    try {
+                        rows[i].paintRow(g, width, rowHeight, pass);
+                    } finally {
+                        g.translate(-insets.left, -y);
+                    }
+                }
+            }
+            Arrays.fill(rows, 0, count, null);
+        }
+    }
+}
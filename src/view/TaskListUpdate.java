@@ -0,0 +1,56 @@
+package view;
+
+import java.util.List;
+import model.Task;
+import model.TaskQueryResult;
+
+// what a refresh worked out off the EDT: the new rows and how they differ from the rows it started from.
+// the list model only fires the changes if it still shows exactly those rows, otherwise it reloads
+
+class TaskListUpdate {
+    enum Type { ADDED, REMOVED, CHANGED }
+
+    // rows from..to (inclusive) were added, removed or changed, in the order the list has to hear about them
+    static final class Change {
+        final Type type;
+        final int from, to;
+
+        Change(Type type, int from, int to) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final List<Task> base;
+    private final List<Task> tasks;
+    private final TaskQueryResult filtered;
+    private final List<Change> changes;
+
+    TaskListUpdate(List<Task> base, List<Task> tasks, TaskQueryResult filtered, List<Change> changes) {
+        this.base = base;
+        this.tasks = tasks;
+        this.filtered = filtered;
+        this.changes = changes;
+    }
+
+    // the unfiltered rows the changes were worked out against
+    List<Task> getBase() {
+        return base;
+    }
+
+    // all tasks in the model's order, never changed after this
+    List<Task> getTasks() {
+        return tasks;
+    }
+
+    // the rows to show with a filter on, null without one
+    TaskQueryResult getFiltered() {
+        return filtered;
+    }
+
+    // null if the rows should be reloaded as a whole
+    List<Change> getChanges() {
+        return changes;
+    }
+}
@@ -2,81 +2,175 @@ package view;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import model.Priority;
 import model.Task;
+import model.TaskEvent;
 import model.TaskObserver;
+import model.TaskQuery;
 import model.TaskModel;
 import controller.TaskController;
+import metrics.StartupTimer;
+import persistence.TaskFormat;
+import persistence.TransferListener;
 import strategy.TaskSortStrategy;
 import strategy.IdSortStrategy;
 import strategy.AlphabeticalSortStrategy;
 import strategy.StatusSortStrategy;
+import strategy.PriorityDueSortStrategy;
+import workspace.TaskList;
+import workspace.Workspace;
 
 // the view is the frontend, it only reads data from the model and displays it
 // it changes the model through the controller, if there is input from the user (adding tasks, changing sort strategy, etc.)
+// with a workspace the Lists menu switches between its task lists, setModel() swaps the model that's shown.
+// a list that isn't loaded yet is shown while it loads, its rows come in as they're read and nothing
+// can be changed until it's done (the window comes up right away at startup, the default list follows)
 
 public class TaskView extends JFrame implements TaskObserver {
     private static final Color BG_COLOR = new Color(245, 245, 250),
-                              HEADER_COLOR = new Color(70, 130, 180),
-                              ACTIVE_TASK_BG = new Color(210, 235, 255),
-                              COMPLETED_TASK_BG = new Color(245, 245, 245),
-                              EDIT_COLOR = new Color(100, 180, 220),
-                              DELETE_COLOR = new Color(255, 140, 140);
+                              HEADER_COLOR = new Color(70, 130, 180);
+    private static final int FRAME_MILLIS = 16;
+    private static final int SEARCH_DELAY_MILLIS = 150; // search once typing pauses, not on every key
+    private static final int MAX_CACHED_LISTS = 8; // lists whose rows are kept for switching back
+    // due dates are shown and typed in local time, to the minute
+    static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
     
     private TaskModel model;
     private TaskController controller;
+    private Workspace workspace; // null if the view only shows one model
+    private TaskList currentList;
+    private JMenu listsMenu;
     
-    private JPanel tasksPanel;
+    private JList<Task> taskList;
+    private TaskListModel listModel;
+    private TaskCellRenderer cellRenderer;
     
+    private JTextField searchField;
+    private javax.swing.Timer searchTimer;
+    private String searchQuery = "";
+
     private JTextArea taskDescriptionField;
     private JButton addButton;
+    private JButton undoButton, redoButton;
+    private JMenuItem importItem, exportItem;
+    private boolean editable = true; // false while the shown list loads
+    private boolean painted;
     
     private JCheckBox showCompletedCheckbox;
     private JComboBox<String> sortSelector;
     private JLabel counterLabel;
     
     private TaskSortStrategy[] sortStrategies;
+    private TaskListRefresher refresher;
+    private TaskQuery filterQuery; // null shows every task
+    // the refresher of each recently shown model holds the rows it showed last, least recently shown first
+    private final Map<TaskModel, ListState> listStates = new LinkedHashMap<TaskModel, ListState>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<TaskModel, ListState> eldest) {
+            return size() > MAX_CACHED_LISTS;
+        }
+    };
+    private boolean scrollToBottom;
     private JScrollPane contentScrollPane;
 
+    private static final class ListState {
+        final TaskListRefresher refresher;
+        Point scrollPosition = new Point();
+
+        ListState(TaskListRefresher refresher) {
+            this.refresher = refresher;
+        }
+    }
+
     public TaskView(TaskModel model, TaskController controller) {
-        this.model = model;
-        this.controller = controller;
-        model.addObserver(this);
-        try {UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());} 
-        catch (Exception e) {e.printStackTrace();}
+        this((Workspace) null);
+        setModel(model, controller);
+    }
+
+    // starts with the workspace's default list
+    public TaskView(Workspace workspace) {
+        this.workspace = workspace;
+        // it's usually the default already, setting it again would build all of its defaults a second time
+        String lookAndFeel = UIManager.getCrossPlatformLookAndFeelClassName();
+        if (!UIManager.getLookAndFeel().getClass().getName().equals(lookAndFeel)) {
+            try {UIManager.setLookAndFeel(lookAndFeel);} 
+            catch (Exception e) {e.printStackTrace();}
+        }
+        // times everything the EDT does from here on, see EdtMonitor
+        EdtMonitor.install();
         
         // init sort strategies
         sortStrategies = new TaskSortStrategy[] {
             new IdSortStrategy(),
             new StatusSortStrategy(),
-            new AlphabeticalSortStrategy()
+            new AlphabeticalSortStrategy(),
+            new StatusSortStrategy().thenBy(new AlphabeticalSortStrategy()),
+            new PriorityDueSortStrategy()
         };
         
+        searchTimer = new javax.swing.Timer(SEARCH_DELAY_MILLIS, e -> {
+            if (!searchField.getText().trim().equals(searchQuery)) filter();
+        });
+        searchTimer.setRepeats(false);
+        
         setTitle("Task Manager App");
         setSize(600, 800);
         setResizable(false);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         initComponents();
         setLocationRelativeTo(null);
+        
+        if (workspace != null) show(workspace.openLater(Workspace.DEFAULT_LIST));
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            StartupTimer.mark("firstPaint");
+            startedUp();
+        }
+    }
+
+    // the window is up and the list is loaded. -Dtaskmanager.startup.exit=true closes the app right then,
+    // for a run that records the classes of the startup (see appcds.sh)
+    private void startedUp() {
+        if (!painted || !editable || !StartupTimer.mark("interactive")) return;
+        if (Boolean.getBoolean("taskmanager.startup.exit")) dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
     }
 
     // functions for method chaining (my favorite, easy in js)
-    private <T extends JComponent> T ui(T c, Color bg, Consumer<T> setup) {
+    static <T extends JComponent> T ui(T c, Color bg, Consumer<T> setup) {
         if (bg != null) c.setBackground(bg);
         if (setup != null) setup.accept(c);
         return c;
     }
     
     // util for creating fonts
-    private Font createFont(int style, int size) {
+    static Font createFont(int style, int size) {
         return new Font("Arial", style, size);
     }
     
     // util for shared button styling
-    private void setupButton(JButton button, Font font, Color fgColor) {
+    static void setupButton(JButton button, Font font, Color fgColor) {
         button.setFont(font);
         button.setContentAreaFilled(false);
         button.setBorderPainted(false);
@@ -97,6 +191,31 @@ public class TaskView extends JFrame implements TaskObserver {
             c.setBorder(new EmptyBorder(10, 10, 10, 0));
         });
         
+        searchField = ui(new JTextField(16), null, c -> {
+            c.setFont(createFont(Font.PLAIN, 13));
+            c.setToolTipText("Search tasks");
+            c.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+            c.getDocument().addDocumentListener(new DocumentListener() {
+                @Override public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+                @Override public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+                @Override public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+            });
+        });
+        
+        undoButton = ui(new JButton("Undo"), null, c -> {
+            setupButton(c, createFont(Font.BOLD, 12), Color.WHITE);
+            c.setToolTipText("Undo (Ctrl+Z)");
+            c.setEnabled(false);
+            c.addActionListener(e -> undo());
+        });
+        
+        redoButton = ui(new JButton("Redo"), null, c -> {
+            setupButton(c, createFont(Font.BOLD, 12), Color.WHITE);
+            c.setToolTipText("Redo (Ctrl+Y)");
+            c.setEnabled(false);
+            c.addActionListener(e -> redo());
+        });
+        
         // input components
         taskDescriptionField = ui(new JTextArea(3, 30), null, c -> {
             c.setFont(createFont(Font.PLAIN, 14));
@@ -126,26 +245,52 @@ public class TaskView extends JFrame implements TaskObserver {
                 if (!description.isEmpty()) {
                     controller.addTask(description);
                     taskDescriptionField.setText("");
-                    // scroll to bottom after adding new task
-                    SwingUtilities.invokeLater(() -> {
-                        SwingUtilities.invokeLater(() -> {
-                            JScrollBar verticalScrollBar = contentScrollPane.getVerticalScrollBar();
-                            verticalScrollBar.setValue(verticalScrollBar.getMaximum());
-                        });
-                    });
+                    // scroll to bottom after adding new task (once the refresh has shown it)
+                    scrollToBottom = true;
                 }
             });
         });
         
-        // task components
-        tasksPanel = ui(new JPanel(), Color.WHITE, p -> 
-            p.setLayout(new BoxLayout(p, BoxLayout.Y_AXIS)));
+        // task components, a virtualized list that only paints the visible rows
+        listModel = new TaskListModel();
+        cellRenderer = new TaskCellRenderer();
+        taskList = ui(new JList<>(listModel), Color.WHITE, l -> {
+            l.setUI(new TaskListUI());
+            l.setCellRenderer(cellRenderer);
+            l.setFixedCellHeight(cellRenderer.getRowHeight());
+            l.setFixedCellWidth(cellRenderer.getRowWidth());
+            l.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            MouseAdapter rowMouse = new MouseAdapter() {
+                @Override public void mouseClicked(MouseEvent e) {
+                    if (!SwingUtilities.isLeftMouseButton(e) || !editable) return;
+                    int index = l.locationToIndex(e.getPoint());
+                    if (index < 0) return;
+                    Task task = listModel.getElementAt(index);
+                    switch (cellRenderer.hitTest(l, index, e.getPoint())) {
+                        // a toggle of the row as it's shown, if the task changed meanwhile the click is dropped
+                        case CHECKBOX: controller.trySetTaskCompleted(task, !task.isCompleted()); break;
+                        case EDIT: showEditDialog(task); break;
+                        case DELETE: controller.deleteTask(task); break;
+                        default: break;
+                    }
+                }
+                @Override public void mouseMoved(MouseEvent e) {
+                    int index = l.locationToIndex(e.getPoint());
+                    TaskCellRenderer.Hit hit = index < 0 ? TaskCellRenderer.Hit.NONE 
+                        : cellRenderer.hitTest(l, index, e.getPoint());
+                    l.setCursor(Cursor.getPredefinedCursor(hit == TaskCellRenderer.Hit.EDIT 
+                        || hit == TaskCellRenderer.Hit.DELETE ? Cursor.HAND_CURSOR : Cursor.DEFAULT_CURSOR));
+                }
+            };
+            l.addMouseListener(rowMouse);
+            l.addMouseMotionListener(rowMouse);
+        });
 
         // footer components
         showCompletedCheckbox = ui(new JCheckBox("Show Completed Tasks", true), null, c -> {
             c.setFont(createFont(Font.PLAIN, 12));
             c.setBackground(BG_COLOR);
-            c.addActionListener(e -> update());
+            c.addActionListener(e -> filter());
         });
 
         counterLabel = ui(new JLabel("0 pending · 0 completed"), null, c -> {
@@ -163,8 +308,10 @@ public class TaskView extends JFrame implements TaskObserver {
             c.setFont(createFont(Font.PLAIN, 12));
             c.addActionListener(e -> {
                 int selectedIndex = sortSelector.getSelectedIndex();
-                if (selectedIndex >= 0 && selectedIndex < sortStrategies.length) {
-                    model.setSortStrategy(sortStrategies[selectedIndex]);
+                // also fires when an undo puts the selection back, then the strategy is already set
+                if (selectedIndex >= 0 && selectedIndex < sortStrategies.length 
+                        && sortStrategies[selectedIndex] != model.getSortStrategy()) {
+                    controller.setSortStrategy(sortStrategies[selectedIndex]);
                 }
             });
         });
@@ -173,8 +320,14 @@ public class TaskView extends JFrame implements TaskObserver {
         // --------------------------------------
 
         // header panel
-        JPanel headerPanel = ui(new JPanel(new FlowLayout(FlowLayout.LEFT)), HEADER_COLOR, p -> 
-            p.add(titleLabel));
+        JPanel headerPanel = ui(new JPanel(new BorderLayout()), HEADER_COLOR, p -> {
+            p.add(titleLabel, BorderLayout.WEST);
+            p.add(ui(new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 8)), HEADER_COLOR, sp -> {
+                sp.add(undoButton);
+                sp.add(redoButton);
+                sp.add(searchField);
+            }), BorderLayout.EAST);
+        });
         
         // input panel
         JPanel inputPanel = ui(new JPanel(new BorderLayout(5, 0)), BG_COLOR, p -> {
@@ -187,9 +340,7 @@ public class TaskView extends JFrame implements TaskObserver {
         });
         
         // task panel
-        contentScrollPane = ui(new JScrollPane(
-            ui(new JPanel(new BorderLayout()), Color.WHITE, p -> p.add(tasksPanel, BorderLayout.NORTH))
-        ), null, c -> {
+        contentScrollPane = ui(new JScrollPane(taskList), null, c -> {
             c.setBorder(null);
             c.getViewport().setBackground(Color.WHITE);
             c.getVerticalScrollBar().setUnitIncrement(16);
@@ -224,120 +375,374 @@ public class TaskView extends JFrame implements TaskObserver {
         // 3. assemble main layout
         // --------------------------------------       
 
+        // menu
+        setJMenuBar(ui(new JMenuBar(), null, mb -> {
+            JMenu fileMenu = new JMenu("File");
+            fileMenu.setFont(createFont(Font.PLAIN, 12));
+            importItem = new JMenuItem("Import Tasks...");
+            importItem.addActionListener(e -> importTasks());
+            exportItem = new JMenuItem("Export Tasks...");
+            exportItem.addActionListener(e -> exportTasks());
+            fileMenu.add(importItem);
+            fileMenu.add(exportItem);
+            mb.add(fileMenu);
+            if (workspace != null) {
+                listsMenu = new JMenu("Lists");
+                listsMenu.setFont(createFont(Font.PLAIN, 12));
+                mb.add(listsMenu);
+            }
+        }));
+
         // add main panels 
         setLayout(new BorderLayout());
         getContentPane().setBackground(BG_COLOR);
         add(headerPanel, BorderLayout.NORTH);
         add(centerPanel, BorderLayout.CENTER);
         add(footerPanel, BorderLayout.SOUTH);
+        
+        // undo and redo from anywhere in the window, the text fields don't use these keys
+        int menuKey = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        JRootPane root = getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuKey), "undo");
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menuKey), "redo");
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuKey | InputEvent.SHIFT_DOWN_MASK), "redo");
+        root.getActionMap().put("undo", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { undo(); }
+        });
+        root.getActionMap().put("redo", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { redo(); }
+        });
     }
     
+    // shows another model, e.g. another list of the workspace. on the EDT.
+    // one refresher per model is what observes it, one refresh per frame at most, worked out off the EDT.
+    // a model that was shown recently comes back with its last rows and scroll position right away,
+    // the refresh from the model follows within a frame
+    public void setModel(TaskModel model, TaskController controller) {
+        if (model == this.model) return;
+        if (refresher != null) {
+            ListState old = listStates.get(this.model);
+            if (old != null) old.scrollPosition = contentScrollPane.getViewport().getViewPosition();
+            refresher.detach();
+        }
+        this.model = model;
+        this.controller = controller;
+        ListState state = listStates.get(model);
+        if (state == null) {
+            state = new ListState(new TaskListRefresher(model, listModel, FRAME_MILLIS, this::refreshed));
+            listStates.put(model, state);
+        }
+        refresher = state.refresher;
+        scrollToBottom = false;
+        refresher.attach(filterQuery);
+        contentScrollPane.validate();
+        contentScrollPane.getViewport().setViewPosition(state.scrollPosition);
+        updateCounter();
+        updateHistory();
+    }
+
+    // the model re-read as a whole
     @Override
     public void update() {
-        // get tasks from model
-        List<Task> tasks = model.getTasks();
-        final int[] counts = new int[2]; // [completed, pending]
-        boolean showCompleted = showCompletedCheckbox.isSelected();
-        
-        // UI updates
-        SwingUtilities.invokeLater(() -> {
-            // save scroll position
-            JScrollBar verticalScrollBar = contentScrollPane.getVerticalScrollBar();
-            int scrollPosition = verticalScrollBar.getValue();
-
-            // clear existing tasks
-            tasksPanel.removeAll();
-            
-            // add tasks
-            for (Task task : tasks) {
-                counts[task.isCompleted() ? 0 : 1]++;
-                if (task.isCompleted() && !showCompleted) continue;
-                
-                tasksPanel.add(createTaskEntry(task));
-                tasksPanel.add(Box.createRigidArea(new Dimension(0, 1)));
+        refresher.update();
+    }
+
+    // the refresher is what's registered with the model, so late events of a model that was just switched away
+    // from can't end up in another one's list. events passed in here go to the shown model's refresher
+    @Override
+    public void taskChanged(TaskEvent event) {
+        refresher.taskChanged(event);
+    }
+
+    // lists of the workspace, shown right away. one that isn't loaded yet is read off the EDT, see show()
+
+    private void showList(String name) {
+        try {
+            show(workspace.openLater(name));
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Task Manager", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // the shown list is pinned, the workspace doesn't evict it
+    private void show(TaskList list) {
+        if (list == currentList) return;
+        list.pin();
+        if (currentList != null) currentList.unpin();
+        currentList = list;
+        setTitle("Task Manager App - " + list.getName());
+        boolean ready = list.isLoaded();
+        setEditable(ready);
+        if (!ready) awaitLoad(list);
+        setModel(list.getModel(), list.getController());
+        // rows of evicted lists would only hold on to their tasks
+        List<TaskList> loaded = workspace.getLoadedLists();
+        listStates.keySet().removeIf(m -> m != model && loaded.stream().noneMatch(l -> l.getModel() == m));
+        updateListsMenu();
+    }
+
+    private void awaitLoad(TaskList list) {
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() {
+                list.awaitLoad();
+                return null;
             }
-            
-            // update counter and refresh UI
-            counterLabel.setText(counts[1] + " pending · " + counts[0] + " completed");
-            tasksPanel.revalidate();
-            tasksPanel.repaint();
-
-            // restore scroll position
-            SwingUtilities.invokeLater(() -> verticalScrollBar.setValue(scrollPosition));
-        });
+            @Override protected void done() {
+                if (list != currentList) return; // another one was shown meanwhile
+                setEditable(true);
+                updateCounter();
+            }
+        }.execute();
+    }
+
+    private void setEditable(boolean editable) {
+        this.editable = editable;
+        addButton.setEnabled(editable);
+        importItem.setEnabled(editable);
+        exportItem.setEnabled(editable);
+        setCursor(Cursor.getPredefinedCursor(editable ? Cursor.DEFAULT_CURSOR : Cursor.WAIT_CURSOR));
+        if (editable) startedUp();
+    }
+
+    private void updateListsMenu() {
+        listsMenu.removeAll();
+        List<String> names;
+        try {
+            names = workspace.getListNames();
+        } catch (IOException e) {
+            e.printStackTrace();
+            names = List.of(currentList.getName());
+        }
+        int menuKey = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        ButtonGroup group = new ButtonGroup();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(name, name.equals(currentList.getName()));
+            if (i < 9) item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_1 + i, menuKey));
+            item.addActionListener(e -> showList(name));
+            group.add(item);
+            listsMenu.add(item);
+        }
+        listsMenu.addSeparator();
+        JMenuItem newItem = new JMenuItem("New List...");
+        newItem.addActionListener(e -> newList());
+        listsMenu.add(newItem);
+        JMenuItem deleteItem = new JMenuItem("Delete List...");
+        deleteItem.setEnabled(!currentList.getName().equals(Workspace.DEFAULT_LIST));
+        deleteItem.addActionListener(e -> deleteList());
+        listsMenu.add(deleteItem);
+    }
+
+    private void newList() {
+        String name = JOptionPane.showInputDialog(this, "Name of the new list:", "New List", JOptionPane.PLAIN_MESSAGE);
+        if (name == null || name.trim().isEmpty()) return;
+        try {
+            show(workspace.create(name.trim()));
+        } catch (IllegalArgumentException | IOException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Task Manager", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // the shown list is deleted, the default list is shown instead
+    private void deleteList() {
+        String name = currentList.getName();
+        if (JOptionPane.showConfirmDialog(this, "Delete the list " + name + " and all of its tasks?", 
+                "Delete List", JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE) != JOptionPane.OK_OPTION) return;
+        show(workspace.openLater(Workspace.DEFAULT_LIST));
+        try {
+            workspace.delete(name);
+        } catch (IllegalStateException | IOException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Task Manager", JOptionPane.ERROR_MESSAGE);
+        }
+        updateListsMenu();
+    }
+
+    // on the EDT once the list shows the refreshed rows
+    private void refreshed() {
+        updateCounter();
+        updateHistory();
+        if (scrollToBottom) {
+            scrollToBottom = false;
+            taskList.ensureIndexIsVisible(listModel.getSize() - 1);
+        }
+    }
+
+    // the show completed checkbox and the search box make up one query, the list shows its result
+    private void filter() {
+        searchQuery = searchField.getText().trim();
+        TaskQuery query = null;
+        if (!showCompletedCheckbox.isSelected()) query = TaskQuery.all().completed(false);
+        if (!searchQuery.isEmpty()) query = (query != null ? query : TaskQuery.all()).text(searchQuery);
+        filterQuery = query;
+        refresher.setFilter(query);
+    }
+
+    private void undo() {
+        controller.undo();
+        updateHistory();
     }
     
-    // create a task entry
-    private JPanel createTaskEntry(Task task) {
-        boolean completed = task.isCompleted();
-        Color bg = completed ? COMPLETED_TASK_BG : ACTIVE_TASK_BG;
-        
-        // create a task entry panel
-        JPanel entry = ui(new JPanel(new BorderLayout()), bg, p -> {
-            p.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(230, 230, 230)),
-                new EmptyBorder(8, 8, 8, 8)));
-            p.setMaximumSize(new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE));
-            
-            // add checkbox
-            p.add(ui(new JCheckBox(), bg, c -> {
-                c.setSelected(completed);
-                c.setMargin(new Insets(0, 5, 0, 12));
-                c.setVerticalAlignment(SwingConstants.CENTER);
-                c.addActionListener(e -> controller.setTaskCompleted(task, c.isSelected()));
-            }), BorderLayout.WEST);
-            
-            // task description
-            p.add(ui(new JPanel(new GridBagLayout()), bg, dw -> { 
-                GridBagConstraints gbc = new GridBagConstraints();
-                gbc.fill = GridBagConstraints.HORIZONTAL; 
-                gbc.weightx = 1.0; 
-                dw.add(ui(new JTextArea(task.getDescription()), bg, d -> {
-                    d.setWrapStyleWord(true);
-                    d.setLineWrap(true);
-                    d.setEditable(false);
-                    d.setFocusable(false);
-                    d.setMargin(new Insets(5, 5, 5, 5));
-                    d.setFont(createFont(Font.PLAIN, 14));
-                    d.setForeground(completed ? Color.GRAY : Color.BLACK);
-                    d.setBorder(null);
-                }), gbc); // 
-            }), BorderLayout.CENTER);
-            
-            // add edit and delete links/buttons
-            p.add(ui(new JPanel(), bg, l -> {
-                l.setLayout(new BoxLayout(l, BoxLayout.X_AXIS));
-                l.setAlignmentY(Component.CENTER_ALIGNMENT);
-                l.setBorder(BorderFactory.createEmptyBorder(4, 0, 0, 10));
-                
-                // edit dialog 
-                JButton editBtn = ui(new JButton("Edit"), null, b -> {
-                    setupButton(b, createFont(Font.BOLD, 14), EDIT_COLOR);
-                    b.addActionListener(e -> {
-                        JTextArea textArea = new JTextArea(task.getDescription(), 5, 30);
-                        textArea.setLineWrap(true);
-                        textArea.setWrapStyleWord(true);
-                        if (JOptionPane.showConfirmDialog(this, new JScrollPane(textArea), 
-                            "Edit Task", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION) {
-                            String newText = textArea.getText().trim();
-                            if (!newText.isEmpty()) controller.editTask(task, newText);
-                        }
-                    });
-                });
-                
-                // delete button 
-                JButton delBtn = ui(new JButton("Delete"), null, b -> {
-                    setupButton(b, createFont(Font.BOLD, 14), DELETE_COLOR);
-                    b.addActionListener(e -> controller.deleteTask(task));
+    private void redo() {
+        controller.redo();
+        updateHistory();
+    }
+    
+    // the buttons follow the history, the sort selector follows the model (an undo may have changed the order)
+    private void updateHistory() {
+        undoButton.setEnabled(controller.canUndo());
+        redoButton.setEnabled(controller.canRedo());
+        for (int i = 0; i < sortStrategies.length; i++) {
+            if (sortStrategies[i] == model.getSortStrategy() && sortSelector.getSelectedIndex() != i) {
+                sortSelector.setSelectedIndex(i);
+            }
+        }
+    }
+
+    // import / export, the file is streamed on a SwingWorker and the ui keeps going (the list fills in batch by batch)
+    private void importTasks() {
+        Path file = chooseFile(true);
+        if (file == null) return;
+        int keepIds = JOptionPane.showConfirmDialog(this, 
+            "Keep the ids from the file?\nTasks with the same id are replaced, otherwise every task gets a new id.", 
+            "Import Tasks", JOptionPane.YES_NO_CANCEL_OPTION);
+        if (keepIds != JOptionPane.YES_OPTION && keepIds != JOptionPane.NO_OPTION) return;
+        TaskController target = controller; // the list that's shown now, not when the worker gets to it
+        runTransfer("Importing " + file.getFileName(), "imported", 
+            listener -> target.importTasks(file, TaskFormat.forFile(file), keepIds == JOptionPane.YES_OPTION, listener));
+    }
+    
+    private void exportTasks() {
+        Path file = chooseFile(false);
+        if (file == null) return;
+        TaskController source = controller;
+        runTransfer("Exporting to " + file.getFileName(), "exported", 
+            listener -> source.exportTasks(file, TaskFormat.forFile(file), listener));
+    }
+    
+    // null if nothing (or a file of an unknown type) was picked
+    private Path chooseFile(boolean open) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Task files (.csv, .ndjson, .jsonl)", "csv", "ndjson", "jsonl"));
+        int result = open ? chooser.showOpenDialog(this) : chooser.showSaveDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) return null;
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            TaskFormat.forFile(file);
+            return file;
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Task Manager", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+    
+    private interface Transfer {
+        long run(TransferListener listener) throws IOException;
+    }
+    
+    // the list stays loaded until the transfer is done, even if another one is shown meanwhile
+    private void runTransfer(String title, String verb, Transfer transfer) {
+        TaskList list = currentList;
+        if (list != null) list.pin();
+        ProgressMonitor monitor = new ProgressMonitor(this, title, "", 0, 1000);
+        monitor.setMillisToDecideToPopup(250);
+        AtomicBoolean cancelled = new AtomicBoolean(); // the monitor is only touched on the EDT
+        new SwingWorker<Long, Void>() {
+            @Override protected Long doInBackground() throws IOException {
+                return transfer.run(new TransferListener() {
+                    @Override public void progress(long done, long total, long tasks) {
+                        int permille = total > 0 ? (int) Math.min(1000, done * 1000 / total) : 0;
+                        SwingUtilities.invokeLater(() -> {
+                            if (monitor.isCanceled()) cancelled.set(true);
+                            monitor.setProgress(permille);
+                            monitor.setNote(tasks + " tasks");
+                        });
+                    }
+                    @Override public boolean isCancelled() {
+                        return cancelled.get();
+                    }
                 });
-                
-                // add buttons to layout
-                l.add(editBtn);
-                l.add(Box.createHorizontalStrut(20));
-                l.add(delBtn);
-            }), BorderLayout.EAST);
+            }
+            @Override protected void done() {
+                monitor.close();
+                if (list != null) list.unpin();
+                try {
+                    long count = get();
+                    String message = cancelled.get() 
+                        ? "Cancelled, " + count + " tasks " + verb + "." : count + " tasks " + verb + ".";
+                    JOptionPane.showMessageDialog(TaskView.this, message, "Task Manager", JOptionPane.INFORMATION_MESSAGE);
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(TaskView.this, e.getCause().getMessage(), "Task Manager", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+    }
+
+    private void updateCounter() {
+        if (!editable) {
+            counterLabel.setText("Loading... " + model.getTaskCount() + " tasks");
+            return;
+        }
+        counterLabel.setText(model.getPendingCount() + " pending · " + model.getCompletedCount() + " completed");
+    }
+    
+    // edit dialog, the description, priority and due date change as one undo step.
+    // they're only saved if the task wasn't changed while the dialog was open (another window, the HTTP API)
+    private void showEditDialog(Task task) {
+        JTextArea textArea = new JTextArea(task.getDescription(), 5, 30);
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        JComboBox<Priority> priorityBox = new JComboBox<>(Priority.values());
+        priorityBox.setSelectedItem(task.getPriority());
+        priorityBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focus) {
+                return super.getListCellRendererComponent(list, ((Priority) value).getLabel(), index, selected, focus);
+            }
         });
-        
-        return entry;
+        JTextField dueField = new JTextField(task.hasDueDate() ? DUE_FORMAT.format(Instant.ofEpochMilli(task.getDueDate())) : "", 16);
+
+        JPanel schedule = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        schedule.add(new JLabel("Priority:"));
+        schedule.add(priorityBox);
+        schedule.add(new JLabel("Due (yyyy-MM-dd HH:mm, empty for none):"));
+        schedule.add(dueField);
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.add(new JScrollPane(textArea), BorderLayout.CENTER);
+        panel.add(schedule, BorderLayout.SOUTH);
+
+        while (JOptionPane.showConfirmDialog(this, panel, 
+            "Edit Task", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION) {
+            String newText = textArea.getText().trim();
+            long dueDate;
+            try {
+                dueDate = parseDueDate(dueField.getText());
+            } catch (DateTimeParseException e) {
+                JOptionPane.showMessageDialog(this, "The due date has to look like 2024-05-01 09:00", "Task Manager", JOptionPane.ERROR_MESSAGE);
+                continue;
+            }
+            Priority priority = (Priority) priorityBox.getSelectedItem();
+            boolean[] saved = new boolean[1];
+            controller.batch(() -> {
+                Task current = task;
+                if (!newText.isEmpty()) {
+                    if (!controller.tryEditTask(current, newText)) return;
+                    current = model.getTask(task.getId()); // nobody else gets in between inside the batch
+                }
+                saved[0] = controller.tryScheduleTask(current, priority, dueDate);
+            });
+            if (!saved[0]) {
+                JOptionPane.showMessageDialog(this, "The task was changed or deleted while you were editing it, "
+                    + "your changes weren't saved.", "Task Manager", JOptionPane.WARNING_MESSAGE);
+            }
+            return;
+        }
+    }
+
+    private static long parseDueDate(String text) {
+        if (text.trim().isEmpty()) return Task.NO_DUE_DATE;
+        return LocalDateTime.parse(text.trim(), DUE_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 }
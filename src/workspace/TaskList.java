@@ -0,0 +1,140 @@
+package workspace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import model.TaskStore;
+import controller.TaskController;
+import persistence.TaskStorage;
+
+// one named list of the workspace and everything that belongs to it: the model, the factory for its ids,
+// a controller (so every list has its own undo history) and the storage that keeps it on disk.
+// a list is loaded by the workspace and closed when it's evicted, after that a fresh one is loaded again.
+// it's handed out before its tasks are read (Workspace.openLater()), the model fills up while they load
+
+public class TaskList {
+    // rough heap cost of a task on top of its description: the Task, the String, the store slot,
+    // a slot in each sort index and the bitsets. only used to weigh the lists against each other
+    static final int TASK_OVERHEAD = 160;
+
+    private final String name;
+    private final TaskStore store;
+    private final TaskModel model;
+    private final TaskFactory taskFactory;
+    private final TaskController controller;
+    private final TaskStorage storage;
+    private volatile int bytesPerTask = TASK_OVERHEAD + 32;
+    private final AtomicInteger pins = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean(); // loading, or the load was called off
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private volatile boolean open = true;
+
+    TaskList(String name, Path directory, TaskStore store) {
+        this.name = name;
+        this.store = store;
+        model = new TaskModel(store);
+        taskFactory = new TaskFactory();
+        storage = new TaskStorage(directory);
+        controller = new TaskController(model, taskFactory);
+    }
+
+    // reads the stored tasks into the model, once, on the workspace's loader thread.
+    // false if the load was called off before it started
+    boolean load() {
+        if (!started.compareAndSet(false, true)) return false;
+        try {
+            // if the stored tasks can't be read the list still works, it just doesn't save
+            try {storage.open(model, taskFactory);}
+            catch (IOException e) {e.printStackTrace();}
+
+            // the descriptions are measured once, new tasks are assumed to be like the loaded ones
+            List<Task> tasks = model.getTasks();
+            long chars = 0;
+            for (Task task : tasks) chars += task.getDescription().length();
+            bytesPerTask = TASK_OVERHEAD + (tasks.isEmpty() ? 32 : (int) (chars / tasks.size()));
+        } finally {
+            loading.countDown();
+        }
+        return true;
+    }
+
+    // when the workspace closes before the load started: the list stays empty and closes without writing
+    // anything. false if it's loading or loaded already
+    boolean cancelLoad() {
+        if (!started.compareAndSet(false, true)) return false;
+        loading.countDown();
+        return true;
+    }
+
+    // until it's loaded the list is only for showing: changes wouldn't be saved and new tasks would get
+    // ids that are taken already
+    public boolean isLoaded() {
+        return loading.getCount() == 0;
+    }
+
+    public void awaitLoad() {
+        try {
+            loading.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TaskModel getModel() {
+        return model;
+    }
+
+    public TaskFactory getTaskFactory() {
+        return taskFactory;
+    }
+
+    public TaskController getController() {
+        return controller;
+    }
+
+    // a pinned list isn't evicted: the one that's shown, one that's being imported into, ...
+    public void pin() {
+        pins.incrementAndGet();
+    }
+
+    public void unpin() {
+        pins.decrementAndGet();
+    }
+
+    boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    // false once the workspace evicted or deleted it, changes to it aren't saved anymore
+    public boolean isOpen() {
+        return open;
+    }
+
+    long estimateBytes() {
+        return (long) model.getTaskCount() * bytesPerTask;
+    }
+
+    // writes a last snapshot, so loading it again only reads that. then the store lets go of what it
+    // holds outside the heap (the columnar store's mapped file)
+    void close() {
+        awaitLoad();
+        open = false;
+        model.stopReminders();
+        storage.close();
+        if (store instanceof Closeable) {
+            try {((Closeable) store).close();}
+            catch (IOException e) {e.printStackTrace();}
+        }
+    }
+}
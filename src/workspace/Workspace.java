@@ -0,0 +1,256 @@
+package workspace;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import model.TaskStore;
+
+// many named task lists, each stored on its own. only the lists that are used get loaded, and they stay
+// loaded (switching back is instant) until the loaded lists together need more heap than the budget,
+// then the least recently used ones are closed and dropped. pinned lists are never evicted.
+// a list is read on a loader thread, openLater() hands it out right away and open() waits for it.
+// nothing waits for a list to load or close while holding the workspace's lock, the loader takes it
+// after every load
+//
+// the default list lives in the data directory itself, where the single list always was,
+// every other list in a directory of its own under lists/
+
+public class Workspace {
+    public static final String DEFAULT_LIST = "Tasks";
+    private static final String LISTS_DIRECTORY = "lists";
+    // names are used as directory names, so only characters that are safe in one on every system
+    private static final Pattern NAME = Pattern.compile("[\\p{L}\\p{N}][\\p{L}\\p{N} _.-]{0,63}");
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.latency("workspace.load");
+    private static final Counter EVICTIONS = Metrics.counter("workspace.evictions");
+
+    private final Path directory;
+    private final long heapBudget;
+    private final Supplier<TaskStore> stores;
+    private final LinkedHashMap<String, TaskList> loaded = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    // evicted lists write their last snapshot in the background, a list is only loaded again once that's done
+    private final ExecutorService closer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "workspace-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Future<?>> closing = new HashMap<>();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "workspace-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> deleting = new HashSet<>();
+    private boolean closed;
+
+    public Workspace(Path directory, long heapBudget, Supplier<TaskStore> stores) {
+        this.directory = directory;
+        this.heapBudget = heapBudget;
+        this.stores = stores;
+    }
+
+    // -Dtaskmanager.workspace.budget=512m (k, m and g work), a quarter of the max heap otherwise
+    public static long defaultBudget() {
+        String budget = System.getProperty("taskmanager.workspace.budget");
+        if (budget == null) return Runtime.getRuntime().maxMemory() / 4;
+        budget = budget.trim().toLowerCase(Locale.ROOT);
+        long unit = 1;
+        switch (budget.isEmpty() ? ' ' : budget.charAt(budget.length() - 1)) {
+            case 'k': unit = 1L << 10; break;
+            case 'm': unit = 1L << 20; break;
+            case 'g': unit = 1L << 30; break;
+            default: break;
+        }
+        if (unit > 1) budget = budget.substring(0, budget.length() - 1);
+        return Long.parseLong(budget) * unit;
+    }
+
+    // the default list first, the others by name
+    public synchronized List<String> getListNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        Path lists = directory.resolve(LISTS_DIRECTORY);
+        if (Files.isDirectory(lists)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(lists, Files::isDirectory)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    if (NAME.matcher(name).matches() && !name.equals(DEFAULT_LIST) && !deleting.contains(name)) names.add(name);
+                }
+            }
+        }
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        names.add(0, DEFAULT_LIST);
+        return names;
+    }
+
+    public synchronized boolean isLoaded(String name) {
+        return loaded.containsKey(name);
+    }
+
+    public synchronized List<TaskList> getLoadedLists() {
+        return new ArrayList<>(loaded.values());
+    }
+
+    public synchronized long getLoadedBytes() {
+        long bytes = 0;
+        for (TaskList list : loaded.values()) bytes += list.estimateBytes();
+        return bytes;
+    }
+
+    // a loaded list is returned right away, otherwise it's read from disk first (that can take a while)
+    public TaskList open(String name) {
+        TaskList list = openLater(name);
+        list.awaitLoad();
+        return list;
+    }
+
+    // the list right away, if it isn't loaded yet its tasks come in while it's used (TaskList.isLoaded())
+    public synchronized TaskList openLater(String name) {
+        if (closed) throw new IllegalStateException("The workspace is closed");
+        TaskList list = loaded.get(name);
+        if (list == null) {
+            if (!exists(name)) throw new IllegalArgumentException("There is no list called " + name);
+            Future<?> pendingClose = closing.remove(name);
+            TaskList loading = new TaskList(name, directoryOf(name), stores.get());
+            loaded.put(name, loading);
+            loader.execute(() -> {
+                awaitClose(pendingClose);
+                long start = System.nanoTime();
+                if (!loading.load()) return; // closed or deleted before its turn
+                LOAD_LATENCY.recordSince(start);
+                // now that it's known how big it is
+                synchronized (this) {
+                    if (loaded.get(name) == loading) evict(loading);
+                }
+            });
+            list = loading;
+        }
+        evict(list);
+        return list;
+    }
+
+    public synchronized TaskList create(String name) throws IOException {
+        if (closed) throw new IllegalStateException("The workspace is closed");
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("A list name has letters, digits, spaces, '_', '-' and '.' (up to 64), "
+                + "and starts with a letter or digit");
+        }
+        for (String existing : getListNames()) {
+            // some file systems don't tell the case apart
+            if (existing.equalsIgnoreCase(name)) throw new IllegalArgumentException("There is a list called " + existing + " already");
+        }
+        Files.createDirectories(directoryOf(name));
+        // it's empty, loaded right here rather than behind other lists on the loader
+        TaskList list = new TaskList(name, directoryOf(name), stores.get());
+        list.load();
+        loaded.put(name, list);
+        evict(list);
+        return list;
+    }
+
+    // the list and its files are gone for good. while it's closed (a load that's going on is finished
+    // first) the name can't be opened
+    public void delete(String name) throws IOException {
+        TaskList list;
+        Future<?> pendingClose;
+        synchronized (this) {
+            if (name.equals(DEFAULT_LIST)) throw new IllegalArgumentException("The default list can't be deleted");
+            if (!exists(name)) throw new IllegalArgumentException("There is no list called " + name);
+            list = loaded.get(name);
+            if (list != null && list.isPinned()) throw new IllegalStateException("The list " + name + " is in use");
+            if (list != null) {
+                loaded.remove(name);
+                list.cancelLoad();
+            }
+            pendingClose = closing.remove(name);
+            deleting.add(name);
+        }
+        try {
+            if (list != null) list.close();
+            awaitClose(pendingClose);
+            Path listDirectory = directoryOf(name);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(listDirectory)) {
+                for (Path file : files) Files.delete(file);
+            }
+            Files.delete(listDirectory);
+        } finally {
+            synchronized (this) {
+                deleting.remove(name);
+            }
+        }
+    }
+
+    // closes every loaded list, each writes its snapshot. lists that are waiting for the loader aren't
+    // loaded anymore, one that's loading right now is finished and closed like the others
+    public void close() {
+        List<TaskList> lists;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            lists = new ArrayList<>(loaded.values());
+            loaded.clear();
+            for (TaskList list : lists) list.cancelLoad();
+            loader.shutdown();
+        }
+        for (TaskList list : lists) list.close();
+        closer.shutdown();
+        try {
+            closer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // least recently used first, until the rest fits. one that's still loading isn't closed under the loader
+    private void evict(TaskList keep) {
+        if (closed) return;
+        long bytes = getLoadedBytes();
+        Iterator<TaskList> lists = loaded.values().iterator();
+        while (bytes > heapBudget && lists.hasNext()) {
+            TaskList list = lists.next();
+            if (list == keep || list.isPinned() || !list.isLoaded()) continue;
+            bytes -= list.estimateBytes();
+            lists.remove();
+            closing.put(list.getName(), closer.submit(list::close));
+            EVICTIONS.increment();
+        }
+    }
+
+    private static void awaitClose(Future<?> pending) {
+        if (pending == null) return;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace(); // the snapshot failed, the journal still has the changes
+        }
+    }
+
+    private boolean exists(String name) {
+        if (deleting.contains(name)) return false;
+        return name.equals(DEFAULT_LIST) || (NAME.matcher(name).matches() && Files.isDirectory(directoryOf(name)));
+    }
+
+    private Path directoryOf(String name) {
+        return name.equals(DEFAULT_LIST) ? directory : directory.resolve(LISTS_DIRECTORY).resolve(name);
+    }
+}
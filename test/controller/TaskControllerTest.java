@@ -0,0 +1,161 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import model.HeapTaskStore;
+import model.Priority;
+import model.Task;
+import model.TaskModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// every change through the controller undone and redone step by step, the list compared with what it was
+// after each step. then threads changing the same few tasks at once (like the HTTP server's clients): the
+// history has to hold the values each change really replaced, undoing all of it gets the list it started with
+
+class TaskControllerTest {
+    private final TaskModel model = new TaskModel(new HeapTaskStore());
+    private final TaskController controller = new TaskController(model);
+
+    @AfterEach
+    void tearDown() {
+        model.stopReminders();
+    }
+
+    @Test
+    void everyChangeIsUndoneAndRedone() {
+        List<Map<Integer, String>> states = new ArrayList<>();
+        states.add(contents(model));
+        Task first = controller.addTask("first");
+        states.add(contents(model));
+        List<Task> more = controller.addTasks(List.of("second", "third", "fourth"));
+        states.add(contents(model));
+        controller.editTask(first, "first edited");
+        controller.editTask(first, "first edited again"); // one step with the edit before
+        states.add(contents(model));
+        controller.setTaskCompleted(more.get(0), true);
+        states.add(contents(model));
+        controller.scheduleTask(more.get(1), Priority.HIGH, 5000);
+        states.add(contents(model));
+        controller.deleteTask(more.get(2));
+        states.add(contents(model));
+        controller.batch(() -> {
+            controller.editTask(more.get(0), "second edited");
+            controller.deleteTask(first);
+            controller.addTask("fifth");
+        });
+        states.add(contents(model));
+        controller.markAllCompleted();
+        states.add(contents(model));
+        controller.deleteTasks(model.getTasks());
+        states.add(contents(model));
+
+        // changes that don't change anything aren't steps
+        controller.editTask(first, "gone");
+        controller.setTaskCompleted(more.get(2), false);
+        assertEquals(states.size() - 1, controller.getHistory().getUndoCount());
+
+        for (int i = states.size() - 2; i >= 0; i--) {
+            assertTrue(controller.undo());
+            assertEquals(states.get(i), contents(model), "after undoing to step " + i);
+        }
+        assertFalse(controller.undo());
+        for (int i = 1; i < states.size(); i++) {
+            assertTrue(controller.redo());
+            assertEquals(states.get(i), contents(model), "after redoing step " + i);
+        }
+        assertFalse(controller.redo());
+
+        assertEquals(states.size() - 1, controller.undo(states.size() + 5));
+        assertEquals(states.get(0), contents(model));
+        assertEquals(states.size() - 1, controller.redo(states.size() + 5));
+        assertEquals(states.get(states.size() - 1), contents(model));
+    }
+
+    // a change after an undo drops what could be redone
+    @Test
+    void changeAfterAnUndoCantBeRedoneOver() {
+        Task task = controller.addTask("task");
+        controller.editTask(task, "edited");
+        controller.undo();
+        controller.setTaskCompleted(task, true);
+        assertFalse(controller.canRedo());
+        controller.undo();
+        assertEquals("task", model.getTask(task.getId()).getDescription());
+        assertFalse(model.getTask(task.getId()).isCompleted());
+    }
+
+    @Test
+    void optimisticChangesOfAnOldVersionArentMade() {
+        Task task = controller.addTask("task");
+        Task read = model.getTask(task.getId());
+        assertTrue(controller.tryEditTask(read, "edited"));
+        assertFalse(controller.tryEditTask(read, "edited from an old read"));
+        assertFalse(controller.tryDeleteTask(read));
+        assertEquals("edited", model.getTask(task.getId()).getDescription());
+        assertEquals(2, controller.getHistory().getUndoCount());
+        assertTrue(controller.tryDeleteTask(model.getTask(task.getId())));
+        assertNull(model.getTask(task.getId()));
+        controller.undo(2);
+        assertEquals("task", model.getTask(task.getId()).getDescription());
+    }
+
+    @Test
+    void concurrentChangesAreUndoneToTheStart() throws InterruptedException {
+        List<Task> tasks = controller.addTasks(List.of("a", "b", "c", "d"));
+        controller.getHistory().clear(); // the threads' undos can't take the tasks away
+        Map<Integer, String> start = contents(model);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    for (int i = 0; i < 150; i++) {
+                        Task task = tasks.get(random.nextInt(tasks.size()));
+                        switch (random.nextInt(4)) {
+                            case 0: controller.editTask(task, "edited " + seed + " " + i); break;
+                            case 1: controller.setTaskCompleted(task, random.nextBoolean()); break;
+                            case 2: controller.scheduleTask(task, Priority.values()[random.nextInt(Priority.values().length)], i); break;
+                            default:
+                                if (random.nextBoolean()) controller.deleteTask(task);
+                                else controller.undo();
+                                break;
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) thread.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+
+        controller.undo(Integer.MAX_VALUE);
+        assertEquals(0, controller.getHistory().getUndoCount());
+        assertEquals(start, contents(model));
+    }
+
+    // without the times, every change and its undo move the updated time forward, a redone add is created again
+    private static Map<Integer, String> contents(TaskModel model) {
+        Map<Integer, String> contents = new TreeMap<>();
+        for (Task task : model.getTasks()) {
+            contents.put(task.getId(), task.getDescription() + "|" + task.isCompleted() + "|" + task.getPriority()
+                + "|" + task.getDueDate());
+        }
+        return contents;
+    }
+}
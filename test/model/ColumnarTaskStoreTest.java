@@ -0,0 +1,98 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+// get() reads the columns without a lock while the changes go on. every change here writes a task whose
+// columns all say the same version (description, due date, updated time), a read that mixes two changes
+// shows up as columns that don't agree. the changes move descriptions between size classes, delete and add
+// tasks and grow the columns, so every part of a change can be caught half way
+
+class ColumnarTaskStoreTest {
+    @Test
+    void readsDuringChangesSeeWholeTasks() throws IOException, InterruptedException {
+        try (ColumnarTaskStore store = new ColumnarTaskStore()) {
+            for (int id = 0; id < 100; id++) store.put(task(id, 0));
+
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Thread reader = new Thread(() -> {
+                    Random random = new Random();
+                    try {
+                        while (!done.get()) {
+                            Task task = store.get(random.nextInt(5000));
+                            if (task != null) assertWhole(task);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+
+            Random random = new Random(3);
+            long end = System.currentTimeMillis() + 1000;
+            for (long version = 1; System.currentTimeMillis() < end || version < 20_000; version++) {
+                int id = random.nextInt(version < 10_000 ? 100 : 5000); // the later ones grow the columns
+                switch (random.nextInt(4)) {
+                    case 0: store.remove(id); break;
+                    case 1: store.setDescription(id, description(version), version, version); break;
+                    case 2: store.setSchedule(id, Priority.HIGH, version, version, version); break;
+                    default: store.put(task(id, version)); break;
+                }
+                if (store.get(id) != null && store.get(id).getVersion() == version) assertWhole(store.get(id));
+            }
+            done.set(true);
+            for (Thread reader : readers) reader.join();
+            if (failure.get() != null) throw new AssertionError(failure.get());
+        }
+    }
+
+    @Test
+    void closedStoreCantBeRead() throws IOException {
+        ColumnarTaskStore store = new ColumnarTaskStore();
+        store.put(task(1, 1));
+        store.close();
+        assertNull(store.get(-1));
+        assertThrows(IllegalStateException.class, () -> store.get(1)); // its mapping is gone
+    }
+
+    // a setDescription() or setSchedule() keeps the other columns of the version before, only what it sets
+    // has to be this version. the times and the version are set by every change
+    private static void assertWhole(Task task) {
+        long version = task.getVersion();
+        assertEquals(version, task.getUpdatedAt(), "task " + task.getId());
+        String description = task.getDescription();
+        long written = Long.parseLong(description.substring(1, description.indexOf(' ') < 0 ? description.length() : description.indexOf(' ')));
+        assertEquals(description(written), description);
+        assertTrue(task.getDueDate() <= version, "task " + task.getId());
+    }
+
+    private static Task task(int id, long version) {
+        Task task = new Task(id, description(version));
+        task.setDueDate(version);
+        task.setUpdatedAt(version);
+        task.setVersion(version);
+        return task;
+    }
+
+    // sizes from empty-ish to a few hundred bytes, so the slots move between classes
+    private static String description(long version) {
+        StringBuilder description = new StringBuilder("v").append(version);
+        for (int i = 0; i < version % 40; i++) description.append(" padding").append(version % 10);
+        return description.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// the model stores tasks of its own: a task that's passed in can be changed through its setters afterwards
+// (the caller still holds it, e.g. the one TaskFactory created), the stored one, the lists and the
+// search don't see that
+
+class TaskModelTest {
+    @Test
+    void tasksPassedInAreCopied() {
+        TaskModel model = new TaskModel(new HeapTaskStore());
+        TaskFactory factory = new TaskFactory();
+        Task added = factory.createTask("added");
+        model.addTask(added);
+        List<Task> more = factory.createTasks(List.of("bulk one", "bulk two"));
+        model.addTasks(more);
+        Task replacement = new Task(added.getId(), "replaced");
+        replacement.setUpdatedAt(added.getUpdatedAt() + 1);
+        model.addTask(replacement); // an update of the task that's there
+        TaskSnapshot held = model.getTasks();
+
+        for (Task task : new Task[] {added, more.get(0), more.get(1), replacement}) {
+            assertNotSame(task, model.getTask(task.getId()));
+            task.setDescription("changed behind the model's back");
+            task.setCompleted(true);
+            task.setPriority(Priority.HIGH);
+            task.setVersion(0);
+        }
+
+        assertEquals("replaced", model.getTask(added.getId()).getDescription());
+        assertEquals("bulk one", model.getTask(more.get(0).getId()).getDescription());
+        assertEquals("bulk two", model.getTask(more.get(1).getId()).getDescription());
+        for (Task task : held) {
+            assertFalse(task.isCompleted());
+            assertEquals(Priority.NORMAL, task.getPriority());
+            assertFalse(task.getVersion() == 0);
+        }
+        assertEquals(0, model.query(TaskQuery.all().completed(true)).toList().size());
+        assertEquals(1, model.query(TaskQuery.all().text("replaced")).toList().size());
+        model.stopReminders();
+    }
+}
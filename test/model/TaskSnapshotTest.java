@@ -0,0 +1,234 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import strategy.AlphabeticalSortStrategy;
+import strategy.IdSortStrategy;
+import strategy.TaskSortStrategy;
+
+// the B+tree against an ArrayList doing the same inserts and removes: appends (full leaves, the split that
+// keeps them full), inserts and removes anywhere (splits, merges with a neighbour, the root growing and
+// collapsing), the lists built in one go by of(). every version handed out along the way has to stay
+// exactly as it was, whatever came after it. the lists hold ids, the tasks come from a store.
+// then the model's lists on both stores: one that was handed out keeps reading the tasks as they were at
+// its version, while the tasks are changed, deleted and added again behind it
+
+class TaskSnapshotTest {
+    private static final int CHECK_EVERY = 97; // a full comparison is O(n), the small lists get one every change
+
+    private int nextId;
+    private final HeapTaskStore store = new HeapTaskStore();
+    private final TaskHistory history = new TaskHistory(store);
+    private final List<Version> versions = new ArrayList<>(); // some of the old lists, to check again at the end
+
+    @Test
+    void emptyList() {
+        TaskSnapshot empty = TaskSnapshot.empty(history, 7);
+        assertEquals(0, empty.size());
+        assertEquals(7, empty.getVersion());
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.remove(0, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.insert(1, task().getId(), 8));
+        Task task = task();
+        TaskSnapshot one = empty.insert(0, task.getId(), 8);
+        assertEquals(1, one.size());
+        assertSame(task, one.get(0));
+        assertEquals(0, empty.size());
+        assertEquals(0, one.remove(0, 9).size());
+    }
+
+    @Test
+    void randomChangesMatchAnArrayList() {
+        for (long seed = 1; seed <= 10; seed++) {
+            Random random = new Random(seed);
+            versions.clear();
+            TaskSnapshot snapshot = TaskSnapshot.empty(history, 0);
+            List<Task> expected = new ArrayList<>();
+            long version = 0;
+
+            // grows past three levels (64 * 64 tasks), then shrinks back to nothing
+            int[] targets = {200, 0, 9000, 3000, 6000, 0};
+            for (int target : targets) {
+                while (expected.size() != target) {
+                    boolean grow = expected.size() < target;
+                    if (random.nextInt(10) == 0) grow = !grow; // some back and forth
+                    if (expected.isEmpty()) grow = true;
+                    if (grow) {
+                        // appends are what the model mostly does (new ids in id order), the rest anywhere
+                        int index = random.nextInt(3) == 0 ? expected.size() : random.nextInt(expected.size() + 1);
+                        Task task = task();
+                        snapshot = snapshot.insert(index, task.getId(), ++version);
+                        expected.add(index, task);
+                    } else {
+                        int index = random.nextInt(expected.size());
+                        snapshot = snapshot.remove(index, ++version);
+                        expected.remove(index);
+                    }
+                    if (expected.size() < 200 || version % CHECK_EVERY == 0) {
+                        assertMatches(expected, snapshot, random);
+                        if (random.nextInt(20) == 0) versions.add(new Version(snapshot, expected));
+                    }
+                }
+                assertMatches(expected, snapshot, random);
+                versions.add(new Version(snapshot, expected));
+                assertOldVersionsUnchanged(random);
+            }
+        }
+    }
+
+    @Test
+    void builtListsMatchAnArrayList() {
+        Random random = new Random(42);
+        for (int size : new int[] {1, 63, 64, 65, 4095, 4096, 4097, 20000}) {
+            versions.clear();
+            Task[] tasks = new Task[size];
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) ids[i] = (tasks[i] = task()).getId();
+            TaskSnapshot snapshot = TaskSnapshot.of(ids, history, 1);
+            List<Task> expected = new ArrayList<>(List.of(tasks));
+            assertMatches(expected, snapshot, random);
+            versions.add(new Version(snapshot, expected));
+
+            // its full leaves split on the first insert, and merge once removes make them small
+            long version = 1;
+            for (int i = 0; i < 500; i++) {
+                if (expected.isEmpty() || random.nextBoolean()) {
+                    int index = random.nextInt(expected.size() + 1);
+                    Task task = task();
+                    snapshot = snapshot.insert(index, task.getId(), ++version);
+                    expected.add(index, task);
+                } else {
+                    int index = random.nextInt(expected.size());
+                    snapshot = snapshot.remove(index, ++version);
+                    expected.remove(index);
+                }
+                if (i % 50 == 0) versions.add(new Version(snapshot, expected));
+            }
+            assertMatches(expected, snapshot, random);
+            assertOldVersionsUnchanged(random);
+        }
+    }
+
+    @Test
+    void heldListsReadTheTasksAsTheyWere() throws IOException {
+        assertTasksAsTheyWere(new HeapTaskStore(), new IdSortStrategy());
+        assertTasksAsTheyWere(new HeapTaskStore(), new AlphabeticalSortStrategy());
+        try (ColumnarTaskStore columns = new ColumnarTaskStore()) {
+            assertTasksAsTheyWere(columns, new IdSortStrategy());
+        }
+        try (ColumnarTaskStore columns = new ColumnarTaskStore()) {
+            assertTasksAsTheyWere(columns, new AlphabeticalSortStrategy());
+        }
+    }
+
+    // lists taken along the way while every kind of change goes on, some of them a few hundred changes
+    // behind by the end (past the walk that makes a list remember the history it needs)
+    private static void assertTasksAsTheyWere(TaskStore store, TaskSortStrategy strategy) {
+        TaskModel model = new TaskModel(store);
+        model.setSortStrategy(strategy);
+        TaskFactory factory = new TaskFactory();
+        Random random = new Random(7);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Task task = factory.createTask("Task " + random.nextInt(1000));
+            model.addTask(task);
+            ids.add(task.getId());
+        }
+
+        List<TaskSnapshot> held = new ArrayList<>();
+        List<List<String>> heldContents = new ArrayList<>();
+        held.add(model.getTasks());
+        heldContents.add(contents(model.getTasks()));
+        List<Task> deleted = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            int id = ids.get(random.nextInt(ids.size()));
+            Task task = model.getTask(id);
+            int op = random.nextInt(10);
+            if (task == null) {
+                if (!deleted.isEmpty()) model.addTask(deleted.remove(random.nextInt(deleted.size()))); // undo of a delete
+            } else if (op < 4) {
+                model.editTask(task, "Task " + random.nextInt(1000));
+            } else if (op < 6) {
+                model.setTaskCompleted(task, !task.isCompleted());
+            } else if (op < 8) {
+                model.scheduleTask(task, Priority.values()[random.nextInt(Priority.values().length)], random.nextInt(1000));
+            } else {
+                deleted.add(task);
+                model.deleteTask(task);
+            }
+            if (step % 250 == 0) {
+                held.add(model.getTasks());
+                heldContents.add(contents(model.getTasks()));
+            }
+        }
+        for (int i = 0; i < held.size(); i++) {
+            assertEquals(heldContents.get(i), contents(held.get(i)), "the list of version " + held.get(i).getVersion());
+        }
+
+        // the current list is what's stored
+        List<String> stored = new ArrayList<>();
+        for (Task task : model.getTasks()) stored.add(contents(model.getTask(task.getId())));
+        assertEquals(stored, contents(model.getTasks()));
+        model.stopReminders();
+    }
+
+    private static List<String> contents(List<Task> tasks) {
+        List<String> contents = new ArrayList<>();
+        for (Task task : tasks) contents.add(contents(task));
+        return contents;
+    }
+
+    private static String contents(Task task) {
+        return task.getId() + "|" + task.getDescription() + "|" + task.isCompleted() + "|" + task.getPriority()
+            + "|" + task.getDueDate() + "|" + task.getVersion();
+    }
+
+    private Task task() {
+        Task task = new Task(nextId++, "Task");
+        store.put(task);
+        return task;
+    }
+
+    private void assertOldVersionsUnchanged(Random random) {
+        for (Version old : versions) assertMatches(old.tasks, old.snapshot, random);
+    }
+
+    // every way of reading it: in order, backwards (the finger going either way), jumping around, at() and the iterator
+    private static void assertMatches(List<Task> expected, TaskSnapshot snapshot, Random random) {
+        int size = expected.size();
+        assertEquals(size, snapshot.size());
+        for (int i = 0; i < size; i++) assertSame(expected.get(i), snapshot.get(i));
+        for (int i = size - 1; i >= 0; i--) assertSame(expected.get(i), snapshot.get(i));
+        for (int n = 0; n < Math.min(size, 200); n++) {
+            int i = random.nextInt(size);
+            assertSame(expected.get(i), snapshot.get(i));
+            assertSame(expected.get(i), snapshot.at(i));
+        }
+        Iterator<Task> iterator = snapshot.iterator();
+        for (Task task : expected) assertSame(task, iterator.next());
+        assertEquals(false, iterator.hasNext());
+        int[] ids = snapshot.ids();
+        for (int i = 0; i < size; i++) assertEquals(expected.get(i).getId(), ids[i]);
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(size));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.at(size));
+    }
+
+    private static final class Version {
+        final TaskSnapshot snapshot;
+        final List<Task> tasks;
+
+        Version(TaskSnapshot snapshot, List<Task> tasks) {
+            this.snapshot = snapshot;
+            this.tasks = new ArrayList<>(tasks);
+        }
+    }
+}
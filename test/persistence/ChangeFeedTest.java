@@ -0,0 +1,326 @@
+package persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import model.HeapTaskStore;
+import model.Priority;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// two (or three) instances of a list, each with its own model, factory and feed, kept in sync by pulling each
+// other's feeds like FeedSubscriber does, minus the sockets. the instances share a clock the test sets, so
+// changes on two of them can be made at the very same time
+
+class ChangeFeedTest {
+    private final MutableClock clock = new MutableClock(System.currentTimeMillis() + 3_600_000);
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Node node : nodes) node.feed.close();
+    }
+
+    @Test
+    void concurrentAddsOnTwoNodesKeepBothTasks() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        for (int i = 0; i < 50; i++) {
+            a.add("a " + i);
+            b.add("b " + i);
+        }
+        Task[] created = {a.add("a together"), b.add("b together")};
+        assertNotEquals(created[0].getId(), created[1].getId());
+
+        sync();
+        assertEquals(102, a.model.getTaskCount());
+        assertConverged();
+        for (Task task : created) assertEquals(task.getDescription(), b.model.getTask(task.getId()).getDescription());
+    }
+
+    @Test
+    void editsAtTheSameTimeEndTheSameEverywhere() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        Task task = a.add("Task");
+        sync();
+
+        clock.advance(10);
+        a.model.editTask(a.model.getTask(task.getId()), "edited on a");
+        b.model.editTask(b.model.getTask(task.getId()), "edited on b");
+        assertEquals(a.model.getTask(task.getId()).getUpdatedAt(), b.model.getTask(task.getId()).getUpdatedAt());
+
+        sync();
+        assertConverged();
+        assertEquals("edited on b", a.model.getTask(task.getId()).getDescription()); // the larger value wins a tie
+    }
+
+    @Test
+    void laterEditWins() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        Task task = a.add("Task");
+        sync();
+
+        clock.advance(10);
+        b.model.setTaskCompleted(b.model.getTask(task.getId()), true);
+        clock.advance(10);
+        a.model.editTask(a.model.getTask(task.getId()), "later");
+
+        sync();
+        assertConverged();
+        Task merged = b.model.getTask(task.getId());
+        assertEquals("later", merged.getDescription()); // the whole task of the later change, not a field merge
+        assertEquals(false, merged.isCompleted());
+    }
+
+    @Test
+    void deleteWinsOverAnEditAtTheSameTime() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        Task task = a.add("Task");
+        sync();
+
+        clock.advance(10);
+        a.model.deleteTask(a.model.getTask(task.getId()));
+        b.model.editTask(b.model.getTask(task.getId()), "edited");
+
+        sync();
+        assertConverged();
+        assertNull(a.model.getTask(task.getId()));
+        assertNull(b.model.getTask(task.getId()));
+    }
+
+    @Test
+    void editAfterADeleteBringsTheTaskBack() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        Task task = a.add("Task");
+        sync();
+
+        clock.advance(10);
+        a.model.deleteTask(a.model.getTask(task.getId()));
+        clock.advance(10);
+        b.model.editTask(b.model.getTask(task.getId()), "edited later");
+
+        sync();
+        assertConverged();
+        assertEquals("edited later", a.model.getTask(task.getId()).getDescription());
+    }
+
+    @Test
+    void editBeforeADeleteStaysDeleted() throws InterruptedException {
+        Node a = node(0, 2), b = node(1, 2);
+        Task task = a.add("Task");
+        sync();
+
+        clock.advance(10);
+        b.model.editTask(b.model.getTask(task.getId()), "edited");
+        clock.advance(10);
+        a.model.deleteTask(a.model.getTask(task.getId()));
+
+        sync();
+        assertConverged();
+        assertNull(b.model.getTask(task.getId()));
+    }
+
+    @Test
+    void aNodeThatJoinsLateGetsEverything() throws InterruptedException {
+        Node a = node(0, 3), b = node(1, 3);
+        for (int i = 0; i < 20; i++) a.add("a " + i);
+        Task deleted = b.add("deleted");
+        sync();
+        clock.advance(10);
+        b.model.deleteTask(b.model.getTask(deleted.getId()));
+        sync();
+
+        node(2, 3); // its first pull gets the whole list and the deletes
+        sync();
+        assertConverged();
+        assertEquals(20, nodes.get(2).model.getTaskCount());
+    }
+
+    // an id no instance hands out (far past every factory) is ignored, the factory doesn't move out there
+    @Test
+    void idsTooFarAheadAreIgnored() {
+        Node a = node(0, 2);
+        a.add("Task");
+        Task far = new Task(Integer.MAX_VALUE - 1, "far away");
+        far.setUpdatedAt(clock.millis());
+        List<ChangeFeed.Record> records = List.of(new ChangeFeed.Record(ChangeFeed.PUT, far, far.getId(), far.getUpdatedAt()),
+            new ChangeFeed.Record(ChangeFeed.DELETE, null, Integer.MAX_VALUE - 3, clock.millis()));
+        assertEquals(0, a.feed.apply(records));
+        assertNull(a.model.getTask(far.getId()));
+        assertEquals(1, a.model.getTaskCount());
+        assertEquals(true, a.factory.getNextId() < 10);
+    }
+
+    // adds, edits, completes, reschedules and deletes on three nodes, the clock mostly standing still so
+    // that plenty of changes tie, synced in random pairs in between. after a full sync all three are the same
+    @Test
+    void randomChangesConverge() throws InterruptedException {
+        for (long seed = 1; seed <= 20; seed++) {
+            tearDown();
+            nodes.clear();
+            Random random = new Random(seed);
+            for (int i = 0; i < 3; i++) node(i, 3);
+            Set<Integer> ids = new HashSet<>();
+
+            for (int step = 0; step < 600; step++) {
+                if (random.nextInt(4) == 0) clock.advance(random.nextInt(3));
+                Node node = nodes.get(random.nextInt(nodes.size()));
+                Task task = ids.isEmpty() ? null : node.model.getTask(randomId(ids, random));
+                int op = random.nextInt(10);
+                if (op < 3 || task == null) {
+                    ids.add(node.add("Task " + random.nextInt(20)).getId());
+                } else if (op < 5) {
+                    node.model.editTask(task, "Task " + random.nextInt(20));
+                } else if (op < 7) {
+                    node.model.setTaskCompleted(task, !task.isCompleted());
+                } else if (op < 8) {
+                    node.model.scheduleTask(task, Priority.values()[random.nextInt(Priority.values().length)],
+                        random.nextBoolean() ? Task.NO_DUE_DATE : clock.millis() + random.nextInt(1000));
+                } else {
+                    node.model.deleteTask(task);
+                }
+                if (random.nextInt(10) == 0) {
+                    Node from = nodes.get(random.nextInt(nodes.size())), to = nodes.get(random.nextInt(nodes.size()));
+                    if (from != to) to.pull(from);
+                }
+            }
+            sync();
+            assertConverged();
+        }
+    }
+
+    private static int randomId(Set<Integer> ids, Random random) {
+        int skip = random.nextInt(ids.size());
+        for (int id : ids) if (skip-- == 0) return id;
+        throw new AssertionError();
+    }
+
+    private Node node(int node, int count) {
+        Node created = new Node(node, count);
+        nodes.add(created);
+        return created;
+    }
+
+    // every node pulls every other one until nothing changes anymore
+    private void sync() throws InterruptedException {
+        boolean changed = true;
+        for (int round = 0; changed; round++) {
+            if (round > 20) throw new AssertionError("The feeds don't settle");
+            changed = false;
+            for (Node to : nodes) {
+                for (Node from : nodes) {
+                    if (from != to && to.pull(from)) changed = true;
+                }
+            }
+        }
+    }
+
+    private void assertConverged() {
+        Map<Integer, String> expected = contents(nodes.get(0).model);
+        for (Node node : nodes) assertEquals(expected, contents(node.model), "node " + node.factory.getNode());
+    }
+
+    private static Map<Integer, String> contents(TaskModel model) {
+        Map<Integer, String> contents = new TreeMap<>();
+        for (Task task : model.getTasks()) {
+            contents.put(task.getId(), task.getDescription() + "|" + task.isCompleted() + "|" + task.getPriority()
+                + "|" + task.getDueDate() + "|" + task.getCreatedAt() + "|" + task.getUpdatedAt());
+        }
+        return contents;
+    }
+
+    private final class Node {
+        final TaskModel model = new TaskModel(new HeapTaskStore(), clock);
+        final TaskFactory factory = new TaskFactory();
+        final ChangeFeed feed;
+        final Map<ChangeFeed, long[]> positions = new HashMap<>(); // peer feed -> epoch, after
+
+        Node(int node, int count) {
+            factory.setIdSpace(node, count);
+            feed = new ChangeFeed(model, factory);
+        }
+
+        Task add(String description) {
+            Task task = factory.createTask(description);
+            model.addTask(task);
+            Task added = model.getTask(task.getId());
+            assertNotNull(added);
+            return added;
+        }
+
+        // what the peer has that we haven't seen yet, as copies like off the wire. true if that changed
+        // anything here or there's more to pull
+        boolean pull(Node peer) throws InterruptedException {
+            long[] position = positions.computeIfAbsent(peer.feed, feed -> new long[2]);
+            ChangeFeed.Answer answer = peer.feed.read(position[0], position[1], 1000, 0);
+            List<ChangeFeed.Record> records = new ArrayList<>();
+            if (answer.isState()) {
+                for (Task task : answer.tasks) records.add(put(task));
+                for (Map.Entry<Integer, Long> delete : answer.deleted.entrySet()) {
+                    records.add(new ChangeFeed.Record(ChangeFeed.DELETE, null, delete.getKey(), delete.getValue()));
+                }
+            } else {
+                for (ChangeFeed.Record record : answer.records) {
+                    records.add(record.op == ChangeFeed.PUT ? put(record.task) : record);
+                }
+            }
+            position[0] = peer.feed.getEpoch();
+            position[1] = answer.sequence;
+            boolean applied = !records.isEmpty() && feed.apply(records) > 0;
+            return applied || position[1] < peer.feed.getSequence();
+        }
+
+        private ChangeFeed.Record put(Task task) {
+            Task copy = task.copy();
+            return new ChangeFeed.Record(ChangeFeed.PUT, copy, copy.getId(), copy.getUpdatedAt());
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long by) {
+            millis += by;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import model.Priority;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// files written by TaskExporter going back in through TaskImporter, in both formats, and files written by
+// hand (or by another program). the exported tasks have every character the CSV quoting is about in their
+// descriptions, and are enough of them that quoted fields and line breaks end up across the reader's buffers
+
+class TaskImporterTest {
+    @TempDir
+    Path directory;
+
+    // with keepIds an id in reach of the factory is kept, one far past it gets a new id like a record
+    // without one, and the factory stays where it was
+    @Test
+    void idsTooFarAheadGetNewOnes() throws IOException {
+        Path file = directory.resolve("tasks.csv");
+        Files.write(file, ("id,description\n"
+            + "5,kept\n"
+            + "2147483646,far away\n"
+            + (TaskFactory.MAX_ID_AHEAD + 100) + ",just too far\n").getBytes(StandardCharsets.UTF_8));
+        TaskModel model = new TaskModel();
+        TaskFactory factory = new TaskFactory();
+        assertEquals(3, new TaskImporter(model, factory).importFile(file, TaskFormat.CSV, true, null));
+
+        assertEquals("kept", model.getTask(5).getDescription());
+        assertEquals(3, model.getTaskCount());
+        for (Task task : model.getTasks()) assertTrue(task.getId() < 10, "task " + task.getId());
+        assertNotNull(model.getTask(6)); // the next ids after the kept one
+        assertNotNull(model.getTask(7));
+        assertEquals(8, factory.getNextId());
+    }
+
+    @Test
+    void exportedTasksComeBackTheSame() throws IOException {
+        for (TaskFormat format : TaskFormat.values()) {
+            List<Task> tasks = tasks(20_000);
+            Path file = export(tasks, format);
+
+            TaskModel model = new TaskModel();
+            TaskFactory factory = new TaskFactory();
+            assertEquals(tasks.size(), new TaskImporter(model, factory).importFile(file, format, true, null));
+            assertEquals(contents(tasks, true), contents(model.getTasks(), true), format.name());
+            assertEquals(tasks.get(tasks.size() - 1).getId() + 1, factory.getNextId());
+
+            // new ids in the order of the file, the rest as it was
+            TaskModel renumbered = new TaskModel();
+            renumbered.addTask(new Task(0, "there before"));
+            TaskFactory renumbering = new TaskFactory();
+            renumbering.advanceTo(1_000_000);
+            new TaskImporter(renumbered, renumbering).importFile(file, format, false, null);
+            List<Task> imported = new ArrayList<>(renumbered.getTasks());
+            imported.remove(0);
+            assertEquals(1_000_000, imported.get(0).getId());
+            assertEquals(contents(tasks, false), contents(imported, false), format.name());
+        }
+    }
+
+    // like a spreadsheet saves it: a BOM, CRLF line ends, columns in its own order and some of them missing
+    @Test
+    void csvColumnsAreFoundByTheirHeader() throws IOException {
+        Path file = directory.resolve("tasks.csv");
+        Files.write(file, ("\uFEFF Priority ,dueDate,description,ID,completed\r\n"
+            + "high,2024-05-01T09:00:00Z,\" spaces kept \",3,yes\r\n"
+            + "\r\n"
+            + "low,,\"two\r\nlines, \"\"quoted\"\"\",7,\r\n"
+            + ",,last without a line end,,x").getBytes(StandardCharsets.UTF_8));
+        TaskModel model = new TaskModel();
+        TaskFactory factory = new TaskFactory();
+        assertEquals(3, new TaskImporter(model, factory).importFile(file, TaskFormat.CSV, true, null));
+
+        Task first = model.getTask(3);
+        assertEquals(" spaces kept ", first.getDescription());
+        assertEquals(Priority.HIGH, first.getPriority());
+        assertEquals(1714554000000L, first.getDueDate());
+        assertTrue(first.isCompleted());
+        Task second = model.getTask(7);
+        assertEquals("two\r\nlines, \"quoted\"", second.getDescription());
+        assertEquals(Priority.LOW, second.getPriority());
+        assertFalse(second.hasDueDate());
+        assertFalse(second.isCompleted());
+        Task last = model.getTask(8); // no id, the next one after the kept ones
+        assertEquals("last without a line end", last.getDescription());
+        assertTrue(last.isCompleted());
+    }
+
+    @Test
+    void bomIsSkippedInBothFormats() throws IOException {
+        for (TaskFormat format : TaskFormat.values()) {
+            List<Task> tasks = tasks(10);
+            Path file = export(tasks, format);
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] withBom = new byte[bytes.length + 3];
+            withBom[0] = (byte) 0xEF;
+            withBom[1] = (byte) 0xBB;
+            withBom[2] = (byte) 0xBF;
+            System.arraycopy(bytes, 0, withBom, 3, bytes.length);
+            Files.write(file, withBom);
+
+            TaskModel model = new TaskModel();
+            new TaskImporter(model, new TaskFactory()).importFile(file, format, true, null);
+            assertEquals(contents(tasks, true), contents(model.getTasks(), true), format.name());
+        }
+    }
+
+    // a cancelled import keeps what came in before it stopped, a cancelled export leaves the file alone
+    @Test
+    void cancelledRunsStop() throws IOException {
+        for (TaskFormat format : TaskFormat.values()) {
+            List<Task> tasks = tasks(20_000);
+            Path file = export(tasks, format);
+            byte[] exported = Files.readAllBytes(file);
+
+            TaskModel model = new TaskModel();
+            long[] reported = new long[1];
+            long count = new TaskImporter(model, new TaskFactory()).importFile(file, format, true, cancelAfter(2, reported));
+            assertTrue(count > 0 && count < tasks.size(), format.name() + " imported " + count);
+            assertEquals(count, reported[0]);
+            assertEquals(count, model.getTaskCount());
+            assertEquals(contents(tasks.subList(0, (int) count), true), contents(model.getTasks(), true));
+
+            assertEquals(0, new TaskExporter().export(tasks, file, format, cancelAfter(1, null)));
+            assertEquals(new String(exported, StandardCharsets.UTF_8), Files.readString(file));
+            assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+        }
+    }
+
+    private Path export(List<Task> tasks, TaskFormat format) throws IOException {
+        Path file = directory.resolve(format == TaskFormat.CSV ? "tasks.csv" : "tasks.ndjson");
+        assertEquals(tasks.size(), new TaskExporter().export(tasks, file, format, null));
+        return file;
+    }
+
+    // cancels at the calls-th progress call, reported gets the last task count
+    private static TransferListener cancelAfter(int calls, long[] reported) {
+        return new TransferListener() {
+            int called;
+
+            @Override
+            public void progress(long done, long total, long tasks) {
+                called++;
+                if (reported != null) reported[0] = tasks;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return called >= calls;
+            }
+        };
+    }
+
+    // ids in order with gaps, descriptions pieced together from the awkward parts, long ones now and then
+    private static List<Task> tasks(int count) {
+        String[] parts = {"plain", "a, b", "\"quoted\"", "\"", ",", "two\nlines", "crlf\r\nline", "cr\ronly",
+            " leading", "trailing ", "  ", "tab\there", "\u00fcml\u00e4ut \u2713", "\\back\\slash", "{\"json\":1}", "\"\"\""};
+        Random random = new Random(16);
+        List<Task> tasks = new ArrayList<>(count);
+        long now = 1_700_000_000_000L;
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(3);
+            StringBuilder description = new StringBuilder();
+            int pieces = random.nextInt(500) == 0 ? 5000 : 1 + random.nextInt(4);
+            for (int p = 0; p < pieces; p++) description.append(parts[random.nextInt(parts.length)]);
+            if (description.toString().trim().isEmpty()) description.append('x');
+            Task task = new Task(id, description.toString());
+            task.setCompleted(random.nextBoolean());
+            task.setPriority(Priority.values()[random.nextInt(Priority.values().length)]);
+            if (random.nextBoolean()) task.setDueDate(now + random.nextInt(1_000_000_000));
+            task.setCreatedAt(now - random.nextInt(1_000_000_000));
+            task.setUpdatedAt(task.getCreatedAt() + random.nextInt(1000));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // in the order of the list, the ids and times only if they're kept
+    private static List<String> contents(List<Task> tasks, boolean withIds) {
+        List<String> contents = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            contents.add((withIds ? task.getId() + "|" + task.getCreatedAt() + "|" + task.getUpdatedAt() + "|" : "")
+                + task.getDescription() + "|" + task.isCompleted() + "|" + task.getPriority() + "|" + task.getDueDate());
+        }
+        return contents;
+    }
+}
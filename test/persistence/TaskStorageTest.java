@@ -0,0 +1,252 @@
+package persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+import model.Priority;
+import model.Task;
+import model.TaskFactory;
+import model.TaskModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// the files are written by hand here, the way a crash or an older version of the app would have left them,
+// and then read back by open(). the tests that need the journal to be written by the app wait for its
+// writer thread and take a copy of the files, that's what the next start finds after a crash
+
+class TaskStorageTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private final List<TaskStorage> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (TaskStorage storage : opened) storage.close();
+    }
+
+    @Test
+    void journalIsReplayedOnTheSnapshot() throws IOException {
+        writeSnapshot(directory, 2, 4, List.of(task(1, "one"), task(2, "two"), task(3, "three")));
+        Task scheduled = task(3, "three");
+        scheduled.setPriority(Priority.HIGH);
+        scheduled.setDueDate(5000);
+        Task completed = task(2, "two");
+        completed.setCompleted(true);
+        writeJournal(directory, 2,
+            record(TaskJournal.EDIT, task(1, "one edited")),
+            record(TaskJournal.COMPLETE, completed),
+            record(TaskJournal.SCHEDULE, scheduled),
+            record(TaskJournal.ADD, task(4, "four")),
+            record(TaskJournal.ADD, task(5, "five")),
+            record(TaskJournal.DELETE, task(4, "")),
+            record(TaskJournal.ADD, task(2, "two again"))); // a whole task over one that's there
+
+        TaskModel model = new TaskModel();
+        TaskFactory factory = new TaskFactory();
+        open(directory, model, factory);
+
+        Map<Integer, String> expected = new TreeMap<>();
+        expected.put(1, "one edited|false|NORMAL|" + Task.NO_DUE_DATE);
+        expected.put(2, "two again|false|NORMAL|" + Task.NO_DUE_DATE);
+        expected.put(3, "three|false|HIGH|5000");
+        expected.put(5, "five|false|NORMAL|" + Task.NO_DUE_DATE);
+        assertEquals(expected, contents(model));
+        assertEquals(6, factory.getNextId()); // past the journal's ids, not just the snapshot's
+    }
+
+    @Test
+    void cutOffLastRecordIsDropped() throws IOException {
+        writeSnapshot(directory, 2, 2, List.of(task(1, "one")));
+        writeJournal(directory, 2, record(TaskJournal.ADD, task(2, "two")), record(TaskJournal.ADD, task(3, "three")));
+        Path journal = directory.resolve("tasks.journal");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // the crash came in the middle of the last description
+        }
+
+        TaskModel model = new TaskModel();
+        open(directory, model, new TaskFactory());
+        assertEquals(Map.of(1, "one|false|NORMAL|" + Task.NO_DUE_DATE, 2, "two|false|NORMAL|" + Task.NO_DUE_DATE),
+            contents(model));
+    }
+
+    // without a single whole record nothing is folded into a snapshot on open, the next record has to go
+    // where the cut off one started or the journal can't be read past it
+    @Test
+    void recordsAfterACutOffOneAreReplayed() throws IOException, InterruptedException {
+        writeSnapshot(directory, 2, 2, List.of(task(1, "one")));
+        writeJournal(directory, 2, record(TaskJournal.ADD, task(2, "lost")));
+        Path journal = directory.resolve("tasks.journal");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        TaskModel model = new TaskModel();
+        TaskFactory factory = new TaskFactory();
+        open(directory, model, factory);
+        assertEquals(TaskJournal.HEADER_SIZE, Files.size(journal));
+        model.addTask(factory.createTask("after the crash"));
+        awaitSize(journal, size -> size > TaskJournal.HEADER_SIZE);
+
+        TaskModel restarted = new TaskModel();
+        open(copy(directory), restarted, new TaskFactory());
+        assertEquals(contents(model), contents(restarted));
+        assertEquals(2, restarted.getTaskCount());
+    }
+
+    @Test
+    void version1FilesAreUpgraded() throws IOException {
+        writeSnapshot(directory, 1, 3, List.of(task(1, "one"), task(2, "two")));
+        Task completed = task(2, "two");
+        completed.setCompleted(true);
+        writeJournal(directory, 1, record(TaskJournal.COMPLETE, completed), record(TaskJournal.ADD, task(3, "three")));
+
+        TaskModel model = new TaskModel();
+        open(directory, model, new TaskFactory());
+        Map<Integer, String> expected = new TreeMap<>();
+        expected.put(1, "one|false|NORMAL|" + Task.NO_DUE_DATE);
+        expected.put(2, "two|true|NORMAL|" + Task.NO_DUE_DATE);
+        expected.put(3, "three|false|NORMAL|" + Task.NO_DUE_DATE);
+        assertEquals(expected, contents(model));
+
+        // both files are in the current version now, the old journal went into the snapshot
+        assertEquals(2, versionOf(directory.resolve("tasks.snapshot")));
+        assertEquals(TaskJournal.VERSION, versionOf(directory.resolve("tasks.journal")));
+        assertEquals(TaskJournal.HEADER_SIZE, Files.size(directory.resolve("tasks.journal")));
+
+        TaskModel restarted = new TaskModel();
+        open(copy(directory), restarted, new TaskFactory());
+        assertEquals(expected, contents(restarted));
+    }
+
+    // a journal with records is folded into a snapshot after open, the changes from then on go into the
+    // emptied journal and are replayed on that snapshot
+    @Test
+    void changesAfterARotationAreReplayed() throws IOException, InterruptedException {
+        writeSnapshot(directory, 2, 2, List.of(task(1, "one")));
+        writeJournal(directory, 2, record(TaskJournal.ADD, task(2, "two")), record(TaskJournal.EDIT, task(1, "one edited")));
+
+        TaskModel model = new TaskModel();
+        TaskFactory factory = new TaskFactory();
+        open(directory, model, factory);
+        Path journal = directory.resolve("tasks.journal");
+        awaitSize(journal, size -> size == TaskJournal.HEADER_SIZE);
+
+        Task added = factory.createTask("three");
+        model.addTask(added);
+        model.editTask(model.getTask(2), "two edited");
+        model.deleteTask(model.getTask(1));
+        awaitSize(journal, size -> size >= TaskJournal.HEADER_SIZE + 3 * (RecordWriter.TASK_HEADER_SIZE + 1));
+
+        TaskModel restarted = new TaskModel();
+        TaskFactory restartedFactory = new TaskFactory();
+        open(copy(directory), restarted, restartedFactory);
+        assertEquals(Map.of(2, "two edited|false|NORMAL|" + Task.NO_DUE_DATE, added.getId(), "three|false|NORMAL|" + Task.NO_DUE_DATE),
+            contents(restarted));
+        assertEquals(factory.getNextId(), restartedFactory.getNextId());
+    }
+
+    private void open(Path directory, TaskModel model, TaskFactory factory) throws IOException {
+        TaskStorage storage = new TaskStorage(directory);
+        storage.open(model, factory);
+        opened.add(storage);
+    }
+
+    // the files as they are right now, in a directory of their own
+    private Path copy(Path from) throws IOException {
+        Path to = Files.createDirectories(directory.resolve("copy" + opened.size()));
+        for (String name : new String[] {"tasks.snapshot", "tasks.journal"}) {
+            Files.copy(from.resolve(name), to.resolve(name));
+        }
+        return to;
+    }
+
+    private static void awaitSize(Path file, LongPredicate done) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!done.test(Files.size(file))) {
+            assertTrue(System.currentTimeMillis() < deadline, "The journal wasn't written, size " + Files.size(file));
+            Thread.sleep(10);
+        }
+    }
+
+    private static Task task(int id, String description) {
+        Task task = new Task(id, description);
+        task.setCreatedAt(1000 + id);
+        task.setUpdatedAt(1000 + id);
+        return task;
+    }
+
+    private static Map<Integer, String> contents(TaskModel model) {
+        Map<Integer, String> contents = new TreeMap<>();
+        for (Task task : model.getTasks()) {
+            contents.put(task.getId(), task.getDescription() + "|" + task.isCompleted() + "|" + task.getPriority()
+                + "|" + task.getDueDate());
+        }
+        return contents;
+    }
+
+    private static int versionOf(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file), 4, 4).getInt();
+    }
+
+    private static void writeSnapshot(Path directory, int version, int nextId, List<Task> tasks) throws IOException {
+        try (FileChannel channel = create(directory.resolve("tasks.snapshot"))) {
+            RecordWriter writer = new RecordWriter(channel);
+            writer.putInt(0x54534E50);
+            writer.putInt(version);
+            writer.putInt(nextId);
+            writer.putInt(tasks.size());
+            for (Task task : tasks) putTask(writer, version, task);
+            writer.flush();
+        }
+    }
+
+    private static void writeJournal(Path directory, int version, Object[]... records) throws IOException {
+        try (FileChannel channel = create(directory.resolve("tasks.journal"))) {
+            RecordWriter writer = new RecordWriter(channel);
+            writer.putInt(TaskJournal.MAGIC);
+            writer.putInt(version);
+            for (Object[] record : records) {
+                writer.putByte((Byte) record[0]);
+                putTask(writer, version, (Task) record[1]);
+            }
+            writer.flush();
+        }
+    }
+
+    private static Object[] record(byte op, Task task) {
+        return new Object[] {op, task};
+    }
+
+    // version 1 records were [int id][byte completed][int length][utf-8 description]
+    private static void putTask(RecordWriter writer, int version, Task task) throws IOException {
+        if (version > 1) {
+            writer.putTask(task);
+            return;
+        }
+        byte[] bytes = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        writer.putInt(task.getId());
+        writer.putByte((byte) (task.isCompleted() ? 1 : 0));
+        writer.putInt(bytes.length);
+        for (byte b : bytes) writer.putByte(b);
+    }
+
+    private static FileChannel create(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
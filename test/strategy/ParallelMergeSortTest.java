@@ -0,0 +1,114 @@
+package strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// the merge sort against Arrays.sort (a stable sort too) on the same input: every element has to end up
+// in the same place, so elements that compare equal keep the order they came in. the keys come from a small
+// range, there are lots of ties, and the sizes go around the grains, where the pieces and the merges split
+
+class ParallelMergeSortTest {
+    private static final Comparator<Item> BY_KEY = Comparator.comparingInt(item -> item.key);
+
+    private final List<ForkJoinPool> pools = List.of(new ForkJoinPool(1), new ForkJoinPool(4));
+
+    @AfterEach
+    void tearDown() {
+        for (ForkJoinPool pool : pools) pool.shutdown();
+    }
+
+    @Test
+    void sortsLikeArraysSort() {
+        int sortGrain = ParallelMergeSort.SORT_GRAIN, mergeGrain = ParallelMergeSort.MERGE_GRAIN;
+        int[] sizes = {0, 1, 2, sortGrain, sortGrain + 1, 2 * sortGrain + 1, mergeGrain, mergeGrain + 1,
+            4 * mergeGrain + 7, 200_003};
+        Random random = new Random(20);
+        for (ForkJoinPool pool : pools) {
+            for (int size : sizes) {
+                for (int keys : new int[] {1, 3, 1000, Integer.MAX_VALUE}) {
+                    assertSortsLikeArraysSort(random(size, keys, random), pool);
+                }
+                assertSortsLikeArraysSort(ordered(size, false), pool); // merges that find their runs in order
+                assertSortsLikeArraysSort(ordered(size, true), pool);
+            }
+        }
+    }
+
+    // a range of the array, the rest of it stays where it is
+    @Test
+    void sortsARange() {
+        Random random = new Random(21);
+        for (ForkJoinPool pool : pools) {
+            Item[] items = random(3 * ParallelMergeSort.MERGE_GRAIN, 50, random);
+            Item[] expected = items.clone();
+            int from = 1234, to = items.length - 999;
+            Arrays.sort(expected, from, to, BY_KEY);
+            ParallelMergeSort.sort(items, from, to, BY_KEY, pool);
+            assertSameOrder(expected, items);
+        }
+    }
+
+    // started from one of the pool's own threads, the sort forks into that pool
+    @Test
+    void sortsFromInsideThePool() throws InterruptedException, ExecutionException {
+        Random random = new Random(22);
+        for (ForkJoinPool pool : pools) {
+            Item[] items = random(5 * ParallelMergeSort.MERGE_GRAIN, 10, random);
+            Item[] expected = items.clone();
+            Arrays.sort(expected, BY_KEY);
+            pool.submit(() -> ParallelMergeSort.sort(items, BY_KEY, pool)).get();
+            assertSameOrder(expected, items);
+        }
+    }
+
+    private static void assertSortsLikeArraysSort(Item[] items, ForkJoinPool pool) {
+        Item[] expected = items.clone();
+        Arrays.sort(expected, BY_KEY);
+        ParallelMergeSort.sort(items, BY_KEY, pool);
+        assertSameOrder(expected, items);
+    }
+
+    static <T> void assertSameOrder(T[] expected, T[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                throw new AssertionError("At " + i + " of " + expected.length + ": expected " + expected[i] + " but was " + actual[i]);
+            }
+        }
+    }
+
+    private static Item[] random(int size, int keys, Random random) {
+        Item[] items = new Item[size];
+        for (int i = 0; i < size; i++) items[i] = new Item(keys == Integer.MAX_VALUE ? random.nextInt() : random.nextInt(keys), i);
+        return items;
+    }
+
+    // five of each key, ascending or descending
+    private static Item[] ordered(int size, boolean descending) {
+        Item[] items = new Item[size];
+        for (int i = 0; i < size; i++) items[i] = new Item((descending ? size - i : i) / 5, i);
+        return items;
+    }
+
+    private static final class Item {
+        final int key, position; // the position it came in, tells equal items apart
+
+        Item(int key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public String toString() {
+            return key + "@" + position;
+        }
+    }
+}
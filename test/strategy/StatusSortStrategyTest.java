@@ -0,0 +1,80 @@
+package strategy;
+
+import static strategy.ParallelMergeSortTest.assertSameOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// the split into pending and completed against Arrays.sort with the strategy's comparator: the tasks in
+// id order (both halves done by the split), one half or both out of order (sorted after the split, small
+// ones on one thread, big ones with the merge sort), and all of them in one half
+
+class StatusSortStrategyTest {
+    private final StatusSortStrategy strategy = new StatusSortStrategy();
+    private final List<ForkJoinPool> pools = List.of(new ForkJoinPool(1), new ForkJoinPool(4));
+
+    @AfterEach
+    void tearDown() {
+        for (ForkJoinPool pool : pools) pool.shutdown();
+    }
+
+    @Test
+    void sortsLikeItsComparator() {
+        Random random = new Random(20);
+        int[] sizes = {0, 1, 2, 100, TaskSortStrategy.PARALLEL_THRESHOLD - 1, 2 * TaskSortStrategy.PARALLEL_THRESHOLD + 3};
+        for (ForkJoinPool pool : pools) {
+            for (int size : sizes) {
+                for (double completed : new double[] {0, 0.01, 0.5, 0.99, 1}) {
+                    List<Task> tasks = tasks(size, completed, random);
+                    assertSortsLikeItsComparator(tasks, pool); // in id order
+                    assertSortsLikeItsComparator(shuffled(tasks, true, false, random), pool);
+                    assertSortsLikeItsComparator(shuffled(tasks, false, true, random), pool);
+                    assertSortsLikeItsComparator(shuffled(tasks, true, true, random), pool);
+                    List<Task> reversed = new ArrayList<>(tasks);
+                    Collections.reverse(reversed);
+                    assertSortsLikeItsComparator(reversed, pool);
+                }
+            }
+        }
+    }
+
+    private void assertSortsLikeItsComparator(List<Task> tasks, ForkJoinPool pool) {
+        Task[] sorted = tasks.toArray(new Task[0]);
+        Task[] expected = sorted.clone();
+        Arrays.sort(expected, strategy.getComparator());
+        strategy.sort(sorted, pool);
+        assertSameOrder(expected, sorted);
+    }
+
+    // ids in order with gaps
+    private static List<Task> tasks(int size, double completed, Random random) {
+        List<Task> tasks = new ArrayList<>(size);
+        int id = 0;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(3);
+            Task task = new Task(id, "Task " + id);
+            task.setCompleted(random.nextDouble() < completed);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // the pending and/or the completed tasks out of id order, each keeps the places of its kind in the list
+    private static List<Task> shuffled(List<Task> tasks, boolean pending, boolean completed, Random random) {
+        List<Task> pendingTasks = new ArrayList<>(), completedTasks = new ArrayList<>();
+        for (Task task : tasks) (task.isCompleted() ? completedTasks : pendingTasks).add(task);
+        if (pending) Collections.shuffle(pendingTasks, random);
+        if (completed) Collections.shuffle(completedTasks, random);
+        List<Task> shuffled = new ArrayList<>(tasks.size());
+        int nextPending = 0, nextCompleted = 0;
+        for (Task task : tasks) shuffled.add(task.isCompleted() ? completedTasks.get(nextCompleted++) : pendingTasks.get(nextPending++));
+        return shuffled;
+    }
+}